@@ -0,0 +1,82 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.ValuesStore;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Several threads setting random values of a shared KeyValueResolver without persistence, to compare the contention on the write lock
+ * with different numbers of ValuesStore shards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentWriteBenchmark {
+
+    @Param({"1000"})
+    private int keyCount;
+
+    @Param({"4"})
+    private int domainCount;
+
+    @Param({"4"})
+    private int overridesPerKey;
+
+    @Param({"1", "16"})
+    private int shardCount;
+
+    private KeyValueResolver keyValueResolver;
+    private List<DataSet.Entry> entries;
+
+    @Setup
+    public void setup() {
+        final DataSet dataSet = new DataSet(keyCount, domainCount, overridesPerKey, 0.25, 8);
+        keyValueResolver = new KeyValueResolverImpl(new ValuesStore(shardCount), dataSet.getDomains());
+        dataSet.fill(keyValueResolver);
+        entries = dataSet.getEntries();
+    }
+
+    @Benchmark
+    public DomainSpecificValue set() {
+        final DataSet.Entry entry = entries.get(ThreadLocalRandom.current().nextInt(entries.size()));
+        return keyValueResolver.setWithChangeSet(entry.getKey(), entry.getValue(), "benchmark", entry.getChangeSet(),
+                entry.getDomainValues());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DomainResolver;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.MapBackedDomainResolver;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Reproducible benchmark data. The same parameters and seed always create the same keys, values and queries.
+ */
+public final class DataSet {
+
+    public static final long SEED = 4711;
+    public static final int VALUES_PER_DOMAIN = 10;
+    public static final String CHANGE_SET_PREFIX = "changeSet";
+
+    private final String[] domains;
+    private final List<Entry> entries = new ArrayList<>();
+    private final String[] keys;
+    private final Random random;
+    private final double wildcardRatio;
+    private final int changeSetCount;
+
+    public DataSet(int keyCount, int domainCount, int overridesPerKey, double wildcardRatio, int changeSetCount) {
+        this(SEED, keyCount, domainCount, overridesPerKey, wildcardRatio, changeSetCount);
+    }
+
+    public DataSet(long seed, int keyCount, int domainCount, int overridesPerKey, double wildcardRatio, int changeSetCount) {
+        this.random = new Random(seed);
+        this.wildcardRatio = wildcardRatio;
+        this.changeSetCount = changeSetCount;
+        this.domains = new String[domainCount];
+        for (int i = 0; i < domainCount; i++) {
+            domains[i] = "domain" + i;
+        }
+        this.keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key." + i;
+            entries.add(new Entry(keys[i], "default " + i, null, new String[0]));
+            for (int j = 0; j < overridesPerKey; j++) {
+                entries.add(new Entry(keys[i], "value " + i + "." + j, randomChangeSet(), randomPattern()));
+            }
+        }
+    }
+
+    private String[] randomPattern() {
+        final String[] domainValues = new String[1 + random.nextInt(domains.length)];
+        for (int i = 0; i < domainValues.length; i++) {
+            domainValues[i] = random.nextDouble() < wildcardRatio ? "*" : randomDomainValue(i);
+        }
+        return domainValues;
+    }
+
+    private String randomDomainValue(int position) {
+        return "v" + position + "." + random.nextInt(VALUES_PER_DOMAIN);
+    }
+
+    private String randomChangeSet() {
+        return changeSetCount > 0 && random.nextInt(4) == 0 ? CHANGE_SET_PREFIX + random.nextInt(changeSetCount) : null;
+    }
+
+    public String[] getDomains() {
+        return domains.clone();
+    }
+
+    public String[] getKeys() {
+        return keys.clone();
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public String changeSet(int index) {
+        return CHANGE_SET_PREFIX + index;
+    }
+
+    /**
+     * Stores all entries in the given KeyValueResolver, which must have been created with {@link #getDomains()}.
+     */
+    public void fill(KeyValueResolver keyValueResolver) {
+        for (Entry entry : entries) {
+            keyValueResolver.setWithChangeSet(entry.key, entry.value, "benchmark", entry.changeSet, entry.domainValues);
+        }
+    }
+
+    public Collection<KeyValues> createKeyValues(DomainSpecificValueFactory factory) {
+        final Map<String, KeyValues> result = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            result.computeIfAbsent(entry.key, key -> new KeyValues(key, factory, "benchmark"))
+                    .putWithChangeSet(entry.changeSet, entry.value, entry.domainValues);
+        }
+        return result.values();
+    }
+
+    /**
+     * Creates resolvers with a value for every domain. Half of them have all changeSets active, when there are changeSets.
+     */
+    public DomainResolver[] createResolvers(int count) {
+        final DomainResolver[] resolvers = new DomainResolver[count];
+        for (int i = 0; i < count; i++) {
+            final MapBackedDomainResolver resolver = new MapBackedDomainResolver();
+            for (int j = 0; j < domains.length; j++) {
+                resolver.set(domains[j], randomDomainValue(j));
+            }
+            if (changeSetCount > 0 && random.nextBoolean()) {
+                for (int j = 0; j < changeSetCount; j++) {
+                    resolver.addActiveChangeSets(changeSet(j));
+                }
+            }
+            resolvers[i] = resolver;
+        }
+        return resolvers;
+    }
+
+    public String randomKey() {
+        return keys[random.nextInt(keys.length)];
+    }
+
+    public static final class Entry {
+
+        private final String key;
+        private final String value;
+        private final String changeSet;
+        private final String[] domainValues;
+
+        private Entry(String key, String value, String changeSet, String[] domainValues) {
+            this.key = key;
+            this.value = value;
+            this.changeSet = changeSet;
+            this.domainValues = domainValues;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getChangeSet() {
+            return changeSet;
+        }
+
+        public String[] getDomainValues() {
+            return domainValues.clone();
+        }
+
+        @Override
+        public String toString() {
+            return key + "[" + String.join("|", domainValues) + "]=" + value + (changeSet == null ? "" : " (" + changeSet + ")");
+        }
+    }
+}
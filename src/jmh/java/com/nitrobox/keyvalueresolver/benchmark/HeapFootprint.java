@@ -0,0 +1,121 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DefaultDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.InterningDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.OffHeapValuesStorage;
+import com.nitrobox.keyvalueresolver.Persistence;
+import com.nitrobox.keyvalueresolver.ShardStatistics;
+import com.nitrobox.keyvalueresolver.ValuesStore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Prints the heap retained by a KeyValueResolver for the ValuesStore implementations and factories. JMH does not measure retained heap,
+ * so this is a plain main class: run it with the benchmark jar on the class path and a fixed heap size, e.g.
+ * <pre>java -Xmx2g -cp build/libs/*-jmh.jar com.nitrobox.keyvalueresolver.benchmark.HeapFootprint [keyCount]</pre>
+ */
+public final class HeapFootprint {
+
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        final int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        final DataSet dataSet = new DataSet(keyCount, 4, 4, 0.25, 8);
+        measure("heap, default factory", dataSet, new ValuesStore(), new DefaultDomainSpecificValueFactory());
+        measure("heap, interning factory", dataSet, new ValuesStore(), new InterningDomainSpecificValueFactory());
+        measure("off heap, interning factory", dataSet, new ValuesStore(new OffHeapValuesStorage()),
+                new InterningDomainSpecificValueFactory());
+    }
+
+    private static void measure(String name, DataSet dataSet, ValuesStore valuesStore, DomainSpecificValueFactory factory) {
+        final Collection<KeyValues> keyValues = new ArrayList<>(dataSet.createKeyValues(new DefaultDomainSpecificValueFactory()));
+        final Persistence persistence = new LoadOnlyPersistence(keyValues);
+        final long before = usedHeap();
+        final KeyValueResolver keyValueResolver = new KeyValueResolverImpl(valuesStore, persistence, factory, dataSet.getDomains());
+        final long after = usedHeap();
+        final long offHeapBytes = valuesStore.getShardStatistics().stream().mapToLong(ShardStatistics::getOffHeapBytes).sum();
+        System.out.printf("%-30s %,15d bytes heap%s%n", name, after - before,
+                offHeapBytes > 0 ? String.format(", %,d bytes in off heap segments", offHeapBytes) : "");
+        if (keyValueResolver.getAllKeyValues().size() != keyValues.size()) {
+            throw new IllegalStateException("Not all keys were loaded");
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Hands out copies of the generated KeyValues, created with the factory under test, so they do not share Strings with the data set.
+     */
+    private static final class LoadOnlyPersistence implements Persistence {
+
+        private final Collection<KeyValues> keyValues;
+
+        private LoadOnlyPersistence(Collection<KeyValues> keyValues) {
+            this.keyValues = keyValues;
+        }
+
+        @Override
+        public KeyValues load(String key, DomainSpecificValueFactory domainSpecificValueFactory) {
+            return null;
+        }
+
+        @Override
+        public Collection<KeyValues> loadAll(DomainSpecificValueFactory domainSpecificValueFactory) {
+            final List<KeyValues> result = new ArrayList<>(keyValues.size());
+            for (KeyValues original : keyValues) {
+                final KeyValues copy = new KeyValues(new String(original.getKey()), domainSpecificValueFactory, original.getDescription());
+                original.getDomainSpecificValues().forEach(value -> copy.putWithChangeSet(value.getChangeSet(),
+                        new String((String) value.getValue()), value.getDomainValues()));
+                result.add(copy);
+            }
+            return result;
+        }
+
+        @Override
+        public Collection<KeyValues> reload(Collection<KeyValues> keyValues, DomainSpecificValueFactory domainSpecificValueFactory) {
+            return loadAll(domainSpecificValueFactory);
+        }
+
+        @Override
+        public void store(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+        }
+
+        @Override
+        public void remove(String key) {
+        }
+
+        @Override
+        public void remove(String key, DomainSpecificValue domainSpecificValue) {
+        }
+    }
+}
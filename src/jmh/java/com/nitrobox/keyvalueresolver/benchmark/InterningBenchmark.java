@@ -0,0 +1,93 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DefaultDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactoryWithStringInterning;
+import com.nitrobox.keyvalueresolver.InterningDomainSpecificValueFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating DomainSpecificValues from freshly read Strings, as done when loading from a persistence, with the different factories.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class InterningBenchmark {
+
+    private static final int VALUES = 4096;
+
+    @Param({"default", "stringIntern", "interner"})
+    private String factoryType;
+
+    @Param({"100", "10000"})
+    private int distinctValues;
+
+    private DomainSpecificValueFactory factory;
+    private char[][] values;
+
+    @Setup
+    public void setup() {
+        switch (factoryType) {
+            case "default":
+                factory = new DefaultDomainSpecificValueFactory();
+                break;
+            case "stringIntern":
+                factory = new DomainSpecificValueFactoryWithStringInterning();
+                break;
+            default:
+                factory = new InterningDomainSpecificValueFactory();
+        }
+        final Random random = new Random(DataSet.SEED);
+        values = new char[VALUES][];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = ("translated value " + random.nextInt(distinctValues)).toCharArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+    }
+
+    @Benchmark
+    public DomainSpecificValue create(Cursor cursor) {
+        final int index = cursor.next++ & (VALUES - 1);
+        return factory.create(new String(values[index]), null, "DE", "Berlin");
+    }
+}
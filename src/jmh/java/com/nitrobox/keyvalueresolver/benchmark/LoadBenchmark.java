@@ -0,0 +1,123 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DefaultDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.Persistence;
+import com.nitrobox.keyvalueresolver.PersistenceBatch;
+import com.nitrobox.keyvalueresolver.persistence.JdbcPersistence;
+import com.nitrobox.keyvalueresolver.persistence.LogStructuredPersistence;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Persistence.loadAll, as done when a KeyValueResolver is created, for the log structured persistence and for the JDBC persistence on an
+ * in memory H2 database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"log", "jdbc"})
+    private String persistenceType;
+
+    @Param({"10000"})
+    private int keyCount;
+
+    @Param({"4"})
+    private int domainCount;
+
+    @Param({"4"})
+    private int overridesPerKey;
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private Persistence persistence;
+    private Path directory;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("log".equals(persistenceType)) {
+            directory = Files.createTempDirectory("kvr-benchmark");
+            persistence = new LogStructuredPersistence(directory);
+        } else {
+            final JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            final JdbcPersistence jdbcPersistence = new JdbcPersistence(dataSource);
+            jdbcPersistence.createSchema();
+            persistence = jdbcPersistence;
+        }
+        final DataSet dataSet = new DataSet(keyCount, domainCount, overridesPerKey, 0.25, 8);
+        final PersistenceBatch batch = new PersistenceBatch();
+        for (KeyValues keyValues : dataSet.createKeyValues(factory)) {
+            for (DomainSpecificValue domainSpecificValue : keyValues.getDomainSpecificValues()) {
+                batch.store(keyValues.getKey(), keyValues, domainSpecificValue);
+            }
+        }
+        persistence.apply(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (persistence instanceof LogStructuredPersistence) {
+            ((LogStructuredPersistence) persistence).close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(LoadBenchmark::delete);
+            }
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public Collection<KeyValues> loadAll() {
+        return persistence.loadAll(factory);
+    }
+}
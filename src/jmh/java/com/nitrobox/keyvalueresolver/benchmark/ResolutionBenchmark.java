@@ -0,0 +1,133 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.DomainResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read paths of KeyValueResolver. Queries cycle through a fixed set of keys and resolvers, created from the seeded {@link DataSet}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolutionBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"1000"})
+    private int keyCount;
+
+    @Param({"2", "4", "8", "32", "64"})
+    private int domainCount;
+
+    @Param({"1", "16"})
+    private int overridesPerKey;
+
+    @Param({"0.0", "0.25"})
+    private double wildcardRatio;
+
+    @Param({"0", "8"})
+    private int changeSetCount;
+
+    private KeyValueResolver keyValueResolver;
+    private String[] keys;
+    private DomainResolver[] resolvers;
+    private String[][] domainValues;
+
+    @Setup
+    public void setup() {
+        final DataSet dataSet = new DataSet(keyCount, domainCount, overridesPerKey, wildcardRatio, changeSetCount);
+        keyValueResolver = new KeyValueResolverImpl(dataSet.getDomains());
+        dataSet.fill(keyValueResolver);
+        keys = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            keys[i] = dataSet.randomKey();
+        }
+        resolvers = dataSet.createResolvers(QUERIES);
+        domainValues = new String[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            domainValues[i] = new String[dataSet.getDomains().length];
+            for (int j = 0; j < domainValues[i].length; j++) {
+                domainValues[i][j] = resolvers[i].getDomainValue(dataSet.getDomains()[j]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        private int next() {
+            return next++ & (QUERIES - 1);
+        }
+    }
+
+    @Benchmark
+    public Object getOrDefault(Cursor cursor) {
+        final int index = cursor.next();
+        return keyValueResolver.getOrDefault(keys[index], "default", resolvers[index]);
+    }
+
+    @Benchmark
+    public Object getOrDefaultWithDomainValues(Cursor cursor) {
+        final int index = cursor.next();
+        return keyValueResolver.getOrDefault(keys[index], "default", domainValues[index]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<String, Object> getAllMappings(Cursor cursor) {
+        return keyValueResolver.getAllMappings(resolvers[cursor.next()]);
+    }
+
+    /**
+     * Resolves the keys starting with "key.12", 11 of 1000 keys, compare with {@link #getAllMappings(Cursor)}.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<String, Object> getMappingsWithPrefix(Cursor cursor) {
+        return keyValueResolver.getMappingsWithPrefix("key.12", resolvers[cursor.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Collection<KeyValues> getAllKeyValues(Cursor cursor) {
+        return keyValueResolver.getAllKeyValues(resolvers[cursor.next()]);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.benchmark;
+
+import com.nitrobox.keyvalueresolver.BulkImport;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write paths of KeyValueResolver without persistence. The removing benchmarks restore the removed values before every invocation. This
+ * is only acceptable, because removeChangeSet visits all keys and removeAllMatching all values of a key, so the removal itself is not too
+ * short to be measured per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBenchmark {
+
+    @Param({"1000"})
+    private int keyCount;
+
+    @Param({"4"})
+    private int domainCount;
+
+    @Param({"1", "16"})
+    private int overridesPerKey;
+
+    @Param({"0.25"})
+    private double wildcardRatio;
+
+    @Param({"8"})
+    private int changeSetCount;
+
+    private KeyValueResolver keyValueResolver;
+    private List<DataSet.Entry> entries;
+    private List<DataSet.Entry> keyEntries;
+    private List<DataSet.Entry> changeSetEntries;
+    private String removedKey;
+    private String removedChangeSet;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final DataSet dataSet = new DataSet(keyCount, domainCount, overridesPerKey, wildcardRatio, changeSetCount);
+        keyValueResolver = new KeyValueResolverImpl(dataSet.getDomains());
+        dataSet.fill(keyValueResolver);
+        entries = dataSet.getEntries();
+        removedKey = dataSet.randomKey();
+        keyEntries = entries.stream().filter(entry -> entry.getKey().equals(removedKey)).collect(Collectors.toList());
+        removedChangeSet = dataSet.changeSet(0);
+        changeSetEntries = entries.stream().filter(entry -> removedChangeSet.equals(entry.getChangeSet())).collect(Collectors.toList());
+    }
+
+    private void restore(List<DataSet.Entry> removed) {
+        for (DataSet.Entry entry : removed) {
+            keyValueResolver.setWithChangeSet(entry.getKey(), entry.getValue(), "benchmark", entry.getChangeSet(), entry.getDomainValues());
+        }
+    }
+
+    /**
+     * Restores the values removed by the previous invocation.
+     */
+    @State(Scope.Thread)
+    public static class Removed {
+
+        @Setup(Level.Invocation)
+        public void restore(WriteBenchmark benchmark) {
+            benchmark.restore(benchmark.keyEntries);
+            benchmark.restore(benchmark.changeSetEntries);
+        }
+    }
+
+    @Benchmark
+    public DomainSpecificValue set() {
+        final DataSet.Entry entry = entries.get(next++ % entries.size());
+        return keyValueResolver.setWithChangeSet(entry.getKey(), entry.getValue(), "benchmark", entry.getChangeSet(),
+                entry.getDomainValues());
+    }
+
+    /**
+     * Imports all entries at once, compare with keyCount * overridesPerKey calls of {@link #set()}.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int importValues() {
+        final BulkImport bulkImport = new BulkImport();
+        for (DataSet.Entry entry : entries) {
+            bulkImport.add(entry.getKey(), entry.getValue(), "benchmark", entry.getChangeSet(), entry.getDomainValues());
+        }
+        return keyValueResolver.importValues(bulkImport);
+    }
+
+    @Benchmark
+    public void removeAllMatching(Removed removed) {
+        keyValueResolver.removeAllMatching(removedKey);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void removeChangeSet(Removed removed) {
+        keyValueResolver.removeChangeSet(removedChangeSet);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A DomainResolver with the domain values given by position of the domains. Values are resolved by index without hashing domain names,
+ * when used with the domains it was created for.
+ *
+ * @see KeyValueResolver#resolverFor(String...)
+ */
+public class ArrayBackedDomainResolver implements DomainResolver {
+
+    private final String[] domainNames;
+    private final String[] domainValues;
+    /**
+     * The domain values as matched: one for every domain and empty for missing values. Null, if a value contains the separator, so the
+     * name based resolution reports it.
+     */
+    private final String[] resolvedValues;
+    private final Collection<String> activeChangeSets = new HashSet<>();
+    private final Collection<String> activeChangeSetsView = Collections.unmodifiableCollection(activeChangeSets);
+
+    /**
+     * @param domains      the domains, when they change later, values are resolved by name
+     * @param domainValues the values by position of the domains, additional values are ignored
+     */
+    public ArrayBackedDomainResolver(List<String> domains, String... domainValues) {
+        Objects.requireNonNull(domains, "\"domains\" must not be null");
+        Objects.requireNonNull(domainValues, "\"domainValues\" must not be null");
+        this.domainNames = domains.toArray(new String[0]);
+        this.domainValues = Arrays.copyOf(domainValues, Math.min(domainNames.length, domainValues.length));
+        this.resolvedValues = resolve(this.domainValues, domainNames.length);
+    }
+
+    private static String[] resolve(String[] domainValues, int domainCount) {
+        final String[] resolved = new String[domainCount];
+        Arrays.fill(resolved, "");
+        for (int i = 0; i < domainValues.length; i++) {
+            if (domainValues[i] != null) {
+                if (domainValues[i].indexOf('|') >= 0) {
+                    return null;
+                }
+                resolved[i] = domainValues[i];
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    public String getDomainValue(final String domain) {
+        for (int i = 0; i < domainValues.length; i++) {
+            if (domainNames[i].equals(domain)) {
+                return domainValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the domain value at the position or null
+     */
+    public String getDomainValue(final int position) {
+        return position < domainValues.length ? domainValues[position] : null;
+    }
+
+    /**
+     * Positional protocol used by KeyValues to skip the resolution by name. The returned array must not be changed.
+     *
+     * @return the domain values for matching, with an empty String for missing values, or null, if this resolver was not created for the
+     * given domains
+     */
+    /*package*/ String[] resolvedValuesFor(Iterable<String> domains) {
+        if (resolvedValues == null || !(domains instanceof List)) {
+            return null;
+        }
+        final List<String> domainList = (List<String>) domains;
+        if (domainList.size() != domainNames.length) {
+            return null;
+        }
+        for (int i = 0; i < domainNames.length; i++) {
+            if (!domainNames[i].equals(domainList.get(i))) {
+                return null;
+            }
+        }
+        return resolvedValues;
+    }
+
+    @Override
+    public Collection<String> getActiveChangeSets() {
+        return activeChangeSetsView;
+    }
+
+    public ArrayBackedDomainResolver addActiveChangeSets(final String... changeSets) {
+        activeChangeSets.addAll(Arrays.asList(changeSets));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(this.getClass().getName());
+        sb.append(" with {");
+        for (int i = 0; i < domainValues.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(domainNames[i]).append('=').append(domainValues[i]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(domainNames) + Arrays.hashCode(domainValues);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ArrayBackedDomainResolver other = (ArrayBackedDomainResolver) obj;
+        return Arrays.equals(domainNames, other.domainNames) && Arrays.equals(domainValues, other.domainValues);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * DomainValues given by position of the domains, so no domain names need to be looked up.
+ */
+public class ArrayBackedDomainValues implements DomainValues {
+
+    private final String[] domainValues;
+
+    /**
+     * @param domainValues the values by position of the domains, null for domains without a value
+     */
+    public ArrayBackedDomainValues(String... domainValues) {
+        Objects.requireNonNull(domainValues, "\"domainValues\" must not be null");
+        this.domainValues = domainValues.clone();
+    }
+
+    @Override
+    public String[] getDomainValues(List<String> domains) {
+        return Arrays.copyOf(domainValues, Math.min(domains.size(), domainValues.length));
+    }
+}
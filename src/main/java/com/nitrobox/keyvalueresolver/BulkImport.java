@@ -0,0 +1,201 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Collects many values to be imported at once with {@link KeyValueResolver#importValues(BulkImport)}. The values are grouped by key while
+ * they are added, so the import itself only merges them into the existing KeyValues, writes them to the persistence in batches of
+ * {@link #PERSISTENCE_BATCH_SIZE} and publishes all of them at once. A BulkImport is not thread safe.
+ */
+public final class BulkImport {
+
+    public static final int PERSISTENCE_BATCH_SIZE = 10_000;
+
+    private final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+    private int size;
+
+    public BulkImport add(String key, Object value, String description, String changeSet, String... domainValues) {
+        return add(new Entry(key, value, description, changeSet, domainValues));
+    }
+
+    public BulkImport add(Entry entry) {
+        Objects.requireNonNull(entry, "\"entry\" must not be null");
+        entries.computeIfAbsent(entry.key, key -> new ArrayList<>(1)).add(entry);
+        size++;
+        return this;
+    }
+
+    public BulkImport addAll(Iterator<Entry> iterator) {
+        Objects.requireNonNull(iterator, "\"iterator\" must not be null");
+        iterator.forEachRemaining(this::add);
+        return this;
+    }
+
+    /**
+     * Adds all properties as values for the given domain values, e.g. a translation bundle for a locale.
+     */
+    public BulkImport addProperties(Reader reader, String changeSet, String... domainValues) throws IOException {
+        Objects.requireNonNull(reader, "\"reader\" must not be null");
+        final Properties properties = new Properties();
+        properties.load(reader);
+        for (String key : properties.stringPropertyNames()) {
+            add(key, properties.getProperty(key), null, changeSet, domainValues.clone());
+        }
+        return this;
+    }
+
+    /**
+     * Adds one value per line. The columns are the key, the value and the domain values. Columns, that contain the separator, a quote or a
+     * line break, are enclosed in double quotes, quotes within them are doubled. Empty lines are skipped.
+     */
+    public BulkImport addCsv(Reader reader, char separator, String changeSet) throws IOException {
+        Objects.requireNonNull(reader, "\"reader\" must not be null");
+        final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<String> columns;
+        int lineNumber = 0;
+        while ((columns = readCsvLine(lines, separator)) != null) {
+            lineNumber++;
+            if (columns.size() == 1 && columns.get(0).isEmpty()) {
+                continue;
+            }
+            if (columns.size() < 2) {
+                throw new IllegalArgumentException("Line " + lineNumber + " must contain a key and a value, but was: " + columns);
+            }
+            add(columns.get(0), columns.get(1), null, changeSet, columns.subList(2, columns.size()).toArray(new String[0]));
+        }
+        return this;
+    }
+
+    private static List<String> readCsvLine(BufferedReader reader, char separator) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        final List<String> columns = new ArrayList<>();
+        final StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IllegalArgumentException("Unterminated quote in column: " + column);
+                }
+                column.append('\n');
+                i = 0;
+                continue;
+            }
+            final char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    column.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    column.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    /**
+     * @return number of values added
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*package*/ Map<String, List<Entry>> getEntriesByKey() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * A single value to import.
+     */
+    public static final class Entry {
+
+        private final String key;
+        private final Object value;
+        private final String description;
+        private final String changeSet;
+        private final String[] domainValues;
+
+        /**
+         * @param description description for keys, that do not exist yet, may be null
+         * @param changeSet   changeSet of the value or null
+         */
+        public Entry(String key, Object value, String description, String changeSet, String... domainValues) {
+            Ensure.notEmpty(key, "key");
+            Objects.requireNonNull(domainValues, "\"domainValues\" must not be null");
+            this.key = key.trim();
+            this.value = value;
+            this.description = description;
+            this.changeSet = changeSet;
+            this.domainValues = domainValues;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getChangeSet() {
+            return changeSet;
+        }
+
+        /*package*/ String[] getDomainValues() {
+            return domainValues;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Objects;
+
+/**
+ * Notifies about a changed, added or removed DomainSpecificValue. When a whole key was removed or replaced, pattern and changeSet are
+ * null.
+ *
+ * @see ChangeListener
+ */
+public final class ChangeEvent {
+
+    private final String key;
+    private final String pattern;
+    private final String changeSet;
+
+    public ChangeEvent(String key, String pattern, String changeSet) {
+        this.key = Objects.requireNonNull(key, "\"key\" must not be null");
+        this.pattern = pattern;
+        this.changeSet = changeSet;
+    }
+
+    /*package*/ static ChangeEvent forKey(String key) {
+        return new ChangeEvent(key, null, null);
+    }
+
+    /*package*/ static ChangeEvent forValue(String key, DomainSpecificValue domainSpecificValue) {
+        return new ChangeEvent(key, domainSpecificValue.getPattern(), domainSpecificValue.getChangeSet());
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return pattern of the changed DomainSpecificValue or null, when the whole key changed
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getChangeSet() {
+        return changeSet;
+    }
+
+    public boolean isKeyChange() {
+        return pattern == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ChangeEvent that = (ChangeEvent) o;
+        return key.equals(that.key) && Objects.equals(pattern, that.pattern) && Objects.equals(changeSet, that.changeSet);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, pattern, changeSet);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "key=\"" + key + '"' +
+                (pattern != null ? ", pattern=\"" + pattern + '"' : "") +
+                (changeSet != null ? ", changeSet=\"" + changeSet + '"' : "") +
+                '}';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.List;
+
+/**
+ * Receives changes of a KeyValueResolver. Changes are collected during the coalescing window given when the listener is added and are
+ * then delivered as one batch, with duplicate events removed. Batches for one listener are delivered one after the other.
+ *
+ * @see KeyValueResolver#addChangeListener(ChangeListener, java.util.concurrent.Executor, java.time.Duration)
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+    void onChanges(List<ChangeEvent> events);
+}
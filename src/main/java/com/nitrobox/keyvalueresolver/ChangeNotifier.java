@@ -0,0 +1,259 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects ChangeEvents for the registered ChangeListeners and delivers them in batches. Publishing only adds the events to a pending set
+ * per listener, so writers are never blocked by listeners. Publishing happens under the write lock of the ValuesStore, so the executor
+ * given for a listener is never called by the publishing thread, not even for a coalescing window of zero. A shared daemon thread ends the
+ * coalescing windows and batches are handed to the executors by daemon dispatch threads, so an executor running the listener in the
+ * calling thread only delays its own listener. A new batch for a listener is only handed to its executor, after the previous batch was
+ * delivered, so a slow listener receives larger batches instead of blocking others.
+ */
+/*package*/ class ChangeNotifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeNotifier.class);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "KeyValueResolver ChangeNotifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Each registration uses at most one dispatch thread at a time, idle threads terminate.
+     */
+    private static final ExecutorService DISPATCHER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "KeyValueResolver ChangeNotifier dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    /*package*/ void addListener(ChangeListener listener, Executor executor, Duration coalescingWindow) {
+        Objects.requireNonNull(listener, "\"listener\" must not be null");
+        Objects.requireNonNull(executor, "\"executor\" must not be null");
+        Objects.requireNonNull(coalescingWindow, "\"coalescingWindow\" must not be null");
+        if (coalescingWindow.isNegative()) {
+            throw new IllegalArgumentException("\"coalescingWindow\" must not be negative, but was: " + coalescingWindow);
+        }
+        registrations.add(new Registration(listener, executor, coalescingWindow.toNanos()));
+    }
+
+    /*package*/ void removeListener(ChangeListener listener) {
+        registrations.removeIf(registration -> registration.listener == listener);
+    }
+
+    /**
+     * @return true, when there are listeners, so events need to be created
+     */
+    /*package*/ boolean isActive() {
+        return !registrations.isEmpty();
+    }
+
+    /*package*/ void publish(ChangeEvent event) {
+        for (Registration registration : registrations) {
+            registration.add(List.of(event));
+        }
+    }
+
+    /*package*/ void publish(Collection<ChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Registration registration : registrations) {
+            registration.add(events);
+        }
+    }
+
+    /*package*/ void publishValues(String key, Collection<DomainSpecificValue> domainSpecificValues) {
+        if (isActive()) {
+            List<ChangeEvent> events = new ArrayList<>(domainSpecificValues.size());
+            for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+                events.add(ChangeEvent.forValue(key, domainSpecificValue));
+            }
+            publish(events);
+        }
+    }
+
+    /**
+     * Captures the values of KeyValues to compare them after a reload. A snapshot is needed, since a reload might change the KeyValues
+     * instances themselves.
+     */
+    /*package*/ static Map<String, Map<ChangeEvent, Object>> snapshot(Collection<KeyValues> values) {
+        final Map<String, Map<ChangeEvent, Object>> result = new HashMap<>();
+        for (KeyValues keyValues : values) {
+            result.put(keyValues.getKey(), snapshot(keyValues));
+        }
+        return result;
+    }
+
+    /*package*/ static Map<ChangeEvent, Object> snapshot(KeyValues keyValues) {
+        if (keyValues == null) {
+            return null;
+        }
+        final Map<ChangeEvent, Object> result = new HashMap<>();
+        for (DomainSpecificValue domainSpecificValue : keyValues.getDomainSpecificValues()) {
+            result.put(ChangeEvent.forValue(keyValues.getKey(), domainSpecificValue), domainSpecificValue.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Computes the events between two snapshots. Keys that appeared or disappeared result in a key event, changed keys in an event per
+     * changed value.
+     */
+    /*package*/ static List<ChangeEvent> diff(Map<String, Map<ChangeEvent, Object>> before, Map<String, Map<ChangeEvent, Object>> after) {
+        final List<ChangeEvent> events = new ArrayList<>();
+        for (Map.Entry<String, Map<ChangeEvent, Object>> entry : after.entrySet()) {
+            diff(entry.getKey(), before.get(entry.getKey()), entry.getValue(), events);
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                events.add(ChangeEvent.forKey(key));
+            }
+        }
+        return events;
+    }
+
+    /*package*/ static void diff(String key, Map<ChangeEvent, Object> before, Map<ChangeEvent, Object> after, List<ChangeEvent> events) {
+        if (before == null || after == null) {
+            if (before != after) {
+                events.add(ChangeEvent.forKey(key));
+            }
+            return;
+        }
+        for (Map.Entry<ChangeEvent, Object> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey()) || !Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                events.add(entry.getKey());
+            }
+        }
+        for (ChangeEvent event : before.keySet()) {
+            if (!after.containsKey(event)) {
+                events.add(event);
+            }
+        }
+    }
+
+    private static final class Registration {
+
+        private final ChangeListener listener;
+        private final Executor executor;
+        private final long windowNanos;
+        private Set<ChangeEvent> pending = new LinkedHashSet<>();
+        private boolean scheduled;
+
+        private Registration(ChangeListener listener, Executor executor, long windowNanos) {
+            this.listener = listener;
+            this.executor = executor;
+            this.windowNanos = windowNanos;
+        }
+
+        private void add(Collection<ChangeEvent> events) {
+            synchronized (this) {
+                pending.addAll(events);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                SCHEDULER.schedule(this::dispatch, windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Could not schedule change delivery for {}", listener, e);
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+        }
+
+        /**
+         * Ends the coalescing window on the scheduler thread, which must not call the executor of the listener.
+         */
+        private void dispatch() {
+            try {
+                DISPATCHER.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Could not dispatch change delivery for {}", listener, e);
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+        }
+
+        private void flush() {
+            final Set<ChangeEvent> events;
+            synchronized (this) {
+                events = pending;
+                pending = new LinkedHashSet<>();
+            }
+            try {
+                executor.execute(() -> deliver(events));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Dropping {} change events, since the executor for {} rejected them", events.size(), listener, e);
+                afterDelivery();
+            }
+        }
+
+        private void deliver(Set<ChangeEvent> events) {
+            try {
+                listener.onChanges(List.copyOf(events));
+            } catch (RuntimeException e) {
+                LOGGER.warn("ChangeListener {} failed", listener, e);
+            } finally {
+                afterDelivery();
+            }
+        }
+
+        /**
+         * Events published during the delivery are delivered in the next window.
+         */
+        private void afterDelivery() {
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+/**
+ * Converts a stored value into the type needed by the caller. The converted value is cached in the DomainSpecificValue until its value
+ * changes, so converters must be thread safe and return immutable (or at least thread safe) results. Use the same converter instance for
+ * all calls, since the cache is keyed by converter identity.
+ *
+ * @see Converters
+ */
+@FunctionalInterface
+public interface Converter<T> {
+
+    T convert(Object value);
+}
@@ -0,0 +1,78 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.time.Duration;
+
+/**
+ * Converters for the typed accessors of KeyValueResolver. Values already having the target type are returned as they are, Strings are
+ * parsed. Values that cannot be converted result in an IllegalArgumentException.
+ */
+public final class Converters {
+
+    public static final Converter<Integer> INTEGER = value -> {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof Number) {
+            return Math.toIntExact(((Number) value).longValue());
+        }
+        return Integer.valueOf(asString(value, "int"));
+    };
+
+    public static final Converter<Long> LONG = value -> {
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.valueOf(asString(value, "long"));
+    };
+
+    public static final Converter<Boolean> BOOLEAN = value -> {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        final String string = asString(value, "boolean");
+        if ("true".equalsIgnoreCase(string)) {
+            return Boolean.TRUE;
+        } else if ("false".equalsIgnoreCase(string)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Cannot convert \"" + string + "\" to boolean");
+    };
+
+    /**
+     * Converts ISO-8601 duration Strings like "PT30S", see {@link Duration#parse(CharSequence)}.
+     */
+    public static final Converter<Duration> DURATION = value -> {
+        if (value instanceof Duration) {
+            return (Duration) value;
+        }
+        return Duration.parse(asString(value, "Duration"));
+    };
+
+    private Converters() {
+    }
+
+    private static String asString(Object value, String type) {
+        if (value instanceof String) {
+            return ((String) value).trim();
+        }
+        throw new IllegalArgumentException("Cannot convert value of " + value.getClass().getName() + " to " + type);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The immutable part of a DomainSpecificValue: the pattern, its ordering and the pattern encoded by the DomainValueDictionary. The same patterns repeat across
+ * many keys, so DomainPatterns are canonicalized and shared by all DomainSpecificValues with the same pattern. The canonicalization table
+ * only holds weak references, so patterns that are no longer used by any DomainSpecificValue are removed again. Their domain values are
+ * released from the DomainValueDictionary at the same time.
+ */
+/*package*/ final class DomainPattern {
+
+    private static final ConcurrentMap<String, PatternReference> CANONICAL = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<DomainPattern> QUEUE = new ReferenceQueue<>();
+    /**
+     * The references of all patterns encoded by the DomainValueDictionary, so they are enqueued, when the pattern is collected, even if
+     * the pattern is not canonical.
+     */
+    private static final Set<PatternReference> ENCODED = ConcurrentHashMap.newKeySet();
+
+    /*package*/ final String pattern;
+    /**
+     * The ordering of patterns with up to 30 domains. For wider patterns a hash of {@link #wideOrdering}, that is not used for ordering.
+     */
+    /*package*/ final int ordering;
+    /**
+     * The ordering of patterns with a specified domain value after the 30th domain, as bits in words of 64 bits with the least
+     * significant word first. Null for all other patterns, which are ordered by {@link #ordering}.
+     */
+    private final long[] wideOrdering;
+    /**
+     * Id of the domain value for every position of the pattern, null for patterns with wildcards within domain values.
+     */
+    private final int[] valueIds;
+    /**
+     * Only used for patterns that can not be matched by valueIds.
+     */
+    private final Matcher matcher;
+    private final PatternReference reference;
+
+    private DomainPattern(String pattern, long[] ordering) {
+        this.pattern = pattern;
+        if (isNarrow(ordering)) {
+            this.ordering = (int) ordering[0];
+            this.wideOrdering = null;
+        } else {
+            this.ordering = Arrays.hashCode(ordering);
+            this.wideOrdering = ordering;
+        }
+        this.valueIds = DomainValueDictionary.encodePattern(pattern);
+        this.matcher = valueIds == null ? createMatcher(pattern) : null;
+        this.reference = new PatternReference(this);
+        if (valueIds != null) {
+            ENCODED.add(reference);
+        }
+    }
+
+    /**
+     * @param domain the domain values to match, patterns that can not be matched by id use its domain String
+     */
+    /*package*/ boolean matches(EncodedDomain domain) {
+        return valueIds == null ? matcher.matches(domain.domainStr()) : matches(domain.ids);
+    }
+
+    /*package*/ boolean matches(String domainStr) {
+        return valueIds == null ? matcher.matches(domainStr) : matches(DomainValueDictionary.encodeDomain(domainStr));
+    }
+
+    private boolean matches(int[] domainValueIds) {
+        if (valueIds.length > domainValueIds.length) {
+            return false;
+        }
+        for (int i = 0; i < valueIds.length; i++) {
+            if (valueIds[i] != DomainValueDictionary.WILDCARD && valueIds[i] != domainValueIds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the shared DomainPattern for the pattern. Patterns are canonicalized by their String. In the unlikely case, that the same
+     * pattern was created with a different ordering (domain values ending in empty Strings), an unshared DomainPattern is returned.
+     */
+    /*package*/ static DomainPattern of(String pattern, int ordering) {
+        return of(pattern, new long[]{ordering});
+    }
+
+    /**
+     * @param ordering the ordering as returned by {@link #ordering(String[])}
+     */
+    /*package*/ static DomainPattern of(String pattern, long[] ordering) {
+        expungeStaleEntries();
+        PatternReference reference = CANONICAL.get(pattern);
+        DomainPattern domainPattern = reference == null ? null : reference.get();
+        if (domainPattern == null) {
+            final DomainPattern created = new DomainPattern(pattern, ordering);
+            final PatternReference newReference = created.reference;
+            domainPattern = created;
+            reference = CANONICAL.compute(pattern, (key, existing) -> {
+                final DomainPattern existingPattern = existing == null ? null : existing.get();
+                return existingPattern == null ? newReference : existing;
+            });
+            if (reference != newReference) {
+                final DomainPattern existingPattern = reference.get();
+                if (existingPattern != null) {
+                    domainPattern = existingPattern;
+                }
+            }
+        }
+        return domainPattern.hasOrdering(ordering) ? domainPattern : new DomainPattern(pattern, ordering);
+    }
+
+    /**
+     * Computes the ordering of a pattern: bit 0 is always set, bit i is set, when the domain value at position i (starting with 1) is not
+     * the wildcard. So values specified for later domains take precedence. The result has no leading zero words.
+     */
+    /*package*/ static long[] ordering(String[] domainValues) {
+        int highest = 0;
+        for (int i = domainValues.length; i > 0; i--) {
+            if (!"*".equals(domainValues[i - 1])) {
+                highest = i;
+                break;
+            }
+        }
+        final long[] ordering = new long[(highest >>> 6) + 1];
+        ordering[0] = 1;
+        for (int i = 1; i <= highest; i++) {
+            if (!"*".equals(domainValues[i - 1])) {
+                ordering[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+        return ordering;
+    }
+
+    private static boolean isNarrow(long[] ordering) {
+        return ordering.length == 1 && (ordering[0] >>> 31) == 0;
+    }
+
+    private boolean hasOrdering(long[] ordering) {
+        return wideOrdering == null ? isNarrow(ordering) && this.ordering == ordering[0] : Arrays.equals(wideOrdering, ordering);
+    }
+
+    /**
+     * @return a positive number, when this pattern takes precedence over the other pattern, a negative number, when the other pattern takes
+     * precedence, 0 for the same ordering
+     */
+    /*package*/ int compareOrdering(DomainPattern other) {
+        if (wideOrdering == null) {
+            return other.wideOrdering == null ? Integer.compare(ordering, other.ordering) : -1;
+        }
+        if (other.wideOrdering == null) {
+            return 1;
+        }
+        if (wideOrdering.length != other.wideOrdering.length) {
+            return Integer.compare(wideOrdering.length, other.wideOrdering.length);
+        }
+        for (int i = wideOrdering.length - 1; i >= 0; i--) {
+            if (wideOrdering[i] != other.wideOrdering[i]) {
+                return Long.compareUnsigned(wideOrdering[i], other.wideOrdering[i]);
+            }
+        }
+        return 0;
+    }
+
+    /*package*/ boolean sameOrdering(DomainPattern other) {
+        return ordering == other.ordering && Arrays.equals(wideOrdering, other.wideOrdering);
+    }
+
+    /*package*/ String orderingString() {
+        if (wideOrdering == null) {
+            return Integer.toString(ordering);
+        }
+        final byte[] bytes = new byte[wideOrdering.length * Long.BYTES + 1];
+        for (int i = 0; i < wideOrdering.length; i++) {
+            final long word = wideOrdering[wideOrdering.length - 1 - i];
+            for (int j = 0; j < Long.BYTES; j++) {
+                bytes[1 + i * Long.BYTES + j] = (byte) (word >>> (56 - 8 * j));
+            }
+        }
+        return new BigInteger(bytes).toString();
+    }
+
+    /*package*/ static int canonicalCount() {
+        expungeStaleEntries();
+        return CANONICAL.size();
+    }
+
+    private static void expungeStaleEntries() {
+        PatternReference reference;
+        while ((reference = (PatternReference) QUEUE.poll()) != null) {
+            CANONICAL.remove(reference.pattern, reference);
+            if (ENCODED.remove(reference)) {
+                DomainValueDictionary.releasePattern(reference.pattern);
+            }
+        }
+    }
+
+    private static Matcher createMatcher(String pattern) {
+        if (pattern.contains("*")) {
+            return new RegexMatcher(pattern.replaceAll("\\|", "\\\\|").replaceAll("\\*", "[^|]*") + ".*");
+        } else {
+            return new StringPrefixMatcher(pattern);
+        }
+    }
+
+    private static final class PatternReference extends WeakReference<DomainPattern> {
+
+        private final String pattern;
+
+        private PatternReference(DomainPattern domainPattern) {
+            super(domainPattern, QUEUE);
+            this.pattern = domainPattern.pattern;
+        }
+    }
+}
@@ -35,11 +35,10 @@ import java.util.Objects;
  */
 public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
-    private final String pattern;
-    private final int ordering;
+    private final DomainPattern domainPattern;
     private Object value;
-    private final Matcher matcher;
     private final String changeSet;
+    private volatile ConvertedValue convertedValue;
 
     public static DomainSpecificValue withChangeSet(Object value, String changeSet, String... domainValues) {
         return new DomainSpecificValue(value, changeSet, domainValues);
@@ -51,51 +50,37 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
     public static DomainSpecificValue withPattern(Object value, String changeSet, String pattern) {
         if (pattern == null || pattern.trim().length() == 0) {
-            return new DomainSpecificValue(value, changeSet, "", 1);
+            return new DomainSpecificValue(value, changeSet, "", new long[]{1});
         }
         if (!pattern.endsWith("|")) {
             throw new IllegalArgumentException("Pattern must end with a pipe character: '|'");
         }
 
         final String[] domainValues = pattern.split("\\|");
-        int order = getOrder(domainValues);
-        return new DomainSpecificValue(value, changeSet, pattern, order);
+        return new DomainSpecificValue(value, changeSet, pattern, DomainPattern.ordering(domainValues));
     }
 
-    private static int getOrder(String[] domainValues) {
-        int order = 1;
-        int i = 0;
-        for (String domainValue : domainValues) {
-            i++;
-            if (!"*".equals(domainValue)) {
-                order = order | (int) Math.pow(2, i);
-            }
-        }
-        return order;
+    /**
+     * Creates a DomainSpecificValue with an already known DomainPattern, e.g. when decoding stored values.
+     */
+    /*package*/ static DomainSpecificValue withDomainPattern(DomainPattern domainPattern, Object value, String changeSet) {
+        return new DomainSpecificValue(domainPattern, value, changeSet);
     }
 
-    private DomainSpecificValue(Object value, String changeSet, String pattern, int ordering) {
-        this.ordering = ordering;
-        this.pattern = pattern;
+    private DomainSpecificValue(Object value, String changeSet, String pattern, long[] ordering) {
+        this.domainPattern = DomainPattern.of(pattern, ordering);
         this.value = value;
         this.changeSet = changeSet;
-        this.matcher = createMatcher(pattern);
     }
 
-    private DomainSpecificValue(Object value, String changeSet, String[] domainValues) {
-        this.ordering = getOrder(domainValues);
-        this.pattern = domainValues.length == 0 ? "" : String.join("|", domainValues) + "|";
+    private DomainSpecificValue(DomainPattern domainPattern, Object value, String changeSet) {
+        this.domainPattern = domainPattern;
         this.value = value;
         this.changeSet = changeSet;
-        this.matcher = createMatcher(pattern);
     }
 
-    private Matcher createMatcher(String pattern) {
-        if (pattern.contains("*")) {
-            return new RegexMatcher(pattern.replaceAll("\\|", "\\\\|").replaceAll("\\*", "[^|]*") + ".*");
-        } else {
-            return new StringPrefixMatcher(pattern);
-        }
+    private DomainSpecificValue(Object value, String changeSet, String[] domainValues) {
+        this(value, changeSet, domainValues.length == 0 ? "" : String.join("|", domainValues) + "|", DomainPattern.ordering(domainValues));
     }
 
     /**
@@ -107,14 +92,15 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
      */
     @Override
     public int compareTo(final DomainSpecificValue other) {
-        int order = other.ordering - this.ordering;
+        int order = other.domainPattern.compareOrdering(this.domainPattern);
         if (order == 0) {
+            final String pattern = domainPattern.pattern;
             if (changeSet != null && other.changeSet != null) {
                 int changeSetCompare = changeSet.compareTo(other.changeSet);
                 if (changeSetCompare != 0) {
                     return changeSetCompare;
                 } else {
-                    return pattern.compareTo(other.pattern);
+                    return pattern.compareTo(other.domainPattern.pattern);
                 }
             }
             if (changeSet != null) { // other.changeSet is null here
@@ -123,7 +109,7 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
             if (other.changeSet != null) { // changeSet is null here
                 return 1;
             }
-            return pattern.compareTo(other.pattern);
+            return pattern.compareTo(other.domainPattern.pattern);
         }
         return order;
     }
@@ -137,10 +123,12 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
         DomainSpecificValue that = (DomainSpecificValue) o;
 
-        if (ordering != that.ordering)
-            return false;
-        if (!pattern.equals(that.pattern))
-            return false;
+        if (domainPattern != that.domainPattern) { // shared DomainPatterns are equal
+            if (!domainPattern.sameOrdering(that.domainPattern))
+                return false;
+            if (!domainPattern.pattern.equals(that.domainPattern.pattern))
+                return false;
+        }
         if (!value.equals(that.value))
             return false;
         return Objects.equals(changeSet, that.changeSet);
@@ -148,8 +136,8 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
     @Override
     public int hashCode() {
-        int result = pattern.hashCode();
-        result = 31 * result + ordering;
+        int result = domainPattern.pattern.hashCode();
+        result = 31 * result + domainPattern.ordering;
         result = 31 * result + value.hashCode();
         result = 31 * result + (changeSet != null ? changeSet.hashCode() : 0);
         return result;
@@ -158,29 +146,68 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
     @Override
     public String toString() {
         return "DomainSpecificValue{" +
-                "pattern=\"" + pattern +
-                "\", ordering=" + ordering +
+                "pattern=\"" + domainPattern.pattern +
+                "\", ordering=" + domainPattern.orderingString() +
                 (changeSet != null ? ", changeSet=\"" + changeSet + '"' : "") +
                 ", value=\"" + value + "\"}";
     }
 
     public String getPattern() {
-        return pattern;
+        return domainPattern.pattern;
+    }
+
+    /*package*/ DomainPattern getDomainPattern() {
+        return domainPattern;
     }
 
     public Object getValue() {
         return value;
     }
 
+    /**
+     * Creates an independent copy, so that the value can be changed without changing this DomainSpecificValue.
+     */
+    /*package*/ DomainSpecificValue copy() {
+        return new DomainSpecificValue(domainPattern, value, changeSet);
+    }
+
     public void setValue(final Object value) {
         this.value = value;
+        this.convertedValue = null;
+    }
+
+    /**
+     * Returns the value converted by the converter. The converted value is cached until the value is changed, so each value is only
+     * converted once for the most recently used converter.
+     */
+    public <T> T getValue(Converter<T> converter) {
+        final Object currentValue = value;
+        if (currentValue == null) {
+            return null;
+        }
+        final ConvertedValue cached = convertedValue;
+        if (cached != null && cached.converter == converter && cached.source == currentValue) {
+            // the cached value was created by the same converter
+            @SuppressWarnings("unchecked") final T cachedValue = (T) cached.value;
+            return cachedValue;
+        }
+        final T converted = converter.convert(currentValue);
+        convertedValue = new ConvertedValue(converter, currentValue, converted);
+        return converted;
     }
 
     /**
      * This method is used to determine, whether this DomainSpecificValue matches the provided domain string
      */
     public boolean patternMatches(final String domainStr) {
-        return matcher.matches(domainStr);
+        return domainPattern.matches(domainStr);
+    }
+
+    /**
+     * Like {@link #patternMatches(String)} for the domain values encoded by the DomainValueDictionary.
+     */
+    /*package*/ boolean patternMatches(final EncodedDomain domain) {
+        return domainPattern.matches(domain);
     }
 
     public boolean isInChangeSets(final Collection<String> activeChangeSets) {
@@ -207,17 +234,33 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
      * This method is used for finding all DomainSpecificValues, that are either default or are in a specific (partial) domain.
      */
     public boolean patternMatches(Matcher matcher, DomainResolver resolver) {
-        return isInChangeSets(resolver.getActiveChangeSets()) && matcher.matches(pattern);
+        return isInChangeSets(resolver.getActiveChangeSets()) && matcher.matches(domainPattern.pattern);
     }
 
     public boolean isDefault() {
-        return pattern.length() == 0;
+        return domainPattern.pattern.length() == 0;
     }
 
     public String[] getDomainValues() {
         if (isDefault()) {
             return new String[0];
         }
-        return pattern.split("\\|");
+        return domainPattern.pattern.split("\\|");
+    }
+
+    /**
+     * Remembers the source value, so a conversion of a value, that was replaced concurrently, is never returned.
+     */
+    private static final class ConvertedValue {
+
+        private final Converter<?> converter;
+        private final Object source;
+        private final Object value;
+
+        private ConvertedValue(Converter<?> converter, Object source, Object value) {
+            this.converter = converter;
+            this.source = source;
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns dense int ids to the domain values used in patterns, separately for each position of a pattern, so patterns are stored and
+ * matched as int arrays instead of Strings. The wildcard "*" always has the id {@link #WILDCARD}. Every encoded pattern holds a reference to
+ * its domain values until it is released, values that are no longer used by any pattern are removed again. Ids are not reused, so a
+ * removed value gets a new id, when it is used again.
+ * <p>
+ * Adding and releasing values is thread safe, lookups are lock free. Lookups never add values, a domain value that no pattern uses gets
+ * the id {@link #UNKNOWN}, which only matches wildcards.
+ */
+/*package*/ final class DomainValueDictionary {
+
+    /*package*/ static final int WILDCARD = 0;
+    /*package*/ static final int UNKNOWN = -1;
+    private static final String WILDCARD_VALUE = "*";
+    private static final char SEPARATOR = '|';
+
+    private static volatile Position[] positions = new Position[0];
+
+    private DomainValueDictionary() {
+    }
+
+    /**
+     * Adds a reference to the domain value at the position, that must be released with {@link #release(int, String)}.
+     *
+     * @return the id of the domain value at the position, a new id, if the value was not known yet
+     */
+    /*package*/ static int idOf(int position, String domainValue) {
+        if (WILDCARD_VALUE.equals(domainValue)) {
+            return WILDCARD;
+        }
+        final Position dictionary = position(position);
+        return dictionary.ids.compute(domainValue,
+                (value, entry) -> entry == null ? new Entry(dictionary.nextId.getAndIncrement()) : entry.retain()).id;
+    }
+
+    /**
+     * Releases a reference added by {@link #idOf(int, String)}. The value is removed, when it has no references left.
+     */
+    /*package*/ static void release(int position, String domainValue) {
+        final Position[] current = positions;
+        if (WILDCARD_VALUE.equals(domainValue) || position >= current.length) {
+            return;
+        }
+        current[position].ids.computeIfPresent(domainValue, (value, entry) -> entry.release());
+    }
+
+    /**
+     * @return the id of the domain value at the position or {@link #UNKNOWN}, if no pattern uses the value at this position
+     */
+    /*package*/ static int lookup(int position, String domainValue) {
+        if (WILDCARD_VALUE.equals(domainValue)) {
+            return WILDCARD;
+        }
+        final Position[] current = positions;
+        if (position >= current.length) {
+            return UNKNOWN;
+        }
+        final Entry entry = current[position].ids.get(domainValue);
+        return entry == null ? UNKNOWN : entry.id;
+    }
+
+    /**
+     * Encodes a pattern like "DE|*|shop|" with an id per domain value. The domain values are referenced until the pattern is released with
+     * {@link #releasePattern(String)}.
+     *
+     * @return the ids or null, if the pattern uses wildcards within domain values like "DE*", that can not be matched by id
+     */
+    /*package*/ static int[] encodePattern(String pattern) {
+        final String[] domainValues = split(pattern);
+        for (String domainValue : domainValues) {
+            if (domainValue.indexOf('*') >= 0 && !WILDCARD_VALUE.equals(domainValue)) {
+                return null;
+            }
+        }
+        final int[] ids = new int[domainValues.length];
+        for (int i = 0; i < domainValues.length; i++) {
+            ids[i] = idOf(i, domainValues[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Releases the domain values of a pattern, that was encoded with {@link #encodePattern(String)}.
+     */
+    /*package*/ static void releasePattern(String pattern) {
+        final String[] domainValues = split(pattern);
+        for (int i = 0; i < domainValues.length; i++) {
+            release(i, domainValues[i]);
+        }
+    }
+
+    /**
+     * Encodes a domain String like "DE|shop|" for matching without adding values to the dictionary.
+     */
+    /*package*/ static int[] encodeDomain(String domainStr) {
+        final String[] domainValues = split(domainStr);
+        final int[] ids = new int[domainValues.length];
+        for (int i = 0; i < domainValues.length; i++) {
+            ids[i] = lookup(i, domainValues[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of distinct domain values at the position, excluding the wildcard
+     */
+    /*package*/ static int size(int position) {
+        final Position[] current = positions;
+        return position < current.length ? current[position].ids.size() : 0;
+    }
+
+    /**
+     * Splits at the separator. Everything after the last separator is ignored, like the prefix match of patterns did.
+     */
+    private static String[] split(String domainStr) {
+        int count = 0;
+        for (int i = 0; i < domainStr.length(); i++) {
+            if (domainStr.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        final String[] result = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            final int end = domainStr.indexOf(SEPARATOR, start);
+            result[i] = domainStr.substring(start, end);
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private static Position position(int position) {
+        final Position[] current = positions;
+        if (position < current.length) {
+            return current[position];
+        }
+        return grow(position);
+    }
+
+    private static synchronized Position grow(int position) {
+        final Position[] current = positions;
+        if (position < current.length) {
+            return current[position];
+        }
+        final Position[] grown = Arrays.copyOf(current, position + 1);
+        for (int i = current.length; i < grown.length; i++) {
+            grown[i] = new Position();
+        }
+        positions = grown;
+        return grown[position];
+    }
+
+    private static final class Position {
+
+        private final ConcurrentMap<String, Entry> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger(WILDCARD + 1);
+    }
+
+    /**
+     * The id of a domain value and the number of patterns using it. Only changed within the atomic compute methods of the map.
+     */
+    private static final class Entry {
+
+        private final int id;
+        private int references = 1;
+
+        private Entry(int id) {
+            this.id = id;
+        }
+
+        private Entry retain() {
+            references++;
+            return this;
+        }
+
+        private Entry release() {
+            return --references == 0 ? null : this;
+        }
+    }
+}
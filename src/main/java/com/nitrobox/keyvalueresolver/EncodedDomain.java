@@ -0,0 +1,47 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+/**
+ * The domain values of one lookup, encoded once by the DomainValueDictionary for matching all values of a key. The domain String, that
+ * is only needed by patterns with wildcards within domain values, is built on first use.
+ */
+/*package*/ final class EncodedDomain {
+
+    /*package*/ final String[] domainValues;
+    /*package*/ final int[] ids;
+    private String domainStr;
+
+    /*package*/ EncodedDomain(String[] domainValues) {
+        this.domainValues = domainValues;
+        this.ids = new int[domainValues.length];
+        for (int i = 0; i < domainValues.length; i++) {
+            ids[i] = DomainValueDictionary.lookup(i, domainValues[i]);
+        }
+    }
+
+    /**
+     * @return the domain values joined like a pattern, for example "DE|shop|"
+     */
+    /*package*/ String domainStr() {
+        if (domainStr == null) {
+            domainStr = domainValues.length == 0 ? "" : String.join("|", domainValues) + "|";
+        }
+        return domainStr;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a Persistence and records calls, errors and latencies per method, and the number of values and bytes read by
+ * {@link #loadAll(DomainSpecificValueFactory)} and {@link #reload(Collection, DomainSpecificValueFactory)}. Bytes are estimated from the
+ * length of keys, patterns and the String representation of the values. Install it with
+ * {@code keyValueResolver.setPersistence(new InstrumentedPersistence(persistence))} and publish it with
+ * {@link com.nitrobox.keyvalueresolver.jmx.KeyValueResolverManager#add(InstrumentedPersistence)}.
+ */
+public final class InstrumentedPersistence implements Persistence {
+
+    public enum Method {
+        LOAD, LOAD_ALL, RELOAD, STORE, REMOVE_KEY, REMOVE_VALUE, APPLY
+    }
+
+    private final Persistence persistence;
+    private final Map<Method, LongAdder> calls = new EnumMap<>(Method.class);
+    private final Map<Method, LongAdder> errors = new EnumMap<>(Method.class);
+    private final Map<Method, LatencyHistogram> latencies = new EnumMap<>(Method.class);
+    private final LongAdder readValues = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private volatile long resetAt = System.nanoTime();
+
+    public InstrumentedPersistence(Persistence persistence) {
+        this.persistence = Objects.requireNonNull(persistence, "\"persistence\" must not be null");
+        for (Method method : Method.values()) {
+            calls.put(method, new LongAdder());
+            errors.put(method, new LongAdder());
+            latencies.put(method, new LatencyHistogram());
+        }
+    }
+
+    public Persistence getPersistence() {
+        return persistence;
+    }
+
+    @Override
+    public KeyValues load(String key, DomainSpecificValueFactory domainSpecificValueFactory) {
+        return timed(Method.LOAD, () -> persistence.load(key, domainSpecificValueFactory));
+    }
+
+    @Override
+    public Collection<KeyValues> loadAll(DomainSpecificValueFactory domainSpecificValueFactory) {
+        return counted(timed(Method.LOAD_ALL, () -> persistence.loadAll(domainSpecificValueFactory)));
+    }
+
+    @Override
+    public Collection<KeyValues> reload(Collection<KeyValues> keyValues, DomainSpecificValueFactory domainSpecificValueFactory) {
+        return counted(timed(Method.RELOAD, () -> persistence.reload(keyValues, domainSpecificValueFactory)));
+    }
+
+    @Override
+    public void store(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+        timed(Method.STORE, () -> persistence.store(key, keyValues, domainSpecificValue));
+    }
+
+    @Override
+    public void remove(String key) {
+        timed(Method.REMOVE_KEY, () -> persistence.remove(key));
+    }
+
+    @Override
+    public void remove(String key, DomainSpecificValue domainSpecificValue) {
+        timed(Method.REMOVE_VALUE, () -> persistence.remove(key, domainSpecificValue));
+    }
+
+    @Override
+    public void apply(PersistenceBatch batch) {
+        timed(Method.APPLY, () -> persistence.apply(batch));
+    }
+
+    private void timed(Method method, Runnable runnable) {
+        timed(method, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    private <T> T timed(Method method, Supplier<T> supplier) {
+        calls.get(method).increment();
+        final long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } catch (RuntimeException | Error e) {
+            errors.get(method).increment();
+            throw e;
+        } finally {
+            latencies.get(method).record(System.nanoTime() - start);
+        }
+    }
+
+    private Collection<KeyValues> counted(Collection<KeyValues> result) {
+        if (result == null) {
+            return null;
+        }
+        long values = 0;
+        long bytes = 0;
+        for (KeyValues keyValues : result) {
+            final int keyLength = keyValues.getKey().length();
+            for (DomainSpecificValue domainSpecificValue : keyValues.getDomainSpecificValues()) {
+                values++;
+                bytes += keyLength + domainSpecificValue.getPattern().length() + String.valueOf(domainSpecificValue.getValue()).length();
+            }
+        }
+        readValues.add(values);
+        readBytes.add(bytes);
+        return result;
+    }
+
+    public long getCount(Method method) {
+        return calls.get(method).sum();
+    }
+
+    public long getErrorCount(Method method) {
+        return errors.get(method).sum();
+    }
+
+    /**
+     * @return the latencies of all calls, including failed ones
+     */
+    public LatencyHistogram getLatency(Method method) {
+        return latencies.get(method);
+    }
+
+    /**
+     * @return calls per second since creation or the last {@link #reset()}
+     */
+    public double getThroughput(Method method) {
+        final long elapsed = System.nanoTime() - resetAt;
+        return elapsed <= 0 ? 0 : (double) getCount(method) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * @return number of DomainSpecificValues returned by loadAll and reload
+     */
+    public long getReadValues() {
+        return readValues.sum();
+    }
+
+    /**
+     * @return estimated size of the values returned by loadAll and reload
+     */
+    public long getReadBytes() {
+        return readBytes.sum();
+    }
+
+    public void reset() {
+        calls.values().forEach(LongAdder::reset);
+        errors.values().forEach(LongAdder::reset);
+        latencies.values().forEach(LatencyHistogram::reset);
+        readValues.reset();
+        readBytes.reset();
+        resetAt = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("InstrumentedPersistence{persistence=").append(persistence);
+        for (Method method : Method.values()) {
+            builder.append(", ").append(method).append("=").append(getCount(method)).append("/").append(getErrorCount(method))
+                    .append(" errors/").append(latencies.get(method));
+        }
+        return builder.append(", readValues=").append(getReadValues()).append(", readBytes=").append(getReadBytes()).append('}')
+                .toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent interner, that returns a canonical instance for equal objects. Unlike String.intern() the table belongs to the Interner
+ * instance and only holds weak references, so entries disappear, when the canonical instance is no longer used elsewhere.
+ * <p>
+ * The table can be limited to a maximum size. When the table is full, new objects are returned as they are without being added.
+ */
+public final class Interner<T> {
+
+    public static final int UNBOUNDED = 0;
+
+    private final ConcurrentMap<WeakKey<T>, WeakKey<T>> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public Interner() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * @param maxSize maximum number of canonical instances kept in the table or {@link #UNBOUNDED}
+     */
+    public Interner(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("\"maxSize\" must not be negative, but was: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        expungeStaleEntries();
+        final WeakKey<T> existing = table.get(new WeakKey<>(value, null));
+        T canonical = existing == null ? null : existing.get();
+        if (canonical != null) {
+            hits.increment();
+            return canonical;
+        }
+        misses.increment();
+        if (maxSize != UNBOUNDED && table.size() >= maxSize) {
+            return value;
+        }
+        final WeakKey<T> key = new WeakKey<>(value, queue);
+        final WeakKey<T> previous = table.putIfAbsent(key, key);
+        canonical = previous == null ? null : previous.get();
+        return canonical == null ? value : canonical;
+    }
+
+    public int size() {
+        expungeStaleEntries();
+        return table.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of hits to all calls of {@link #intern(Object)} with a non null value, 0 if there were no calls yet
+     */
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private void expungeStaleEntries() {
+        WeakKey<?> key;
+        while ((key = (WeakKey<?>) queue.poll()) != null) {
+            table.remove(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Interner{size=" + size() + ", maxSize=" + maxSize + ", hits=" + hits.sum() + ", misses=" + misses.sum() + "}";
+    }
+
+    /**
+     * Weak reference used as key and value of the table. Cleared keys are only equal to themselves, so they can still be removed.
+     */
+    private static final class WeakKey<T> extends WeakReference<T> {
+
+        private final int hash;
+
+        private WeakKey(T referent, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hash = referent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey)) {
+                return false;
+            }
+            final Object referent = get();
+            return referent != null && referent.equals(((WeakKey<?>) o).get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Objects;
+
+/**
+ * Interns String values and changeSets in private {@link Interner}s before delegating to another DomainSpecificValueFactory. In contrast
+ * to {@link DomainSpecificValueFactoryWithStringInterning}, the strings are not put into the JVM wide string table and can be garbage
+ * collected, when no longer used. Patterns do not need to be interned, since they are already shared between all DomainSpecificValues.
+ * <p>
+ * Use one factory per KeyValueResolver, so the tables are scoped to that KeyValueResolver.
+ */
+public class InterningDomainSpecificValueFactory implements DomainSpecificValueFactory {
+
+    private final DomainSpecificValueFactory delegate;
+    private final Interner<String> values;
+    private final Interner<String> changeSets;
+
+    public InterningDomainSpecificValueFactory() {
+        this(new DefaultDomainSpecificValueFactory(), Interner.UNBOUNDED);
+    }
+
+    /**
+     * @param maxSize maximum number of interned values or {@link Interner#UNBOUNDED}
+     */
+    public InterningDomainSpecificValueFactory(int maxSize) {
+        this(new DefaultDomainSpecificValueFactory(), maxSize);
+    }
+
+    public InterningDomainSpecificValueFactory(DomainSpecificValueFactory delegate, int maxSize) {
+        this.delegate = Objects.requireNonNull(delegate, "\"delegate\" must not be null");
+        this.values = new Interner<>(maxSize);
+        this.changeSets = new Interner<>();
+    }
+
+    @Override
+    public DomainSpecificValue create(final Object value, final String changeSet, final String... domainValues) {
+        return delegate.create(internIfString(value), changeSets.intern(changeSet), domainValues);
+    }
+
+    @Override
+    public DomainSpecificValue createFromPattern(Object value, String changeSet, String pattern) {
+        return delegate.createFromPattern(internIfString(value), changeSets.intern(changeSet), pattern);
+    }
+
+    public Interner<String> getValueInterner() {
+        return values;
+    }
+
+    public Interner<String> getChangeSetInterner() {
+        return changeSets;
+    }
+
+    private Object internIfString(Object value) {
+        if (value instanceof String) {
+            return values.intern((String) value);
+        } else {
+            return value;
+        }
+    }
+}
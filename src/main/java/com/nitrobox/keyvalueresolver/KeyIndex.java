@@ -0,0 +1,296 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An immutable radix tree of keys. Keys sharing a prefix share the nodes of the prefix and every edge holds the longest common part of
+ * the keys below it, so namespaced keys like "checkout.button.pay" cost about one node per key. Every modification returns a new index,
+ * that shares all unchanged nodes with the previous one, like {@link PersistentHashMap}.
+ * <p>
+ * The keys with a prefix are iterated ordered by {@link String#compareTo(String)} and the cost only depends on the length of the prefix
+ * and the number of keys iterated.
+ */
+/*package*/ final class KeyIndex {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final KeyIndex EMPTY = new KeyIndex(new Node("", null, NO_CHILDREN), 0);
+
+    private final Node root;
+    private final int size;
+
+    private KeyIndex(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /*package*/ static KeyIndex empty() {
+        return EMPTY;
+    }
+
+    /*package*/ static KeyIndex of(Iterable<String> keys) {
+        KeyIndex index = EMPTY;
+        for (String key : keys) {
+            index = index.plus(key);
+        }
+        return index;
+    }
+
+    /*package*/ int size() {
+        return size;
+    }
+
+    /*package*/ boolean contains(String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            final Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.label, depth)) {
+                return false;
+            }
+            node = child;
+            depth += child.label.length();
+        }
+        return node.key != null;
+    }
+
+    /**
+     * @return an index with the key, this index, when it already contains the key
+     */
+    /*package*/ KeyIndex plus(String key) {
+        Objects.requireNonNull(key, "\"key\" must not be null");
+        final Node newRoot = root.plus(key, 0);
+        return newRoot == root ? this : new KeyIndex(newRoot, size + 1);
+    }
+
+    /**
+     * @return an index without the key, this index, when it does not contain the key
+     */
+    /*package*/ KeyIndex minus(String key) {
+        final Node newRoot = root.minus(key, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        // the root has an empty label, so it is never merged with its only child
+        return new KeyIndex(newRoot == null ? EMPTY.root : newRoot, size - 1);
+    }
+
+    /**
+     * @return the keys starting with the prefix, in ascending order
+     */
+    /*package*/ Iterator<String> keysWithPrefix(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            final Node child = node.child(prefix.charAt(depth));
+            final int length = Math.min(child == null ? 0 : child.label.length(), prefix.length() - depth);
+            if (child == null || !prefix.regionMatches(depth, child.label, 0, length)) {
+                return new KeyIterator(null);
+            }
+            node = child;
+            depth += child.label.length();
+        }
+        return new KeyIterator(node);
+    }
+
+    private static final class Node {
+
+        /**
+         * The part of the keys between the parent and this node.
+         */
+        private final String label;
+        /**
+         * The key ending at this node or null.
+         */
+        private final String key;
+        /**
+         * Ordered by the first char of their labels.
+         */
+        private final Node[] children;
+
+        private Node(String label, String key, Node[] children) {
+            this.label = label;
+            this.key = key;
+            this.children = children;
+        }
+
+        private Node child(char c) {
+            final int index = indexOf(c);
+            return index < 0 ? null : children[index];
+        }
+
+        private int indexOf(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final char midChar = children[mid].label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * @param depth length of the key up to and including the label of this node
+         */
+        private Node plus(String key, int depth) {
+            if (depth == key.length()) {
+                return this.key != null ? this : new Node(label, key, children);
+            }
+            final int index = indexOf(key.charAt(depth));
+            if (index < 0) {
+                return withChild(-(index + 1), new Node(key.substring(depth), key, NO_CHILDREN), false);
+            }
+            final Node child = children[index];
+            final int common = commonPrefixLength(child.label, key, depth);
+            if (common == child.label.length()) {
+                final Node newChild = child.plus(key, depth + common);
+                return newChild == child ? this : withChild(index, newChild, true);
+            }
+            // the key leaves the label of the child, so the label is split
+            final Node rest = new Node(child.label.substring(common), child.key, child.children);
+            final Node split;
+            if (depth + common == key.length()) {
+                split = new Node(child.label.substring(0, common), key, new Node[]{rest});
+            } else {
+                final Node leaf = new Node(key.substring(depth + common), key, NO_CHILDREN);
+                split = new Node(child.label.substring(0, common), null,
+                        leaf.label.charAt(0) < rest.label.charAt(0) ? new Node[]{leaf, rest} : new Node[]{rest, leaf});
+            }
+            return withChild(index, split, true);
+        }
+
+        /**
+         * @return the node without the key, null, when no key is left below it
+         */
+        private Node minus(String key, int depth) {
+            if (depth == key.length()) {
+                return this.key == null ? this : compact(label, null, children);
+            }
+            final int index = indexOf(key.charAt(depth));
+            if (index < 0) {
+                return this;
+            }
+            final Node child = children[index];
+            if (!key.startsWith(child.label, depth)) {
+                return this;
+            }
+            final Node newChild = child.minus(key, depth + child.label.length());
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild != null) {
+                return withChild(index, newChild, true);
+            }
+            final Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return compact(label, this.key, newChildren);
+        }
+
+        /**
+         * Creates a node, that is merged with its only child, when it has no key of its own.
+         */
+        private static Node compact(String label, String key, Node[] children) {
+            if (key == null && children.length == 0) {
+                return null;
+            }
+            if (key == null && children.length == 1 && !label.isEmpty()) {
+                final Node child = children[0];
+                return new Node(label + child.label, child.key, child.children);
+            }
+            return new Node(label, key, children);
+        }
+
+        private Node withChild(int index, Node child, boolean replace) {
+            final Node[] newChildren;
+            if (replace) {
+                newChildren = children.clone();
+                newChildren[index] = child;
+            } else {
+                newChildren = new Node[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = child;
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            }
+            return new Node(label, key, newChildren);
+        }
+
+        private static int commonPrefixLength(String label, String key, int depth) {
+            final int max = Math.min(label.length(), key.length() - depth);
+            int i = 0;
+            while (i < max && label.charAt(i) == key.charAt(depth + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Visits the nodes depth first, a node before its children, which gives the keys in ascending order.
+     */
+    private static final class KeyIterator implements Iterator<String> {
+
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private String next;
+
+        private KeyIterator(Node start) {
+            if (start != null) {
+                stack.push(start);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !stack.isEmpty()) {
+                final Node node = stack.pop();
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    stack.push(node.children[i]);
+                }
+                next = node.key;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final String result = next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples lookups and keeps an approximate top-K of the keys with the most lookups and of the keys, that scan the most values per lookup,
+ * e.g. because they have many overrides or only match wildcards. Both use a fixed number of entries, so the memory used does not depend
+ * on the number of keys.
+ * <p>
+ * The keys with the most lookups are found with the Space-Saving algorithm: when a new key has to replace the key with the lowest count,
+ * it takes over that count as its possible error. Keys, that are really among the top-K, are guaranteed to be reported. The entries are
+ * kept in min-heaps, so replacing the lowest entry costs O(log K).
+ * <p>
+ * Lookups do not share a lock: samples are collected in striped buffers, chosen by thread, and a full buffer is merged into the top-Ks
+ * by the thread that filled it. Reading the top-Ks merges all buffers first.
+ */
+public final class KeyProfiler {
+
+    private static final int BUFFER_SIZE = 64;
+
+    private final int capacity;
+    private final int sampleRate;
+    private final Buffer[] buffers;
+    private final TopK byCalls;
+    private final TopK byCost;
+
+    /**
+     * @param capacity   number of keys to keep for each top-K
+     * @param sampleRate record every sampleRate-th lookup, 1 to record all
+     */
+    public KeyProfiler(int capacity, int sampleRate) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("\"capacity\" must be positive, but was: " + capacity);
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("\"sampleRate\" must be positive, but was: " + sampleRate);
+        }
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.byCalls = new TopK(capacity, Comparator.comparingLong(Counter::getCount));
+        this.byCost = new TopK(capacity, Comparator.comparingDouble(Counter::getScannedPerCall));
+        final int processors = Runtime.getRuntime().availableProcessors();
+        this.buffers = new Buffer[1 << (32 - Integer.numberOfLeadingZeros(processors - 1))];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer();
+        }
+    }
+
+    /**
+     * Called for every lookup. Only every sampleRate-th lookup is recorded, the others only cost a random number.
+     */
+    /*package*/ void sample(String key, KeyValues keyValues, DomainSpecificValue found) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        record(key, keyValues == null ? 0 : keyValues.countScanned(found));
+    }
+
+    /*package*/ void record(String key, int scanned) {
+        final Buffer buffer = buffers[(int) Thread.currentThread().getId() & (buffers.length - 1)];
+        final Buffer.Samples full = buffer.add(key, scanned);
+        if (full != null) {
+            synchronized (this) {
+                merge(full);
+            }
+        }
+    }
+
+    private void merge(Buffer.Samples samples) {
+        for (int i = 0; i < samples.size; i++) {
+            countCall(samples.keys[i], samples.scanned[i]);
+            countCost(samples.keys[i], samples.scanned[i]);
+        }
+    }
+
+    private void mergeAll() {
+        for (Buffer buffer : buffers) {
+            merge(buffer.takeAll());
+        }
+    }
+
+    private void countCall(String key, int scanned) {
+        Counter counter = byCalls.get(key);
+        if (counter != null) {
+            counter.add(scanned);
+            byCalls.changed(counter);
+            return;
+        }
+        final Counter min = byCalls.isFull() ? byCalls.min() : null;
+        counter = new Counter(key, min == null ? 0 : min.count);
+        counter.add(scanned);
+        byCalls.replace(min, counter);
+    }
+
+    private void countCost(String key, int scanned) {
+        Counter counter = byCost.get(key);
+        if (counter != null) {
+            counter.add(scanned);
+            byCost.changed(counter);
+            return;
+        }
+        final Counter min = byCost.isFull() ? byCost.min() : null;
+        if (min != null && min.getScannedPerCall() >= scanned) {
+            return;
+        }
+        counter = new Counter(key, 0);
+        counter.add(scanned);
+        byCost.replace(min, counter);
+    }
+
+    /**
+     * @return the keys with the most lookups, most first
+     */
+    public synchronized List<Entry> getTopKeysByCalls() {
+        mergeAll();
+        return entries(byCalls, Comparator.comparingLong(Entry::getCalls).reversed());
+    }
+
+    /**
+     * @return the keys, that scan the most values per lookup, most first
+     */
+    public synchronized List<Entry> getTopKeysByCost() {
+        mergeAll();
+        return entries(byCost, Comparator.comparingDouble(Entry::getScannedPerCall).reversed());
+    }
+
+    private List<Entry> entries(TopK counters, Comparator<Entry> order) {
+        final List<Entry> result = new ArrayList<>(counters.size);
+        for (int i = 0; i < counters.size; i++) {
+            final Counter counter = counters.heap[i];
+            result.add(new Entry(counter.key, counter.count * sampleRate, counter.error * sampleRate,
+                    counter.getScannedPerCall()));
+        }
+        result.sort(order);
+        return result;
+    }
+
+    public synchronized void reset() {
+        for (Buffer buffer : buffers) {
+            buffer.takeAll();
+        }
+        byCalls.clear();
+        byCost.clear();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    private static final class Counter {
+
+        private final String key;
+        private final long error;
+        private int index;
+        private long count;
+        private long recordedCalls;
+        private long scanned;
+
+        private Counter(String key, long error) {
+            this.key = key;
+            this.error = error;
+            this.count = error;
+        }
+
+        private void add(int scannedValues) {
+            count++;
+            recordedCalls++;
+            scanned += scannedValues;
+        }
+
+        private long getCount() {
+            return count;
+        }
+
+        private double getScannedPerCall() {
+            return (double) scanned / recordedCalls;
+        }
+    }
+
+    /**
+     * Samples of lookups, that were not merged into the top-Ks yet. Only locked by the threads sharing the buffer and briefly for
+     * merging.
+     */
+    private static final class Buffer {
+
+        private Samples samples = new Samples();
+
+        /**
+         * @return the full samples, that must be merged by the caller, or null
+         */
+        private synchronized Samples add(String key, int scanned) {
+            samples.keys[samples.size] = key;
+            samples.scanned[samples.size] = scanned;
+            samples.size++;
+            return samples.size == BUFFER_SIZE ? takeAll() : null;
+        }
+
+        private synchronized Samples takeAll() {
+            final Samples taken = samples;
+            samples = new Samples();
+            return taken;
+        }
+
+        private static final class Samples {
+
+            private final String[] keys = new String[BUFFER_SIZE];
+            private final int[] scanned = new int[BUFFER_SIZE];
+            private int size;
+        }
+    }
+
+    /**
+     * The counters of a top-K in a map by key and in a min-heap by the given order. Counters, whose value changed, must be moved to
+     * their new place with {@link #changed(Counter)}.
+     */
+    private static final class TopK {
+
+        private final Map<String, Counter> counters = new HashMap<>();
+        private final Counter[] heap;
+        private final Comparator<Counter> order;
+        private int size;
+
+        private TopK(int capacity, Comparator<Counter> order) {
+            this.heap = new Counter[capacity];
+            this.order = order;
+        }
+
+        private Counter get(String key) {
+            return counters.get(key);
+        }
+
+        private boolean isFull() {
+            return size == heap.length;
+        }
+
+        private Counter min() {
+            return heap[0];
+        }
+
+        /**
+         * Adds the counter in place of the removed counter, which is the minimum, or null, when the top-K is not full.
+         */
+        private void replace(Counter removed, Counter added) {
+            final int index;
+            if (removed == null) {
+                index = size++;
+            } else {
+                counters.remove(removed.key);
+                index = removed.index;
+            }
+            counters.put(added.key, added);
+            heap[index] = added;
+            added.index = index;
+            changed(added);
+        }
+
+        private void changed(Counter counter) {
+            siftDown(siftUp(counter.index));
+        }
+
+        private int siftUp(int index) {
+            final Counter counter = heap[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (order.compare(counter, heap[parent]) >= 0) {
+                    break;
+                }
+                move(heap[parent], index);
+                index = parent;
+            }
+            move(counter, index);
+            return index;
+        }
+
+        private void siftDown(int index) {
+            final Counter counter = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && order.compare(heap[child + 1], heap[child]) < 0) {
+                    child++;
+                }
+                if (order.compare(heap[child], counter) >= 0) {
+                    break;
+                }
+                move(heap[child], index);
+                index = child;
+            }
+            move(counter, index);
+        }
+
+        private void move(Counter counter, int index) {
+            heap[index] = counter;
+            counter.index = index;
+        }
+
+        private void clear() {
+            counters.clear();
+            Arrays.fill(heap, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * A key of a top-K. Calls are estimated from the samples and might be overestimated by up to the error.
+     */
+    public static final class Entry {
+
+        private final String key;
+        private final long calls;
+        private final long error;
+        private final double scannedPerCall;
+
+        private Entry(String key, long calls, long error, double scannedPerCall) {
+            this.key = key;
+            this.calls = calls;
+            this.error = error;
+            this.scannedPerCall = scannedPerCall;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        public double getScannedPerCall() {
+            return scannedPerCall;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": calls=" + calls + (error > 0 ? "(+" + error + ")" : "") + ", scannedPerCall=" + scannedPerCall;
+        }
+    }
+}
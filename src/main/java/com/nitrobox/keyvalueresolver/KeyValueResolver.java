@@ -21,12 +21,17 @@
 
 package com.nitrobox.keyvalueresolver;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
-public interface KeyValueResolver {
+public interface KeyValueResolver extends ValueAccessors {
 
     /**
      * Get a value for a given key from KeyValueResolver
@@ -37,21 +42,21 @@ public interface KeyValueResolver {
      * @param <T>          type of the objects stored under the provided key
      * @return object retrieved from KeyValueResolver or defaultValue
      */
+    @Override
     <T> T getOrDefault(String key, T defaultValue, DomainResolver resolver);
 
-    <T> T getOrDefault(String key, T defaultValue, String... domainValues);
-
     /**
-     * Get a value for a given key from KeyValueResolver. Same as calling get(key, null, resolver);
+     * Get a value for a given key from KeyValueResolver converted by the given converter. The converted value is cached, so a value is
+     * only converted again, after it was changed.
      *
-     * @param key      key to query
-     * @param resolver resolver to determine domain values to use during resolution
-     * @param <T>      type of the objects stored under the provided key
-     * @return object retrieved from KeyValueResolver or defaultValue
+     * @param key       key to query
+     * @param converter converter to convert the stored value
+     * @param resolver  resolver to determine domain values to use during resolution
+     * @param <T>       type the value is converted to
+     * @return converted value or null, when no value for the key is found
      */
-    <T> T get(String key, DomainResolver resolver);
-
-    <T> T get(String key, String... domainValues);
+    @Override
+    <T> T get(String key, Converter<T> converter, DomainResolver resolver);
 
     /**
      * Get a value for a given key from KeyValueResolver. When no value is found in KeyValueResolver, the provided default is stored in
@@ -91,12 +96,64 @@ public interface KeyValueResolver {
 
     void reload();
 
+    /**
+     * Imports many values at once. Readers see either none or all of the imported values. Values with the same pattern and changeSet as
+     * an existing value replace it, the last of several imported values with the same pattern and changeSet wins. The values are written
+     * to the persistence in batches of {@link BulkImport#PERSISTENCE_BATCH_SIZE}. If a batch fails, the import is not visible in memory,
+     * but the batches written before remain in the persistence.
+     *
+     * @return number of imported values
+     */
+    int importValues(BulkImport bulkImport);
+
+    /**
+     * Applies all writes of the batch in their order. Readers see either none or all of the changes and the persistence is called once.
+     */
+    void apply(WriteBatch writeBatch);
+
+    /**
+     * Adds a listener, that is notified asynchronously about changes of values, removed keys and changeSets and differences found by a
+     * reload.
+     *
+     * @param listener         listener to notify
+     * @param executor         executor the listener is called on
+     * @param coalescingWindow time to collect changes, before they are delivered in one batch
+     */
+    void addChangeListener(ChangeListener listener, Executor executor, Duration coalescingWindow);
+
+    void removeChangeListener(ChangeListener listener);
+
+    /**
+     * Takes a snapshot of the current values. Reading from the snapshot is not affected by later changes or reloads.
+     *
+     * @return snapshot of the current values
+     */
+    KeyValueResolverSnapshot snapshot();
+
+    /**
+     * @return counters and latencies of this KeyValueResolver, also exposed as MBean
+     */
+    KeyValueResolverMetrics getMetrics();
+
     void reload(String key);
 
+    /**
+     * Builds the dump of all values in memory. Use {@link #dump(Writer)} or {@link #dump(Path)} for large KeyValueResolvers.
+     */
     StringBuilder dump();
 
     void dump(PrintStream out);
 
+    /**
+     * Writes all values to the writer. The values are taken from a snapshot, so writers are not blocked while dumping.
+     */
+    void dump(Writer out) throws IOException;
+
+    /**
+     * Writes all values UTF-8 encoded to the file, replacing its content.
+     */
+    void dump(Path file) throws IOException;
+
     KeyValues getKeyValues(String key);
 
     KeyValues getKeyValues(String key, DomainResolver... resolver);
@@ -118,6 +175,35 @@ public interface KeyValueResolver {
 
     <T> Map<String, T> getAllMappings(String... domainValues);
 
+    /**
+     * Get the KeyValues, whose key starts with the prefix, ordered by key. Only the matching keys are visited, not all keys.
+     */
+    List<KeyValues> getKeyValuesWithPrefix(String keyPrefix);
+
+    /**
+     * Like {@link #getKeyValuesWithPrefix(String)}, with only those DomainSpecificValues, where the provided resolver domains match or are
+     * wildcarded.
+     */
+    List<KeyValues> getKeyValuesWithPrefix(String keyPrefix, DomainResolver... resolver);
+
+    /**
+     * Returns a page of the KeyValues, whose key starts with the prefix, ordered by key. Reads the current values without taking a
+     * snapshot, so values changed between two calls may be missed or seen on two pages. Use {@link KeyValueResolverSnapshot#getKeyValuesPage}
+     * for consistent pages.
+     *
+     * @param keyPrefix prefix of the keys, empty for all keys
+     * @param offset    number of matching keys to skip
+     * @param limit     maximum number of KeyValues to return
+     */
+    List<KeyValues> getKeyValuesPage(String keyPrefix, int offset, int limit);
+
+    /**
+     * Resolves the keys starting with the prefix, ordered by key. Keys without a matching value are left out.
+     */
+    <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, DomainResolver resolver);
+
+    <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, String... domainValues);
+
     /**
      * Remove a single domain specific value with exactly the provided domainValues from the given changeSet.
      * The key is also removed, when no domain specific values are left after this removal.
@@ -163,12 +249,23 @@ public interface KeyValueResolver {
      */
     void removeChangeSet(String changeSet);
 
+    /**
+     * Moves all values of the changeSet into the values without changeSet, replacing values with the same domain values. A
+     * {@link #snapshot()} and the methods reading several keys see either the changeSet or the promoted values of all keys, never both
+     * or none. Every single key is changed at once.
+     *
+     * @param changeSet changeSet to promote
+     * @return number of promoted values
+     */
+    int promoteChangeSet(String changeSet);
+
     /**
      * creates a resolver by combining the domainValues passed with the domains stored in this resolver.
      * When less domainValues are passed, than domains are present, the resulting domains are wildcarded. 
      * @param domainValues domain values to set in the order of the domains stored in this resolver.
      * @return a DomainResolver with the provided values set.
      */
+    @Override
     DomainResolver resolverFor(String... domainValues);
 
     List<String> getDomains();
@@ -23,15 +23,24 @@ package com.nitrobox.keyvalueresolver;
 
 import static java.lang.Math.min;
 
+import com.nitrobox.keyvalueresolver.KeyValueResolverMetrics.Operation;
 import com.nitrobox.keyvalueresolver.jmx.KeyValueResolverManager;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.stream.Collector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,11 +55,11 @@ public class KeyValueResolverImpl implements KeyValueResolver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KeyValueResolverImpl.class);
     public static final String KEY_VALUE_RESOLVER_DOMAINS_TEXT = "KeyValueResolver{domains=";
-    private final ValuesStore valuesStore = new ValuesStore();
+    private final ValuesStore valuesStore;
     private final List<String> domains = new CopyOnWriteArrayList<>();
 
     public KeyValueResolverImpl(final Persistence persistence, DomainSpecificValueFactory domainSpecificValueFactory) {
-        initFromPersistence(persistence, domainSpecificValueFactory);
+        this(new ValuesStore(), persistence, domainSpecificValueFactory);
     }
 
     public KeyValueResolverImpl(final Persistence persistence) {
@@ -59,6 +68,15 @@ public class KeyValueResolverImpl implements KeyValueResolver {
 
     public KeyValueResolverImpl(final Persistence persistence, DomainSpecificValueFactory domainSpecificValueFactory,
             final String... domains) {
+        this(new ValuesStore(), persistence, domainSpecificValueFactory, domains);
+    }
+
+    /**
+     * Creates a KeyValueResolver with a specific ValuesStore, e.g. a read only ValuesStore with an {@link OffHeapValuesStorage}.
+     */
+    public KeyValueResolverImpl(final ValuesStore valuesStore, final Persistence persistence,
+            DomainSpecificValueFactory domainSpecificValueFactory, final String... domains) {
+        this.valuesStore = Objects.requireNonNull(valuesStore, "\"valuesStore\" must not be null");
         initDomains(domains);
         initFromPersistence(persistence, domainSpecificValueFactory);
     }
@@ -81,12 +99,24 @@ public class KeyValueResolverImpl implements KeyValueResolver {
     }
 
     public KeyValueResolverImpl(final String... domains) {
+        this.valuesStore = new ValuesStore();
+        initDomains(domains);
+        initWithoutPersistence();
+        KeyValueResolverManager.getInstance().add(this);
+    }
+
+    /**
+     * Creates a KeyValueResolver without persistence with a specific ValuesStore, e.g. one with several shards.
+     */
+    public KeyValueResolverImpl(final ValuesStore valuesStore, final String... domains) {
+        this.valuesStore = Objects.requireNonNull(valuesStore, "\"valuesStore\" must not be null");
         initDomains(domains);
         initWithoutPersistence();
         KeyValueResolverManager.getInstance().add(this);
     }
 
     public KeyValueResolverImpl() {
+        this.valuesStore = new ValuesStore();
         initWithoutPersistence();
         KeyValueResolverManager.getInstance().add(this);
     }
@@ -96,26 +126,15 @@ public class KeyValueResolverImpl implements KeyValueResolver {
     }
 
     private static DomainSpecificValueFactory createDomainSpecificValueFactory() {
-        return new DomainSpecificValueFactoryWithStringInterning();
-    }
-
-    @Override
-    public <T> T getOrDefault(String key, T defaultValue, String... domainValues) {
-        return getOrDefault(key, defaultValue, resolverFor(domainValues));
+        return new InterningDomainSpecificValueFactory();
     }
 
     @Override
     public <T> T getOrDefault(final String key, final T defaultValue, DomainResolver resolver) {
-        final String trimmedKey = trimKey(key);
-        KeyValues keyValues = valuesStore.getKeyValuesFromMapOrPersistence(trimmedKey);
-        T result;
-        if (keyValues == null) {
-            result = defaultValue;
-        } else {
-            result = keyValues.get(domains, defaultValue, resolver);
-        }
+        final DomainSpecificValue domainSpecificValue = resolve(key, resolver);
+        @SuppressWarnings("unchecked") final T result = domainSpecificValue == null ? defaultValue : (T) domainSpecificValue.getValue();
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Getting value for key: '{}' with given default: '{}'. Returning value: '{}'", trimmedKey, defaultValue, result);
+            LOGGER.debug("Getting value for key: '{}' with given default: '{}'. Returning value: '{}'", key.trim(), defaultValue, result);
             StringBuilder builder = new StringBuilder("DomainValues: ");
             for (String domain : domains) {
                 builder.append(domain).append(" => ").append(resolver.getDomainValue(domain)).append("; ");
@@ -125,19 +144,42 @@ public class KeyValueResolverImpl implements KeyValueResolver {
         return result;
     }
 
+    /**
+     * Finds the value for the key and records metrics and a {@link ResolveEvent} for it.
+     *
+     * @return the best matching value or null
+     */
+    private DomainSpecificValue resolve(final String key, DomainResolver resolver) {
+        final KeyValueResolverMetrics metrics = valuesStore.getMetrics();
+        final long start = metrics.startGet();
+        final ResolveEvent event = new ResolveEvent();
+        event.begin();
+        final String trimmedKey = trimKey(key);
+        final KeyValues keyValues = valuesStore.getKeyValuesFromMapOrPersistence(trimmedKey);
+        final DomainSpecificValue domainSpecificValue = keyValues == null ? null : keyValues.find(domains, resolver);
+        metrics.stopGet(start, trimmedKey, keyValues, domainSpecificValue);
+        event.end();
+        if (event.shouldCommit()) {
+            event.key = trimmedKey;
+            event.scannedValues = keyValues == null ? 0 : keyValues.countScanned(domainSpecificValue);
+            event.found = domainSpecificValue != null;
+            event.commit();
+        }
+        return domainSpecificValue;
+    }
+
     private static String trimKey(final String key) {
         Ensure.notEmpty(key, "key");
         return key.trim();
     }
 
     @Override
-    public <T> T get(String key, String... domainValues) {
-        return getOrDefault(key, null, resolverFor(domainValues));
-    }
-
-    @Override
-    public <T> T get(final String key, DomainResolver resolver) {
-        return getOrDefault(key, null, resolver);
+    public <T> T get(String key, Converter<T> converter, DomainResolver resolver) {
+        Objects.requireNonNull(converter, "\"converter\" must not be null");
+        final DomainSpecificValue domainSpecificValue = resolve(key, resolver);
+        T result = domainSpecificValue == null ? null : domainSpecificValue.getValue(converter);
+        LOGGER.debug("Getting converted value for key: '{}'. Returning value: '{}'", key, result);
+        return result;
     }
 
     @Override
@@ -152,12 +194,20 @@ public class KeyValueResolverImpl implements KeyValueResolver {
 
     @Override
     public <T> T getOrDefine(final String key, final T defaultValue, String description, DomainResolver resolver) {
-        T value = get(key, resolver);
-        if (value != null) {
-            return value;
+        final long start = valuesStore.getMetrics().start(Operation.DEFINE);
+        try {
+            T value = get(key, resolver);
+            if (value != null) {
+                return value;
+            }
+            // not timed as SET, the write is part of the DEFINE
+            final String trimmedKey = trimKey(key);
+            LOGGER.debug("Storing default value: '{}' for key: '{}'.", defaultValue, trimmedKey);
+            valuesStore.setWithChangeSet(trimmedKey, description, null, defaultValue);
+            return defaultValue;
+        } finally {
+            valuesStore.getMetrics().stop(Operation.DEFINE, start);
         }
-        set(key, defaultValue, description);
-        return defaultValue;
     }
 
     @Override
@@ -174,7 +224,7 @@ public class KeyValueResolverImpl implements KeyValueResolver {
     public DomainSpecificValue set(final String key, final Object value, final String description, final String... domainValues) {
         final String trimmedKey = trimKey(key);
         LOGGER.debug("Storing value: '{}' for key: '{}' with given domains: '{}'.", value, trimmedKey, domainValues);
-        valuesStore.setWithChangeSet(trimmedKey, description, null, value, domainValues);
+        timed(Operation.SET, () -> valuesStore.setWithChangeSet(trimmedKey, description, null, value, domainValues));
         return DomainSpecificValue.withoutChangeSet(value, domainValues);
     }
 
@@ -190,7 +240,7 @@ public class KeyValueResolverImpl implements KeyValueResolver {
         final String trimmedKey = trimKey(key);
         LOGGER.debug("Storing value: '{}' for key: '{}' for change set: '{}' with given domains: '{}'.", value, trimmedKey, changeSet,
                 domainValues);
-        valuesStore.setWithChangeSet(trimmedKey, description, changeSet, value, domainValues);
+        timed(Operation.SET, () -> valuesStore.setWithChangeSet(trimmedKey, description, changeSet, value, domainValues));
         return DomainSpecificValue.withChangeSet(value, changeSet, domainValues);
     }
 
@@ -208,12 +258,47 @@ public class KeyValueResolverImpl implements KeyValueResolver {
 
     @Override
     public void reload() {
-        valuesStore.reload();
+        timed(Operation.RELOAD, valuesStore::reload);
+    }
+
+    @Override
+    public int importValues(final BulkImport bulkImport) {
+        Objects.requireNonNull(bulkImport, "\"bulkImport\" must not be null");
+        LOGGER.debug("Importing {} values.", bulkImport.size());
+        final long start = valuesStore.getMetrics().start(Operation.BATCH);
+        try {
+            return valuesStore.importValues(bulkImport);
+        } finally {
+            valuesStore.getMetrics().stop(Operation.BATCH, start);
+        }
+    }
+
+    @Override
+    public void apply(final WriteBatch writeBatch) {
+        Objects.requireNonNull(writeBatch, "\"writeBatch\" must not be null");
+        LOGGER.debug("Applying {}.", writeBatch);
+        timed(Operation.BATCH, () -> valuesStore.apply(writeBatch));
     }
 
     @Override
     public void reload(String key) {
-        valuesStore.reload(trimKey(key));
+        final String trimmedKey = trimKey(key);
+        timed(Operation.RELOAD, () -> valuesStore.reload(trimmedKey));
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener, Executor executor, Duration coalescingWindow) {
+        valuesStore.addChangeListener(listener, executor, coalescingWindow);
+    }
+
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        valuesStore.removeChangeListener(listener);
+    }
+
+    @Override
+    public KeyValueResolverSnapshot snapshot() {
+        return new KeyValueResolverSnapshot(valuesStore.snapshot(), List.copyOf(domains));
     }
 
     @Override
@@ -237,6 +322,21 @@ public class KeyValueResolverImpl implements KeyValueResolver {
         out.println("\n}");
     }
 
+    @Override
+    public void dump(final Writer out) throws IOException {
+        out.append(KEY_VALUE_RESOLVER_DOMAINS_TEXT).append(domains.toString());
+        valuesStore.dump(out);
+        out.append("\n}\n");
+    }
+
+    @Override
+    public void dump(final Path file) throws IOException {
+        Objects.requireNonNull(file, "\"file\" must not be null");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            dump(out);
+        }
+    }
+
     @Override
     public KeyValues getKeyValues(final String key) {
         return valuesStore.getValuesFor(trimKey(key));
@@ -267,6 +367,45 @@ public class KeyValueResolverImpl implements KeyValueResolver {
         return valuesStore.getAllValues(domains, resolverFor(domainValues));
     }
 
+    @Override
+    public List<KeyValues> getKeyValuesWithPrefix(String keyPrefix) {
+        return valuesStore.getValuesWithPrefix(keyPrefix);
+    }
+
+    @Override
+    public List<KeyValues> getKeyValuesWithPrefix(String keyPrefix, DomainResolver... resolver) {
+        return valuesStore.getValuesWithPrefix(keyPrefix, domains, resolver);
+    }
+
+    @Override
+    public List<KeyValues> getKeyValuesPage(String keyPrefix, int offset, int limit) {
+        return valuesStore.getValuesPage(keyPrefix, offset, limit);
+    }
+
+    @Override
+    public <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, DomainResolver resolver) {
+        return mappings(valuesStore.getValuesWithPrefix(keyPrefix), domains, resolver);
+    }
+
+    @Override
+    public <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, String... domainValues) {
+        return getMappingsWithPrefix(keyPrefix, resolverFor(domainValues));
+    }
+
+    /**
+     * @return the resolved values in the order of the KeyValues
+     */
+    /*package*/ static <T> Map<String, T> mappings(Collection<KeyValues> values, List<String> domains, DomainResolver resolver) {
+        final Map<String, T> result = new LinkedHashMap<>();
+        for (KeyValues keyValues : values) {
+            final T value = keyValues.get(domains, null, resolver);
+            if (value != null) {
+                result.put(keyValues.getKey(), value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public <T> Map<String, T> getAllMappings(String... domainValues) {
         return getAllMappings(resolverFor(domainValues));
@@ -291,13 +430,14 @@ public class KeyValueResolverImpl implements KeyValueResolver {
 
     @Override
     public void removeWithChangeSet(final String key, final String changeSet, final String... domainValues) {
-        valuesStore.removeWithChangeSet(trimKey(key), changeSet, domainValues);
+        final String trimmedKey = trimKey(key);
+        timed(Operation.REMOVE, () -> valuesStore.removeWithChangeSet(trimmedKey, changeSet, domainValues));
     }
 
     @Override
     public void removeWithChangeSet(final String key, final String changeSet, DomainValues domainValues) {
         String[] domainValuesArray = domainValues.getDomainValues(domains);
-        valuesStore.removeWithChangeSet(trimKey(key), changeSet, domainValuesArray);
+        removeWithChangeSet(key, changeSet, domainValuesArray);
     }
 
     @Override
@@ -314,25 +454,52 @@ public class KeyValueResolverImpl implements KeyValueResolver {
     @Override
     public void removeAllMatching(final String key, final String... domainValues) {
         final String trimmedKey = trimKey(key);
-        valuesStore.removeAllMatching(trimmedKey, domains, domainValues);
+        timed(Operation.REMOVE, () -> valuesStore.removeAllMatching(trimmedKey, domains, domainValues));
     }
 
     @Override
     public void removeAllMatching(final String key, DomainValues domainValues) {
         String[] domainValuesArray = domainValues.getDomainValues(domains);
-        valuesStore.removeAllMatching(key, domains, domainValuesArray);
+        timed(Operation.REMOVE, () -> valuesStore.removeAllMatching(key, domains, domainValuesArray));
     }
 
 
     @Override
     public void removeKey(final String key) {
-        valuesStore.remove(trimKey(key));
+        final String trimmedKey = trimKey(key);
+        timed(Operation.REMOVE, () -> valuesStore.remove(trimmedKey));
     }
 
     @Override
     public void removeChangeSet(String changeSet) {
         Objects.requireNonNull(changeSet, "\"changeSet\" must not be null");
-        valuesStore.removeChangeSet(changeSet);
+        timed(Operation.REMOVE, () -> valuesStore.removeChangeSet(changeSet));
+    }
+
+    @Override
+    public int promoteChangeSet(String changeSet) {
+        Objects.requireNonNull(changeSet, "\"changeSet\" must not be null");
+        final long start = valuesStore.getMetrics().start(Operation.BATCH);
+        try {
+            return valuesStore.promoteChangeSet(changeSet);
+        } finally {
+            valuesStore.getMetrics().stop(Operation.BATCH, start);
+        }
+    }
+
+    private void timed(Operation operation, Runnable runnable) {
+        final KeyValueResolverMetrics metrics = valuesStore.getMetrics();
+        final long start = metrics.start(operation);
+        try {
+            runnable.run();
+        } finally {
+            metrics.stop(operation, start);
+        }
+    }
+
+    @Override
+    public KeyValueResolverMetrics getMetrics() {
+        return valuesStore.getMetrics();
     }
 
     public DomainResolver resolverFor(String... domainValues) {
@@ -340,11 +507,7 @@ public class KeyValueResolverImpl implements KeyValueResolver {
     }
 
     public static DomainResolver resolverFor(List<String> domains, String... domainValues) {
-        MapBackedDomainResolver resolver = new MapBackedDomainResolver();
-        for (int i = 0; i < min(domains.size(), domainValues.length); i++) {
-            resolver.set(domains.get(i), domainValues[i]);
-        }
-        return resolver;
+        return new ArrayBackedDomainResolver(domains, domainValues);
     }
 
     @Override
@@ -0,0 +1,208 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters and latencies of a KeyValueResolver. All counters are striped, so recording does not contend between threads. Reading a
+ * System.nanoTime() twice costs more than the rest of a get, so only every {@link #GET_SAMPLE_RATE}th get is timed. All other operations
+ * are timed on every call.
+ *
+ * @see com.nitrobox.keyvalueresolver.jmx.KeyValueResolverManager
+ */
+public final class KeyValueResolverMetrics {
+
+    public static final int GET_SAMPLE_RATE = 64;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    public enum Operation {
+        GET, DEFINE, SET, REMOVE, RELOAD, LOAD,
+        /**
+         * Operations changing many values at once, like {@link KeyValueResolver#importValues(BulkImport)},
+         * {@link KeyValueResolver#apply(WriteBatch)} and {@link KeyValueResolver#promoteChangeSet(String)}
+         */
+        BATCH
+    }
+
+    private final Map<Operation, LongAdder> calls = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final LongAdder defaults = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private volatile KeyProfiler profiler;
+    private final ReadWriteLockTool[] locks;
+    private final Supplier<List<ShardStatistics>> shardStatistics;
+
+    /**
+     * @param locks           the locks of the shards of the ValuesStore, whose statistics can be enabled
+     * @param shardStatistics provides the current statistics of the shards
+     */
+    /*package*/ KeyValueResolverMetrics(ReadWriteLockTool[] locks, Supplier<List<ShardStatistics>> shardStatistics) {
+        this.locks = locks;
+        this.shardStatistics = shardStatistics;
+        for (Operation operation : Operation.values()) {
+            calls.put(operation, new LongAdder());
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /*package*/ long start(Operation operation) {
+        calls.get(operation).increment();
+        return System.nanoTime();
+    }
+
+    /*package*/ void stop(Operation operation, long start) {
+        latencies.get(operation).record(System.nanoTime() - start);
+    }
+
+    /*package*/ long startGet() {
+        calls.get(Operation.GET).increment();
+        return (ThreadLocalRandom.current().nextInt() & (GET_SAMPLE_RATE - 1)) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * @param keyValues the values found for the key or null
+     * @param found     the value returned or null, when the default was returned
+     */
+    /*package*/ void stopGet(long start, String key, KeyValues keyValues, DomainSpecificValue found) {
+        if (start != NOT_TIMED) {
+            latencies.get(Operation.GET).record(System.nanoTime() - start);
+        }
+        if (found == null) {
+            defaults.increment();
+        }
+        final KeyProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.sample(key, keyValues, found);
+        }
+    }
+
+    /*package*/ void cacheHit() {
+        cacheHits.increment();
+    }
+
+    /*package*/ void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public long getCount(Operation operation) {
+        return calls.get(operation).sum();
+    }
+
+    /**
+     * @return the latencies of the operation, for GET only of the sampled calls
+     */
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * @return share of lookups, that found the key in memory without asking the persistence
+     */
+    public double getCacheHitRate() {
+        return rate(cacheHits.sum(), cacheHits.sum() + cacheMisses.sum());
+    }
+
+    /**
+     * @return share of gets, that found no value and returned the default
+     */
+    public double getDefaultRate() {
+        return rate(defaults.sum(), getCount(Operation.GET));
+    }
+
+    private static double rate(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    /**
+     * Starts profiling the lookups of keys. Profiling is off by default.
+     *
+     * @see KeyProfiler#KeyProfiler(int, int)
+     */
+    public void enableProfiling(int capacity, int sampleRate) {
+        profiler = new KeyProfiler(capacity, sampleRate);
+    }
+
+    public void disableProfiling() {
+        profiler = null;
+    }
+
+    /**
+     * @return the current profiler or null, when profiling is not enabled
+     */
+    public KeyProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Starts recording wait and hold times of the locks of the ValuesStore. Off by default. The times of all shards are recorded together.
+     */
+    public void enableLockStatistics() {
+        final LockStatistics statistics = new LockStatistics();
+        for (ReadWriteLockTool lock : locks) {
+            lock.setStatistics(statistics);
+        }
+    }
+
+    public void disableLockStatistics() {
+        for (ReadWriteLockTool lock : locks) {
+            lock.setStatistics(null);
+        }
+    }
+
+    /**
+     * @return the current lock statistics or null, when they are not enabled
+     */
+    public LockStatistics getLockStatistics() {
+        return locks[0].getStatistics();
+    }
+
+    /**
+     * @return key count and writes per shard of the ValuesStore, to find shards with many writes
+     */
+    public List<ShardStatistics> getShardStatistics() {
+        return shardStatistics.get();
+    }
+
+    public void reset() {
+        calls.values().forEach(LongAdder::reset);
+        latencies.values().forEach(LatencyHistogram::reset);
+        defaults.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        final KeyProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.reset();
+        }
+        final LockStatistics lockStatistics = getLockStatistics();
+        if (lockStatistics != null) {
+            lockStatistics.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KeyValueResolverMetrics{calls=" + calls + ", cacheHitRate=" + getCacheHitRate() + ", defaultRate=" + getDefaultRate() + '}';
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A frozen version of the values of a KeyValueResolver. All reads see the values as they were, when the snapshot was taken, so reading
+ * many keys gives a consistent result, even while values are changed or reloaded. Keys, that were not loaded into memory, when the
+ * snapshot was taken, are not loaded from the persistence.
+ * <p>
+ * Taking a snapshot is O(1), it only references the current version of the values. Versions are garbage collected, when no snapshot uses
+ * them anymore.
+ *
+ * @see KeyValueResolver#snapshot()
+ */
+public final class KeyValueResolverSnapshot implements ValueAccessors {
+
+    private final ValuesStore.ValuesView values;
+    private final List<String> domains;
+
+    /*package*/ KeyValueResolverSnapshot(ValuesStore.ValuesView values, List<String> domains) {
+        this.values = values;
+        this.domains = domains;
+    }
+
+    @Override
+    public <T> T getOrDefault(String key, T defaultValue, DomainResolver resolver) {
+        final KeyValues keyValues = values.getValuesFor(trimKey(key));
+        return keyValues == null ? defaultValue : keyValues.get(domains, defaultValue, resolver);
+    }
+
+    @Override
+    public <T> T get(String key, Converter<T> converter, DomainResolver resolver) {
+        Objects.requireNonNull(converter, "\"converter\" must not be null");
+        final KeyValues keyValues = values.getValuesFor(trimKey(key));
+        final DomainSpecificValue domainSpecificValue = keyValues == null ? null : keyValues.find(domains, resolver);
+        return domainSpecificValue == null ? null : domainSpecificValue.getValue(converter);
+    }
+
+    public KeyValues getKeyValues(String key) {
+        return values.getValuesFor(trimKey(key));
+    }
+
+    public KeyValues getKeyValues(String key, DomainResolver... resolver) {
+        final KeyValues keyValues = getKeyValues(key);
+        return keyValues != null ? keyValues.copy(domains, resolver) : null;
+    }
+
+    public Collection<KeyValues> getAllKeyValues() {
+        return values.getAllValues();
+    }
+
+    public Collection<KeyValues> getAllKeyValues(DomainResolver... resolver) {
+        return values.getAllValues().stream()
+                .map(keyValues -> keyValues.copy(domains, resolver))
+                .filter(keyValues -> !keyValues.isEmpty())
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    public Collection<KeyValues> getAllKeyValues(String... domainValues) {
+        return getAllKeyValues(resolverFor(domainValues));
+    }
+
+    /**
+     * Returns a page of the KeyValues, whose key starts with the prefix, ordered by key. Pages of the same snapshot are consistent.
+     *
+     * @param keyPrefix prefix of the keys, empty for all keys
+     * @param offset    number of matching keys to skip
+     * @param limit     maximum number of KeyValues to return
+     */
+    public List<KeyValues> getKeyValuesPage(String keyPrefix, int offset, int limit) {
+        return ValuesStore.page(values, keyPrefix, offset, limit);
+    }
+
+    /**
+     * @return the KeyValues, whose key starts with the prefix, ordered by key
+     */
+    public List<KeyValues> getKeyValuesWithPrefix(String keyPrefix) {
+        Objects.requireNonNull(keyPrefix, "\"keyPrefix\" must not be null");
+        final List<KeyValues> result = new ArrayList<>();
+        values.valuesWithPrefix(keyPrefix).forEachRemaining(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    public List<KeyValues> getKeyValuesWithPrefix(String keyPrefix, DomainResolver... resolver) {
+        Objects.requireNonNull(keyPrefix, "\"keyPrefix\" must not be null");
+        return ValuesStore.copies(values.valuesWithPrefix(keyPrefix), domains, resolver);
+    }
+
+    /**
+     * @return the resolved values of the keys starting with the prefix, ordered by key
+     */
+    public <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, DomainResolver resolver) {
+        return KeyValueResolverImpl.mappings(getKeyValuesWithPrefix(keyPrefix), domains, resolver);
+    }
+
+    public <T> Map<String, T> getMappingsWithPrefix(String keyPrefix, String... domainValues) {
+        return getMappingsWithPrefix(keyPrefix, resolverFor(domainValues));
+    }
+
+    public <T> Map<String, T> getAllMappings(DomainResolver resolver) {
+        final Map<String, T> result = new HashMap<>();
+        for (KeyValues keyValues : values.getAllValues()) {
+            final T value = keyValues.get(domains, null, resolver);
+            if (value != null) {
+                result.put(keyValues.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    public <T> Map<String, T> getAllMappings(String... domainValues) {
+        return getAllMappings(resolverFor(domainValues));
+    }
+
+    @Override
+    public DomainResolver resolverFor(String... domainValues) {
+        return KeyValueResolverImpl.resolverFor(domains, domainValues);
+    }
+
+    public List<String> getDomains() {
+        return domains;
+    }
+
+    private static String trimKey(final String key) {
+        Ensure.notEmpty(key, "key");
+        return key.trim();
+    }
+}
@@ -21,7 +21,9 @@
 
 package com.nitrobox.keyvalueresolver;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,7 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.TreeSet;
 
 
 /**
@@ -47,8 +49,25 @@ public class KeyValues {
     private static final String DOMAIN_SEPARATOR = "|";
     private final String key;
     private String description;
-    private final Set<DomainSpecificValue> domainSpecificValues = new ConcurrentSkipListSet<>();
+    private static final DomainSpecificValue[] NO_VALUES = new DomainSpecificValue[0];
+    /**
+     * Sorted by precedence. The array is never changed, but replaced on every change, so readers iterate it without any synchronization.
+     * Changes are synchronized on this instance.
+     */
+    private volatile DomainSpecificValue[] domainSpecificValues = NO_VALUES;
+    /**
+     * Number of values from which on changes use {@link #index}. Below it searching the array is as fast and needs no memory.
+     */
+    /*package*/ static final int INDEX_THRESHOLD = 16;
+    /**
+     * The values by pattern and changeSet, only created for keys with many values. Guarded by this instance.
+     */
+    private Map<ValueId, DomainSpecificValue> index;
     private DomainSpecificValueFactory domainSpecificValueFactory;
+    /**
+     * The ValuesStore epoch this instance was created in. Only instances of the current epoch are modified in place by the ValuesStore.
+     */
+    /*package*/ int epoch;
 
     public KeyValues(String key, final DomainSpecificValueFactory domainSpecificValueFactory) {
         this(key, domainSpecificValueFactory, null);
@@ -64,7 +83,7 @@ public class KeyValues {
             List<DomainSpecificValue> domainSpecificValues) {
         this(key, domainSpecificValueFactory, description);
         if (domainSpecificValues != null) {
-            this.domainSpecificValues.addAll(domainSpecificValues);
+            this.domainSpecificValues = sorted(domainSpecificValues);
         }
     }
 
@@ -81,45 +100,169 @@ public class KeyValues {
     }
 
     public DomainSpecificValue putWithChangeSet(final String changeSet, final Object value, final String... domainValues) {
+        DomainSpecificValue domainSpecificValue = domainSpecificValueFactory.create(value, changeSet, wildcardEmpty(domainValues));
+        put(domainSpecificValue);
+        return domainSpecificValue;
+    }
+
+    /**
+     * Replaces null or empty domain values with the wildcard "*". Changes the given array.
+     */
+    /*package*/ static String[] wildcardEmpty(final String[] domainValues) {
         Objects.requireNonNull(domainValues, "Domain key parts may no be null");
         for (int i = 0; i < domainValues.length; i++) {
             if (domainValues[i] == null || domainValues[i].trim().length() == 0) {
                 domainValues[i] = "*";
             }
         }
-        return addOrChangeDomainSpecificValue(changeSet, value, domainValues);
+        return domainValues;
     }
 
-    private DomainSpecificValue addOrChangeDomainSpecificValue(final String changeSet, final Object value, final String... domainValues) {
-        DomainSpecificValue domainSpecificValue = domainSpecificValueFactory.create(value, changeSet, domainValues);
-        if (domainSpecificValues.contains(domainSpecificValue)) {
-            domainSpecificValues.stream()
-                    .filter(dsv -> dsv.compareTo(domainSpecificValue) == 0)
-                    .forEach(dsv -> dsv.setValue(domainSpecificValue.getValue()));
-        } else {
-            domainSpecificValues.add(domainSpecificValue);
+    /**
+     * Adds the value or changes the value of the existing DomainSpecificValue with the same pattern and changeSet.
+     *
+     * @return the DomainSpecificValue now contained
+     */
+    /*package*/ synchronized DomainSpecificValue put(final DomainSpecificValue domainSpecificValue) {
+        final Map<ValueId, DomainSpecificValue> valuesById = index();
+        if (valuesById != null) {
+            final DomainSpecificValue existing = valuesById.get(ValueId.of(domainSpecificValue));
+            if (existing != null) {
+                existing.setValue(domainSpecificValue.getValue());
+                return existing;
+            }
+        }
+        final DomainSpecificValue[] current = domainSpecificValues;
+        final int position = Arrays.binarySearch(current, domainSpecificValue);
+        if (position >= 0) {
+            current[position].setValue(domainSpecificValue.getValue());
+            return current[position];
+        }
+        final int insertAt = -position - 1;
+        final DomainSpecificValue[] changed = new DomainSpecificValue[current.length + 1];
+        System.arraycopy(current, 0, changed, 0, insertAt);
+        changed[insertAt] = domainSpecificValue;
+        System.arraycopy(current, insertAt, changed, insertAt + 1, current.length - insertAt);
+        domainSpecificValues = changed;
+        if (valuesById != null) {
+            valuesById.put(ValueId.of(domainSpecificValue), domainSpecificValue);
         }
         return domainSpecificValue;
     }
 
+    /**
+     * Must be called while synchronized on this instance.
+     *
+     * @return the index of the values, created on first use, or null, when there are too few values to need one
+     */
+    private Map<ValueId, DomainSpecificValue> index() {
+        if (index == null) {
+            final DomainSpecificValue[] current = domainSpecificValues;
+            if (current.length < INDEX_THRESHOLD) {
+                return null;
+            }
+            index = new HashMap<>(current.length * 2);
+            for (DomainSpecificValue domainSpecificValue : current) {
+                index.put(ValueId.of(domainSpecificValue), domainSpecificValue);
+            }
+        }
+        return index;
+    }
+
+    /*package*/ synchronized boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * @return the values sorted by precedence, of values with the same pattern and changeSet only the first
+     */
+    private static DomainSpecificValue[] sorted(Collection<DomainSpecificValue> values) {
+        return values.isEmpty() ? NO_VALUES : new TreeSet<>(values).toArray(NO_VALUES);
+    }
+
+    /**
+     * Replaces the values with a copy without the removed values. Must be called while synchronized on this instance.
+     *
+     * @param removed values contained in this instance
+     */
+    private void removeFromValues(final Collection<DomainSpecificValue> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        final DomainSpecificValue[] current = domainSpecificValues;
+        final boolean[] isRemoved = new boolean[current.length];
+        for (DomainSpecificValue domainSpecificValue : removed) {
+            isRemoved[Arrays.binarySearch(current, domainSpecificValue)] = true;
+            if (index != null) {
+                index.remove(ValueId.of(domainSpecificValue));
+            }
+        }
+        final DomainSpecificValue[] changed = new DomainSpecificValue[current.length - removed.size()];
+        int i = 0;
+        for (int j = 0; j < current.length; j++) {
+            if (!isRemoved[j]) {
+                changed[i++] = current[j];
+            }
+        }
+        domainSpecificValues = changed.length == 0 ? NO_VALUES : changed;
+        if (changed.length < INDEX_THRESHOLD / 2) {
+            index = null;
+        }
+    }
+
     public <T> T get(Iterable<String> domains, T defaultValue, final DomainResolver resolver) {
+        final DomainSpecificValue domainSpecificValue = find(domains, resolver);
+        if (domainSpecificValue == null) {
+            return defaultValue;
+        }
+        @SuppressWarnings("unchecked") final T value = (T) domainSpecificValue.getValue();
+        return value;
+    }
+
+    /**
+     * Finds the DomainSpecificValue, that KeyValueResolver would use for the given domains and resolver.
+     *
+     * @return the best matching DomainSpecificValue or null, when no value matches
+     */
+    public DomainSpecificValue find(Iterable<String> domains, final DomainResolver resolver) {
         Objects.requireNonNull(domains, "\"domains\" must not be null");
         Iterator<String> domainsIterator = domains.iterator();
         if (domainsIterator.hasNext() && resolver == null) {
             throw new IllegalArgumentException("If a domain is specified, the domain resolver must not be null");
         }
-        String domainStr = buildDomain(domains, resolver);
+        final EncodedDomain domain = new EncodedDomain(resolveDomainValues(domains, resolver));
+        final Collection<String> activeChangeSets = resolver == null ? null : resolver.getActiveChangeSets();
         for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
-            if ((resolver == null || domainSpecificValue.isInChangeSets(resolver.getActiveChangeSets()))
-                    && domainSpecificValue.patternMatches(domainStr)) {
-                return (T) domainSpecificValue.getValue();
+            if ((activeChangeSets == null || domainSpecificValue.isInChangeSets(activeChangeSets))
+                    && domainSpecificValue.patternMatches(domain)) {
+                return domainSpecificValue;
             }
         }
-        return defaultValue;
+        return null;
     }
 
-    private static String buildDomain(final Iterable<String> domains, final DomainResolver resolver) {
-        StringBuilder builder = new StringBuilder();
+    /**
+     * @return number of values {@link #find(Iterable, DomainResolver)} looked at to find the given value, all values, when nothing was found
+     */
+    /*package*/ int countScanned(DomainSpecificValue found) {
+        int scanned = 0;
+        for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+            scanned++;
+            if (domainSpecificValue == found) {
+                break;
+            }
+        }
+        return scanned;
+    }
+
+    private static String[] resolveDomainValues(final Iterable<String> domains, final DomainResolver resolver) {
+        if (resolver instanceof ArrayBackedDomainResolver) {
+            final String[] resolvedValues = ((ArrayBackedDomainResolver) resolver).resolvedValuesFor(domains);
+            if (resolvedValues != null) {
+                return resolvedValues;
+            }
+        }
+        final List<String> domainValues = new ArrayList<>();
         for (String domain : domains) {
             String domainValue = resolver.getDomainValue(domain);
             if (domainValue == null) {
@@ -128,9 +271,9 @@ public class KeyValues {
             if (domainValue.contains(DOMAIN_SEPARATOR)) {
                 throw new IllegalArgumentException("domainValues may not contain '" + DOMAIN_SEPARATOR + '\'');
             }
-            builder.append(domainValue).append(DOMAIN_SEPARATOR);
+            domainValues.add(domainValue);
         }
-        return builder.toString();
+        return domainValues.toArray(new String[0]);
     }
 
     public String getDescription() {
@@ -152,42 +295,49 @@ public class KeyValues {
         return builder.toString();
     }
 
+    /**
+     * @return an unmodifiable view of the current values, sorted by precedence, that is not affected by later changes
+     */
     public Set<DomainSpecificValue> getDomainSpecificValues() {
-        return Collections.unmodifiableSet(domainSpecificValues);
+        return new SortedValues(domainSpecificValues);
     }
 
     public void setDomainSpecificValueFactory(final DomainSpecificValueFactory domainSpecificValueFactory) {
         this.domainSpecificValueFactory = domainSpecificValueFactory;
     }
 
-    public DomainSpecificValue remove(final String changeSet, final String[] domainValues) {
+    public synchronized DomainSpecificValue remove(final String changeSet, final String[] domainValues) {
         StringBuilder builder = new StringBuilder(domainValues.length * 8);
         for (String domainValue : domainValues) {
             builder.append(domainValue).append(DOMAIN_SEPARATOR);
         }
         final String pattern = builder.toString();
 
-        Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
-        while (iterator.hasNext()) {
-            DomainSpecificValue value = iterator.next();
+        final Map<ValueId, DomainSpecificValue> valuesById = index();
+        if (valuesById != null) {
+            final DomainSpecificValue value = valuesById.get(new ValueId(pattern, changeSet));
+            if (value != null) {
+                removeFromValues(List.of(value));
+            }
+            return value;
+        }
+        for (DomainSpecificValue value : domainSpecificValues) {
             if (value.changeSetIs(changeSet) && pattern.equals(value.getPattern())) {
-                iterator.remove();
+                removeFromValues(List.of(value));
                 return value;
             }
         }
         return null;
     }
 
-    public Collection<DomainSpecificValue> removeChangeSet(final String changeSet) {
-        Collection<DomainSpecificValue> removedValues = new ArrayList<>(domainSpecificValues.size());
-        Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
-        while (iterator.hasNext()) {
-            DomainSpecificValue value = iterator.next();
+    public synchronized Collection<DomainSpecificValue> removeChangeSet(final String changeSet) {
+        Collection<DomainSpecificValue> removedValues = new ArrayList<>();
+        for (DomainSpecificValue value : domainSpecificValues) {
             if (value.changeSetIs(changeSet)) {
                 removedValues.add(value);
-                iterator.remove();
             }
         }
+        removeFromValues(removedValues);
         return removedValues;
     }
 
@@ -195,11 +345,27 @@ public class KeyValues {
         return key;
     }
 
+    /**
+     * Creates a copy with copies of all DomainSpecificValues, so that it can be modified without affecting this instance.
+     */
+    /*package*/ KeyValues copy() {
+        KeyValues result = new KeyValues(key, domainSpecificValueFactory, description);
+        final DomainSpecificValue[] current = domainSpecificValues;
+        final DomainSpecificValue[] copies = current.length == 0 ? NO_VALUES : new DomainSpecificValue[current.length];
+        for (int i = 0; i < current.length; i++) {
+            copies[i] = current[i].copy();
+        }
+        result.domainSpecificValues = copies;
+        return result;
+    }
+
     public KeyValues copy(List<String> domains, DomainResolver... resolvers) {
         KeyValues result = new KeyValues(key, domainSpecificValueFactory, description);
+        final List<DomainSpecificValue> values = new ArrayList<>();
         for (DomainResolver resolver : resolvers) {
-            result.domainSpecificValues.addAll(findMatchingValues(domains, resolver));
+            values.addAll(findMatchingValues(domains, resolver));
         }
+        result.domainSpecificValues = sorted(values);
         return result;
     }
 
@@ -207,7 +373,7 @@ public class KeyValues {
         Matcher matcher = buildMatcher(domains, true, resolver);
 
         final Map<String, DomainSpecificValue> dvPatternMap = new HashMap<>();
-        domainSpecificValues.stream()
+        Arrays.stream(domainSpecificValues)
                 .filter(val -> val.patternMatches(matcher, resolver))
                 .forEach(newDomainValue -> dvPatternMap.compute(newDomainValue.getPattern(), (k, existingDomainValue) -> {
                     if (existingDomainValue == null) {
@@ -292,13 +458,78 @@ public class KeyValues {
         return new RegexMatcher(builder.toString());
     }
 
-    public Collection<DomainSpecificValue> removeAll(List<String> domains, DomainResolver resolver) {
+    public synchronized Collection<DomainSpecificValue> removeAll(List<String> domains, DomainResolver resolver) {
         final Collection<DomainSpecificValue> matchingValues = findMatchingValues(domains, resolver);
-        this.domainSpecificValues.removeAll(matchingValues);
+        removeFromValues(matchingValues);
         return matchingValues;
     }
 
     public boolean isEmpty() {
-        return domainSpecificValues.isEmpty();
+        return domainSpecificValues.length == 0;
+    }
+
+    /**
+     * Identifies a DomainSpecificValue within a KeyValues, like its ordering does.
+     */
+    private static final class ValueId {
+
+        private final String pattern;
+        private final String changeSet;
+
+        private ValueId(String pattern, String changeSet) {
+            this.pattern = pattern;
+            this.changeSet = changeSet;
+        }
+
+        private static ValueId of(DomainSpecificValue domainSpecificValue) {
+            return new ValueId(domainSpecificValue.getPattern(), domainSpecificValue.getChangeSet());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ValueId)) {
+                return false;
+            }
+            ValueId that = (ValueId) o;
+            return pattern.equals(that.pattern) && Objects.equals(changeSet, that.changeSet);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * pattern.hashCode() + Objects.hashCode(changeSet);
+        }
+    }
+
+    /**
+     * Read only Set view of one version of the values array.
+     */
+    private static final class SortedValues extends AbstractSet<DomainSpecificValue> {
+
+        private final DomainSpecificValue[] values;
+
+        private SortedValues(DomainSpecificValue[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Iterator<DomainSpecificValue> iterator() {
+            return Collections.unmodifiableList(Arrays.asList(values)).iterator();
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * Like the sorted set used before, values with the same pattern and changeSet are considered equal.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof DomainSpecificValue && Arrays.binarySearch(values, (DomainSpecificValue) o) >= 0;
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds with one bucket per power of two. Recording is a single increment of a striped
+ * counter, so it is cheap enough to be always on. Percentiles are reported as the upper bound of their bucket, so they are at most twice
+ * the real value.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double getMeanNanos() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket containing the percentile or 0, when nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("\"percentile\" must be between 0 and 100, but was: " + percentile);
+        }
+        final long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Bucket i contains the values from 2^(i-1) to 2^i - 1, bucket 0 only contains 0.
+     */
+    private static long upperBound(int bucket) {
+        return (1L << bucket) - 1;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50) + "ns, p99="
+                + getPercentileNanos(99) + "ns}";
+    }
+}
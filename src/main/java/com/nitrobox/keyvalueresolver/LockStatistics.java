@@ -0,0 +1,110 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wait and hold times of a {@link ReadWriteLockTool} per lock mode and calling operation, and samples of the number of threads waiting
+ * for the lock. Only recorded, while it is set on the ReadWriteLockTool.
+ */
+public final class LockStatistics {
+
+    private final Map<String, Times> times = new ConcurrentHashMap<>();
+    private final LongAdder queueLengthSum = new LongAdder();
+    private final LongAdder queueLengthSamples = new LongAdder();
+    private final LongAccumulator maxQueueLength = new LongAccumulator(Math::max, 0);
+
+    /*package*/ void recordWait(boolean write, String operation, long nanos) {
+        times(write, operation).wait.record(nanos);
+    }
+
+    /*package*/ void recordHold(boolean write, String operation, long nanos) {
+        times(write, operation).hold.record(nanos);
+    }
+
+    private Times times(boolean write, String operation) {
+        return times.computeIfAbsent(name(write, operation), name -> new Times());
+    }
+
+    /*package*/ void sampleQueueLength(int queueLength) {
+        queueLengthSum.add(queueLength);
+        queueLengthSamples.increment();
+        maxQueueLength.accumulate(queueLength);
+    }
+
+    private static String name(boolean write, String operation) {
+        return (write ? "write:" : "read:") + operation;
+    }
+
+    /**
+     * @return the wait times by "read:operation" and "write:operation"
+     */
+    public Map<String, LatencyHistogram> getWaitTimes() {
+        final Map<String, LatencyHistogram> result = new TreeMap<>();
+        times.forEach((name, operationTimes) -> result.put(name, operationTimes.wait));
+        return result;
+    }
+
+    /**
+     * @return the hold times by "read:operation" and "write:operation"
+     */
+    public Map<String, LatencyHistogram> getHoldTimes() {
+        final Map<String, LatencyHistogram> result = new TreeMap<>();
+        times.forEach((name, operationTimes) -> result.put(name, operationTimes.hold));
+        return result;
+    }
+
+    /**
+     * @return average number of threads waiting for the lock, when a thread tried to acquire it
+     */
+    public double getAverageQueueLength() {
+        final long samples = queueLengthSamples.sum();
+        return samples == 0 ? 0 : (double) queueLengthSum.sum() / samples;
+    }
+
+    public long getMaxQueueLength() {
+        return maxQueueLength.get();
+    }
+
+    public void reset() {
+        times.clear();
+        queueLengthSum.reset();
+        queueLengthSamples.reset();
+        maxQueueLength.reset();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("LockStatistics{");
+        getWaitTimes().forEach((name, wait) -> builder.append("\n\t").append(name).append(": wait=").append(wait)
+                .append(", hold=").append(times.get(name).hold));
+        return builder.append("\n\taverageQueueLength=").append(getAverageQueueLength()).append(", maxQueueLength=")
+                .append(getMaxQueueLength()).append("\n}").toString();
+    }
+
+    private static final class Times {
+
+        private final LatencyHistogram wait = new LatencyHistogram();
+        private final LatencyHistogram hold = new LatencyHistogram();
+    }
+}
@@ -1,11 +1,9 @@
 package com.nitrobox.keyvalueresolver;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.IntStream;
-import org.apache.commons.lang3.tuple.Pair;
 
 public class MapBackedDomainValues implements DomainValues{
 
@@ -15,14 +13,17 @@ public class MapBackedDomainValues implements DomainValues{
 
     @Override
     public String[] getDomainValues(List<String> domains) {
-        String[] domainValues = new String[Math.min(domains.size(), map.size())];
-        IntStream.range(0,domains.size())
-                .boxed()
-                .map(index -> Pair.of(index, domains.get(index)))
-                .map(pair -> Pair.of(pair.getKey(),map.get(pair.getValue())))
-                .filter(pair -> Objects.nonNull(pair.getValue()))
-                .forEach(pair -> domainValues[pair.getKey()]= pair.getValue());
-        return domainValues;
+        final String[] domainValues = new String[domains.size()];
+        int length = 0;
+        for (int i = 0; i < domains.size(); i++) {
+            final String domainValue = map.get(domains.get(i));
+            if (domainValue != null) {
+                domainValues[i] = domainValue;
+                length = i + 1;
+            }
+        }
+        // trailing domains without value are left out, like for the values given by position
+        return length == domainValues.length ? domainValues : Arrays.copyOf(domainValues, length);
     }
 
     public MapBackedDomainValues set(final String domain, final String domainValue) {
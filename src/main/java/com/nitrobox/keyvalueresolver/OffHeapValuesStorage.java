@@ -0,0 +1,466 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValuesStorage}, that keeps keys, descriptions and String values in off heap memory. KeyValues are decoded lazily, whenever
+ * they are accessed, so every access creates new KeyValues instances. Values, that are not Strings, stay on the heap, like the patterns
+ * and changeSets, which are shared by all decoded values.
+ * <p>
+ * Usage: {@code new ValuesStore(new OffHeapValuesStorage())}
+ */
+public class OffHeapValuesStorage implements ValuesStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapValuesStorage.class);
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte HEAP_VALUE = 2;
+
+    private final int segmentSize;
+    private volatile Segments segments = new Encoder(1).encode(List.of(), null);
+
+    public OffHeapValuesStorage() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize size in bytes of the direct buffers allocated for the encoded KeyValues. KeyValues larger than a segment get a
+     *                    segment of their own.
+     */
+    public OffHeapValuesStorage(int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("\"segmentSize\" must be positive, but was: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void setAll(Collection<? extends KeyValues> values, DomainSpecificValueFactory domainSpecificValueFactory) {
+        final Segments encoded = new Encoder(segmentSize).encode(values, domainSpecificValueFactory);
+        segments = encoded;
+        LOGGER.info("Encoded {} keys with {} values into {} bytes off heap, keeping {} values on heap", encoded.keyCount,
+                encoded.valueCount, encoded.offHeapBytes(), encoded.heapValues.length);
+    }
+
+    /**
+     * The encoded values are immutable, so the view is just the current image. There is no index of the keys, so prefix queries scan all
+     * keys.
+     */
+    @Override
+    public ValuesStore.ValuesView view() {
+        return segments;
+    }
+
+    /**
+     * @return the key count and the size of every segment
+     */
+    @Override
+    public List<ShardStatistics> getStatistics() {
+        final Segments current = segments;
+        final List<ShardStatistics> result = new ArrayList<>(current.buffers.length);
+        for (int i = 0; i < current.buffers.length; i++) {
+            result.add(new ShardStatistics(i, current.segmentKeyCounts[i], 0, 0, current.buffers[i].capacity()));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of bytes allocated off heap for the currently stored KeyValues, including the hash table of the keys
+     */
+    public long getOffHeapBytes() {
+        return segments.offHeapBytes();
+    }
+
+    /**
+     * @return number of values, that could not be encoded and are kept on the heap
+     */
+    public int getHeapValueCount() {
+        return segments.heapValues.length;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * An immutable image of all KeyValues. Entries are addressed by a long with the segment index in the upper and the offset in the
+     * lower 32 bits. The hash table is open addressed with linear probing and stores address + 1, so that 0 marks an empty slot.
+     * <p>
+     * Patterns and changeSets are referenced by their id. The DomainPatterns of the encoded values are kept, so decoding neither parses
+     * patterns nor looks them up.
+     */
+    private static final class Segments implements ValuesStore.ValuesView {
+
+        private final ByteBuffer[] buffers;
+        private final int[] segmentKeyCounts;
+        private final LongBuffer table;
+        private final IntBuffer hashes;
+        private final int mask;
+        private final int keyCount;
+        private final long valueCount;
+        private final DomainPattern[] patterns;
+        private final String[] changeSets;
+        private final Object[] heapValues;
+        private final DomainSpecificValueFactory factory;
+
+        private Segments(Encoder encoder, LongBuffer table, IntBuffer hashes, int keyCount, DomainSpecificValueFactory factory) {
+            this.buffers = encoder.buffers.toArray(new ByteBuffer[0]);
+            this.segmentKeyCounts = encoder.segmentKeyCounts.stream().mapToInt(Integer::intValue).toArray();
+            this.table = table;
+            this.hashes = hashes;
+            this.mask = table.capacity() - 1;
+            this.keyCount = keyCount;
+            this.valueCount = encoder.valueCount;
+            this.patterns = encoder.patterns.toArray(new DomainPattern[0]);
+            this.changeSets = encoder.changeSets.toArray(new String[0]);
+            this.heapValues = encoder.heapValues.toArray();
+            this.factory = factory;
+        }
+
+        @Override
+        public KeyValues getValuesFor(String key) {
+            final int hash = spread(key.hashCode());
+            final byte[] keyBytes = key.getBytes(UTF_8);
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                final long entry = table.get(slot);
+                if (entry == 0) {
+                    return null;
+                }
+                if (hashes.get(slot) == hash) {
+                    final Input input = input(entry - 1);
+                    if (input.nextBytesEqual(keyBytes)) {
+                        return decode(key, input);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Collection<KeyValues> getAllValues() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<KeyValues> iterator() {
+                    return new Iterator<>() {
+                        private int slot = nextSlot(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return slot < table.capacity();
+                        }
+
+                        @Override
+                        public KeyValues next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final Input input = input(table.get(slot) - 1);
+                            slot = nextSlot(slot + 1);
+                            return decode(input.readString(), input);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keyCount;
+                }
+            };
+        }
+
+        private int nextSlot(int from) {
+            int slot = from;
+            while (slot < table.capacity() && table.get(slot) == 0) {
+                slot++;
+            }
+            return slot;
+        }
+
+        private Input input(long address) {
+            return new Input(buffers[(int) (address >>> 32)], (int) address);
+        }
+
+        private KeyValues decode(String key, Input input) {
+            final String description = input.readString();
+            final int count = input.readVarInt();
+            final List<DomainSpecificValue> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int changeSetId = input.readVarInt();
+                final String changeSet = changeSetId == 0 ? null : changeSets[changeSetId - 1];
+                final DomainPattern pattern = patterns[input.readVarInt()];
+                values.add(DomainSpecificValue.withDomainPattern(pattern, readValue(input), changeSet));
+            }
+            return new KeyValues(key, factory, description, values);
+        }
+
+        private Object readValue(Input input) {
+            final byte tag = input.readByte();
+            switch (tag) {
+                case NULL_VALUE:
+                    return null;
+                case STRING_VALUE:
+                    return input.readString();
+                case HEAP_VALUE:
+                    return heapValues[input.readVarInt()];
+                default:
+                    throw new IllegalStateException("Unknown value tag: " + tag);
+            }
+        }
+
+        long offHeapBytes() {
+            long bytes = (long) table.capacity() * (Long.BYTES + Integer.BYTES);
+            for (ByteBuffer buffer : buffers) {
+                bytes += buffer.capacity();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Encodes KeyValues into direct ByteBuffers. Lengths and ids are written as variable length ints, patterns and changeSets are
+     * collected once and referenced by id. ChangeSet ids start at 1, so that 0 stands for no changeSet.
+     */
+    private static final class Encoder {
+
+        private final int segmentSize;
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private final List<Integer> segmentKeyCounts = new ArrayList<>();
+        // DomainPatterns are shared, but patterns with a different ordering are not, so they are told apart by identity
+        private final Map<DomainPattern, Integer> patternIds = new IdentityHashMap<>();
+        private final List<DomainPattern> patterns = new ArrayList<>();
+        private final Map<String, Integer> changeSetIds = new HashMap<>();
+        private final List<String> changeSets = new ArrayList<>();
+        private final List<Object> heapValues = new ArrayList<>();
+        private final Output output = new Output();
+        private ByteBuffer current;
+        private long valueCount;
+
+        Encoder(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        Segments encode(Collection<? extends KeyValues> values, DomainSpecificValueFactory factory) {
+            final Map<String, KeyValues> byKey = new LinkedHashMap<>();
+            values.forEach(kv -> byKey.put(kv.getKey(), kv));
+            final int capacity = Math.max(2, Integer.highestOneBit(Math.max(1, byKey.size()) * 2 - 1) << 1);
+            final LongBuffer table = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            final IntBuffer hashes = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+            final int mask = capacity - 1;
+            for (KeyValues keyValues : byKey.values()) {
+                final long address = write(keyValues);
+                final int hash = spread(keyValues.getKey().hashCode());
+                int slot = hash & mask;
+                while (table.get(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.put(slot, address + 1);
+                hashes.put(slot, hash);
+            }
+            if (current != null) {
+                trimCurrentSegment();
+            }
+            return new Segments(this, table, hashes, byKey.size(), factory);
+        }
+
+        private long write(KeyValues keyValues) {
+            output.reset();
+            output.writeString(keyValues.getKey());
+            output.writeString(keyValues.getDescription());
+            final Collection<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+            output.writeVarInt(domainSpecificValues.size());
+            for (DomainSpecificValue value : domainSpecificValues) {
+                output.writeVarInt(changeSetId(value.getChangeSet()));
+                output.writeVarInt(patternId(value.getDomainPattern()));
+                writeValue(value.getValue());
+                valueCount++;
+            }
+            if (current == null || current.remaining() < output.length) {
+                if (current != null) {
+                    trimCurrentSegment();
+                }
+                current = ByteBuffer.allocateDirect(Math.max(segmentSize, output.length));
+                buffers.add(current);
+                segmentKeyCounts.add(0);
+            }
+            final int segment = buffers.size() - 1;
+            segmentKeyCounts.set(segment, segmentKeyCounts.get(segment) + 1);
+            final long address = ((long) segment << 32) | current.position();
+            current.put(output.bytes, 0, output.length);
+            return address;
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                output.writeByte(NULL_VALUE);
+            } else if (value instanceof String) {
+                output.writeByte(STRING_VALUE);
+                output.writeString((String) value);
+            } else {
+                output.writeByte(HEAP_VALUE);
+                output.writeVarInt(heapValues.size());
+                heapValues.add(value);
+            }
+        }
+
+        private int changeSetId(String changeSet) {
+            if (changeSet == null) {
+                return 0;
+            }
+            return changeSetIds.computeIfAbsent(changeSet, k -> {
+                changeSets.add(k);
+                return changeSets.size();
+            });
+        }
+
+        private int patternId(DomainPattern pattern) {
+            return patternIds.computeIfAbsent(pattern, k -> {
+                patterns.add(k);
+                return patterns.size() - 1;
+            });
+        }
+
+        private void trimCurrentSegment() {
+            if (current.remaining() > 0) {
+                final ByteBuffer trimmed = ByteBuffer.allocateDirect(current.position());
+                current.flip();
+                trimmed.put(current);
+                buffers.set(buffers.size() - 1, trimmed);
+            }
+            current = null;
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            int v = value;
+            while ((v & ~0x7F) != 0) {
+                writeByte((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            writeByte(v);
+        }
+
+        /**
+         * Writes a nullable String as its length + 1 (0 for null) followed by its UTF-8 bytes.
+         */
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            final byte[] encoded = s.getBytes(UTF_8);
+            writeVarInt(encoded.length + 1);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final ByteBuffer buffer;
+
+        Input(ByteBuffer segment, int offset) {
+            this.buffer = segment.duplicate();
+            this.buffer.position(offset);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            final int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            final byte[] bytes = new byte[length - 1];
+            buffer.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        /**
+         * Compares the next String with the provided bytes and skips it, when it is equal.
+         */
+        boolean nextBytesEqual(byte[] expected) {
+            final int start = buffer.position();
+            if (readVarInt() != expected.length + 1) {
+                return false;
+            }
+            final int offset = buffer.position();
+            for (int i = 0; i < expected.length; i++) {
+                if (buffer.get(offset + i) != expected[i]) {
+                    buffer.position(start);
+                    return false;
+                }
+            }
+            buffer.position(offset + expected.length);
+            return true;
+        }
+    }
+}
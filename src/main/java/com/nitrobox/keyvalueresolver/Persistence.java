@@ -66,4 +66,17 @@ public interface Persistence {
      * @param domainSpecificValue the DomainSpecificValue to remove
      */
     void remove(String key, DomainSpecificValue domainSpecificValue);
+
+    /**
+     * Apply several changes at once. Is called by KeyValueResolver for operations changing more than a single value. Implementations
+     * should override this to write all changes in a single round trip. The default implementation calls remove and store for each
+     * change in the order documented in {@link PersistenceBatch}.
+     *
+     * @param batch the changes to apply
+     */
+    default void apply(PersistenceBatch batch) {
+        batch.getRemovedKeys().forEach(this::remove);
+        batch.getRemovedValues().forEach(change -> remove(change.getKey(), change.getDomainSpecificValue()));
+        batch.getStoredValues().forEach(change -> store(change.getKey(), change.getKeyValues(), change.getDomainSpecificValue()));
+    }
 }
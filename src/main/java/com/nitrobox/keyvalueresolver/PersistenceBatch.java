@@ -0,0 +1,109 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of changes, that is passed to {@link Persistence#apply(PersistenceBatch)} to be written at once. The changes must be applied
+ * in this order: first the removed keys, then the removed values and last the stored values. A batch never contains more than one
+ * change for the same value.
+ */
+public final class PersistenceBatch {
+
+    private final List<String> removedKeys = new ArrayList<>();
+    private final List<Change> removedValues = new ArrayList<>();
+    private final List<Change> storedValues = new ArrayList<>();
+
+    public PersistenceBatch removeKey(String key) {
+        removedKeys.add(key);
+        return this;
+    }
+
+    public PersistenceBatch remove(String key, DomainSpecificValue domainSpecificValue) {
+        removedValues.add(new Change(key, null, domainSpecificValue));
+        return this;
+    }
+
+    public PersistenceBatch removeAll(String key, Collection<DomainSpecificValue> domainSpecificValues) {
+        domainSpecificValues.forEach(domainSpecificValue -> remove(key, domainSpecificValue));
+        return this;
+    }
+
+    public PersistenceBatch store(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+        storedValues.add(new Change(key, keyValues, domainSpecificValue));
+        return this;
+    }
+
+    public List<String> getRemovedKeys() {
+        return Collections.unmodifiableList(removedKeys);
+    }
+
+    public List<Change> getRemovedValues() {
+        return Collections.unmodifiableList(removedValues);
+    }
+
+    public List<Change> getStoredValues() {
+        return Collections.unmodifiableList(storedValues);
+    }
+
+    public boolean isEmpty() {
+        return removedKeys.isEmpty() && removedValues.isEmpty() && storedValues.isEmpty();
+    }
+
+    public int size() {
+        return removedKeys.size() + removedValues.size() + storedValues.size();
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceBatch{removedKeys=" + removedKeys.size() + ", removedValues=" + removedValues.size() + ", storedValues="
+                + storedValues.size() + '}';
+    }
+
+    /**
+     * A single value to remove or store. KeyValues are only present for stored values.
+     */
+    public static final class Change {
+
+        private final String key;
+        private final KeyValues keyValues;
+        private final DomainSpecificValue domainSpecificValue;
+
+        private Change(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+            this.key = key;
+            this.keyValues = keyValues;
+            this.domainSpecificValue = domainSpecificValue;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public KeyValues getKeyValues() {
+            return keyValues;
+        }
+
+        public DomainSpecificValue getDomainSpecificValue() {
+            return domainSpecificValue;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash array mapped trie. Every modification returns a new map, that shares all unchanged nodes with the previous one, so
+ * old versions stay valid and cost only the nodes on the changed paths. Keys and values must not be null.
+ * <p>
+ * A {@link Builder} modifies nodes it created itself in place, which makes bulk loads cheap. Nodes of the map the Builder started from are
+ * copied on their first modification.
+ */
+/*package*/ final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ V get(Object key) {
+        return root == null ? null : (V) root.find(0, hash(key), key);
+    }
+
+    /*package*/ boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /*package*/ PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value, "\"value\" must not be null");
+        final boolean[] added = new boolean[1];
+        final Node base = root == null ? BitmapNode.EMPTY : root;
+        final Node newRoot = base.assoc(null, 0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /*package*/ PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+        final boolean[] removed = new boolean[1];
+        final Node newRoot = root.without(null, 0, hash(key), key, removed);
+        if (!removed[0]) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    /*package*/ int size() {
+        return size;
+    }
+
+    /*package*/ boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*package*/ Builder<K, V> toBuilder() {
+        return new Builder<>(root, size);
+    }
+
+    /**
+     * @return an unmodifiable view of the values of this version of the map
+     */
+    /*package*/ Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new NodeIterator<>(root, false);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /*package*/ Iterable<K> keys() {
+        return () -> new NodeIterator<>(root, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Collects modifications and creates a new PersistentHashMap from them. A Builder must only be used by one thread and not after
+     * {@link #build()}.
+     */
+    /*package*/ static final class Builder<K, V> {
+
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /*package*/ Builder<K, V> put(K key, V value) {
+            Objects.requireNonNull(value, "\"value\" must not be null");
+            ensureEditable();
+            final boolean[] added = new boolean[1];
+            root = (root == null ? BitmapNode.EMPTY : root).assoc(edit, 0, hash(key), key, value, added);
+            if (added[0]) {
+                size++;
+            }
+            return this;
+        }
+
+        /*package*/ Builder<K, V> remove(Object key) {
+            ensureEditable();
+            if (root != null) {
+                final boolean[] removed = new boolean[1];
+                root = root.without(edit, 0, hash(key), key, removed);
+                if (removed[0]) {
+                    size--;
+                }
+            }
+            return this;
+        }
+
+        /*package*/ PersistentHashMap<K, V> build() {
+            ensureEditable();
+            edit = null;
+            return root == null ? empty() : new PersistentHashMap<>(root, size);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Builder was already used to build a map");
+            }
+        }
+    }
+
+    /**
+     * Nodes keep their entries in an array of key value pairs. A null key marks a pair, whose value is a sub node.
+     */
+    private abstract static class Node {
+
+        final Object edit;
+        Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        boolean isEditable(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return the node without the key or null, when the node became empty
+         */
+        abstract Node without(Object edit, int shift, int hash, Object key, boolean[] removed);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                final Object key = array[i];
+                final Object value = array[i + 1];
+                if (key != null) {
+                    action.accept(key, value);
+                } else if (value != null) {
+                    ((Node) value).forEach(action);
+                }
+            }
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            final int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final int index = 2 * index(bit);
+            final Object k = array[index];
+            final Object v = array[index + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? v : null;
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            final int bit = bitpos(hash, shift);
+            final int index = index(bit);
+            if ((bitmap & bit) != 0) {
+                final Object k = array[2 * index];
+                final Object v = array[2 * index + 1];
+                if (k == null) {
+                    final Node node = ((Node) v).assoc(edit, shift + BITS, hash, key, value, added);
+                    return node == v ? this : set(edit, 2 * index + 1, node);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : set(edit, 2 * index + 1, value);
+                }
+                added[0] = true;
+                final Node node = createNode(edit, shift + BITS, k, v, hash, key, value);
+                final BitmapNode result = (BitmapNode) set(edit, 2 * index, null);
+                result.array[2 * index + 1] = node;
+                return result;
+            }
+            added[0] = true;
+            final int count = Integer.bitCount(bitmap);
+            if (isEditable(edit) && 2 * count < array.length) {
+                System.arraycopy(array, 2 * index, array, 2 * (index + 1), 2 * (count - index));
+                array[2 * index] = key;
+                array[2 * index + 1] = value;
+                bitmap |= bit;
+                return this;
+            }
+            // builders reserve room for further entries
+            final Object[] newArray = new Object[2 * (edit != null ? Math.min(count + 4, 32) : count + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = value;
+            System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (count - index));
+            return new BitmapNode(edit, bitmap | bit, newArray);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            final int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int index = index(bit);
+            final Object k = array[2 * index];
+            final Object v = array[2 * index + 1];
+            if (k == null) {
+                final Node node = ((Node) v).without(edit, shift + BITS, hash, key, removed);
+                if (node == v) {
+                    return this;
+                }
+                if (node != null) {
+                    return set(edit, 2 * index + 1, node);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            } else {
+                removed[0] = true;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            final int count = Integer.bitCount(bitmap);
+            if (isEditable(edit)) {
+                System.arraycopy(array, 2 * (index + 1), array, 2 * index, 2 * (count - index - 1));
+                array[2 * count - 2] = null;
+                array[2 * count - 1] = null;
+                bitmap ^= bit;
+                return this;
+            }
+            final Object[] newArray = new Object[2 * (count - 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * (index + 1), newArray, 2 * index, 2 * (count - index - 1));
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+
+        private Node set(Object edit, int index, Object value) {
+            if (isEditable(edit)) {
+                array[index] = value;
+                return this;
+            }
+            final Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new BitmapNode(edit, bitmap, newArray);
+        }
+
+        private static Node createNode(Object edit, int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            final int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+            }
+            final boolean[] added = new boolean[1];
+            return EMPTY
+                    .assoc(edit, shift, hash1, key1, value1, added)
+                    .assoc(edit, shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Holds keys with the same hash. Collisions are rare, so the array is always copied.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            final int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                return new BitmapNode(edit, bitpos(this.hash, shift), new Object[]{null, this})
+                        .assoc(edit, shift, hash, key, value, added);
+            }
+            final int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                final Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(edit, hash, newArray);
+            }
+            added[0] = true;
+            final Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            removed[0] = true;
+            if (array.length == 2) {
+                return null;
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(edit, hash, newArray);
+        }
+    }
+
+    /**
+     * Walks the trie depth first with an explicit stack.
+     */
+    private static final class NodeIterator<T> implements Iterator<T> {
+
+        private final boolean keys;
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Object[] array;
+        private int position;
+        private Object next;
+
+        NodeIterator(Node root, boolean keys) {
+            this.keys = keys;
+            this.array = root == null ? new Object[0] : root.array;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (true) {
+                while (position < array.length) {
+                    final Object key = array[position];
+                    final Object value = array[position + 1];
+                    position += 2;
+                    if (key != null) {
+                        next = keys ? key : value;
+                        return;
+                    } else if (value != null) {
+                        arrays.push(array);
+                        positions.push(position);
+                        array = ((Node) value).array;
+                        position = 0;
+                    }
+                }
+                if (arrays.isEmpty()) {
+                    return;
+                }
+                array = arrays.pop();
+                position = positions.pop();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final T result = (T) next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -22,49 +22,130 @@
 package com.nitrobox.keyvalueresolver;
 
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
+/**
+ * Runs code under the read or write lock of a ReentrantReadWriteLock. With {@link #setStatistics(LockStatistics)} wait and hold times
+ * are recorded per lock mode and operation. Without statistics, the only overhead is reading a volatile field.
+ */
 public class ReadWriteLockTool {
 
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private static final String UNNAMED = "unnamed";
+
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
     private final Lock readLock = readWriteLock.readLock();
     private final Lock writeLock = readWriteLock.writeLock();
+    private volatile LockStatistics statistics;
 
     public <T> T readLocked(Supplier<T> supplier) {
-        readLock.lock();
-        try {
-            return supplier.get();
-        } finally {
-            readLock.unlock();
-        }
+        return readLocked(UNNAMED, supplier);
+    }
+
+    public <T> T readLocked(String operation, Supplier<T> supplier) {
+        return locked(readLock, false, operation, supplier);
     }
 
     public void readLocked(Runnable runnable) {
-        readLock.lock();
-        try {
-            runnable.run();
-        } finally {
-            readLock.unlock();
-        }
+        readLocked(UNNAMED, runnable);
+    }
+
+    public void readLocked(String operation, Runnable runnable) {
+        locked(readLock, false, operation, runnable);
     }
 
     public <T> T writeLocked(Supplier<T> supplier) {
-        writeLock.lock();
+        return writeLocked(UNNAMED, supplier);
+    }
+
+    public <T> T writeLocked(String operation, Supplier<T> supplier) {
+        return locked(writeLock, true, operation, supplier);
+    }
+
+    public void writeLocked(Runnable runnable) {
+        writeLocked(UNNAMED, runnable);
+    }
+
+    public void writeLocked(String operation, Runnable runnable) {
+        locked(writeLock, true, operation, runnable);
+    }
+
+    /**
+     * @param statistics statistics to record into or null to stop recording
+     */
+    public void setStatistics(LockStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public LockStatistics getStatistics() {
+        return statistics;
+    }
+
+    private <T> T locked(Lock lock, boolean write, String operation, Supplier<T> supplier) {
+        final LockStatistics currentStatistics = statistics;
+        if (currentStatistics == null) {
+            lock(lock, write);
+            try {
+                return supplier.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+        final long acquired = lockInstrumented(lock, write, operation, currentStatistics);
         try {
             return supplier.get();
         } finally {
-            writeLock.unlock();
+            unlockInstrumented(lock, write, operation, currentStatistics, acquired);
         }
     }
 
-    public void writeLocked(Runnable runnable) {
-        writeLock.lock();
+    private void locked(Lock lock, boolean write, String operation, Runnable runnable) {
+        final LockStatistics currentStatistics = statistics;
+        if (currentStatistics == null) {
+            lock(lock, write);
+            try {
+                runnable.run();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        final long acquired = lockInstrumented(lock, write, operation, currentStatistics);
         try {
             runnable.run();
         } finally {
-            writeLock.unlock();
+            unlockInstrumented(lock, write, operation, currentStatistics, acquired);
+        }
+    }
+
+    /**
+     * @return the time the lock was acquired
+     */
+    private long lockInstrumented(Lock lock, boolean write, String operation, LockStatistics currentStatistics) {
+        currentStatistics.sampleQueueLength(readWriteLock.getQueueLength());
+        final long start = System.nanoTime();
+        lock(lock, write);
+        final long acquired = System.nanoTime();
+        currentStatistics.recordWait(write, operation, acquired - start);
+        return acquired;
+    }
+
+    private static void unlockInstrumented(Lock lock, boolean write, String operation, LockStatistics currentStatistics, long acquired) {
+        lock.unlock();
+        currentStatistics.recordHold(write, operation, System.nanoTime() - acquired);
+    }
+
+    /**
+     * Acquires the lock and records a {@link LockWaitEvent}, when the wait took longer than its threshold.
+     */
+    private static void lock(Lock lock, boolean write) {
+        final LockWaitEvent event = new LockWaitEvent();
+        event.begin();
+        lock.lock();
+        event.end();
+        if (event.shouldCommit()) {
+            event.write = write;
+            event.commit();
         }
     }
 }
@@ -0,0 +1,42 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A reload of all values from the persistence.
+ */
+@Name("com.nitrobox.keyvalueresolver.Reload")
+@Label("Reload")
+@Category("KeyValueResolver")
+@Description("Reload of all values from the persistence")
+@Threshold("0 ms")
+/*package*/ final class ReloadEvent extends Event {
+
+    @Label("Keys")
+    /*package*/ int keyCount;
+
+    @Label("Values")
+    /*package*/ long valueCount;
+}
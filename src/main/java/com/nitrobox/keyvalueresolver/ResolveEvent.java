@@ -0,0 +1,50 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Resolution of a key. Disabled by default, since it is recorded for every get.
+ */
+@Name("com.nitrobox.keyvalueresolver.Resolve")
+@Label("Key Resolution")
+@Category("KeyValueResolver")
+@Description("Resolution of a key to a value")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+/*package*/ final class ResolveEvent extends Event {
+
+    @Label("Key")
+    /*package*/ String key;
+
+    @Label("Values Scanned")
+    /*package*/ int scannedValues;
+
+    @Label("Found")
+    @Description("False, when the default was returned")
+    /*package*/ boolean found;
+}
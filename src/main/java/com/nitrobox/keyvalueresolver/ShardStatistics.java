@@ -0,0 +1,80 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+/**
+ * The key count and the writes of a shard of the {@link ValuesStore}. Writes are counted for operations of a single shard and for every
+ * shard changed by an operation on several shards. A ValuesStore with a {@link ValuesStorage} reports the parts of the storage instead,
+ * e.g. the segments of an {@link OffHeapValuesStorage}.
+ *
+ * @see KeyValueResolverMetrics#getShardStatistics()
+ */
+public final class ShardStatistics {
+
+    private final int index;
+    private final int keyCount;
+    private final long writes;
+    private final long writeNanos;
+    private final long offHeapBytes;
+
+    /*package*/ ShardStatistics(int index, int keyCount, long writes, long writeNanos) {
+        this(index, keyCount, writes, writeNanos, 0);
+    }
+
+    /*package*/ ShardStatistics(int index, int keyCount, long writes, long writeNanos, long offHeapBytes) {
+        this.index = index;
+        this.keyCount = keyCount;
+        this.writes = writes;
+        this.writeNanos = writeNanos;
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return time spent by writes of a single shard waiting for and holding its write lock
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return bytes allocated off heap for the keys of this part, 0 for shards on the heap
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+        if (offHeapBytes > 0) {
+            return "segment " + index + ": keys=" + keyCount + ", offHeapBytes=" + offHeapBytes;
+        }
+        return "shard " + index + ": keys=" + keyCount + ", writes=" + writes + ", writeMillis=" + writeNanos / 1_000_000;
+    }
+}
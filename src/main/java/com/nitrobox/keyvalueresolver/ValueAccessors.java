@@ -0,0 +1,117 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.time.Duration;
+
+/**
+ * The typed accessors of {@link KeyValueResolver} and {@link KeyValueResolverSnapshot}. All of them are based on
+ * {@link #getOrDefault(String, Object, DomainResolver)}, {@link #get(String, Converter, DomainResolver)} and
+ * {@link #resolverFor(String...)}.
+ */
+public interface ValueAccessors {
+
+    /**
+     * Get a value for a given key
+     *
+     * @param key          key to query
+     * @param defaultValue defaultValue is returned, when no value for the key is found
+     * @param resolver     resolver to determine domain values to use during resolution
+     * @param <T>          type of the objects stored under the provided key
+     * @return object retrieved or defaultValue
+     */
+    <T> T getOrDefault(String key, T defaultValue, DomainResolver resolver);
+
+    /**
+     * Get a value for a given key converted by the given converter. The converted value is cached, so a value is only converted again,
+     * after it was changed.
+     *
+     * @param key       key to query
+     * @param converter converter to convert the stored value
+     * @param resolver  resolver to determine domain values to use during resolution
+     * @param <T>       type the value is converted to
+     * @return converted value or null, when no value for the key is found
+     */
+    <T> T get(String key, Converter<T> converter, DomainResolver resolver);
+
+    /**
+     * @param domainValues domain values in the order of the domains
+     * @return a DomainResolver with the provided values set
+     */
+    DomainResolver resolverFor(String... domainValues);
+
+    default <T> T getOrDefault(String key, T defaultValue, String... domainValues) {
+        return getOrDefault(key, defaultValue, resolverFor(domainValues));
+    }
+
+    /**
+     * Get a value for a given key. Same as calling getOrDefault(key, null, resolver);
+     *
+     * @param key      key to query
+     * @param resolver resolver to determine domain values to use during resolution
+     * @param <T>      type of the objects stored under the provided key
+     * @return object retrieved or null
+     */
+    default <T> T get(String key, DomainResolver resolver) {
+        return getOrDefault(key, null, resolver);
+    }
+
+    default <T> T get(String key, String... domainValues) {
+        return getOrDefault(key, null, resolverFor(domainValues));
+    }
+
+    default <T> T get(String key, Converter<T> converter, String... domainValues) {
+        return get(key, converter, resolverFor(domainValues));
+    }
+
+    default int getInt(String key, int defaultValue, DomainResolver resolver) {
+        final Integer value = get(key, Converters.INTEGER, resolver);
+        return value == null ? defaultValue : value;
+    }
+
+    default int getInt(String key, int defaultValue, String... domainValues) {
+        return getInt(key, defaultValue, resolverFor(domainValues));
+    }
+
+    default long getLong(String key, long defaultValue, DomainResolver resolver) {
+        final Long value = get(key, Converters.LONG, resolver);
+        return value == null ? defaultValue : value;
+    }
+
+    default long getLong(String key, long defaultValue, String... domainValues) {
+        return getLong(key, defaultValue, resolverFor(domainValues));
+    }
+
+    default boolean getBoolean(String key, boolean defaultValue, DomainResolver resolver) {
+        final Boolean value = get(key, Converters.BOOLEAN, resolver);
+        return value == null ? defaultValue : value;
+    }
+
+    default boolean getBoolean(String key, boolean defaultValue, String... domainValues) {
+        return getBoolean(key, defaultValue, resolverFor(domainValues));
+    }
+
+    default Duration getDuration(String key, Duration defaultValue, DomainResolver resolver) {
+        final Duration value = get(key, Converters.DURATION, resolver);
+        return value == null ? defaultValue : value;
+    }
+
+    default Duration getDuration(String key, Duration defaultValue, String... domainValues) {
+        return getDuration(key, defaultValue, resolverFor(domainValues));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps all KeyValues of a {@link ValuesStore} as one immutable image in its own layout, e.g. off heap. A ValuesStore with a
+ * ValuesStorage is read only, its values are only replaced as a whole by setAllValues and reload().
+ *
+ * @see OffHeapValuesStorage
+ */
+public interface ValuesStorage {
+
+    /**
+     * Replaces the image. Views of the former image stay valid.
+     *
+     * @param domainSpecificValueFactory the factory of the KeyValues read from the image
+     */
+    void setAll(Collection<? extends KeyValues> values, DomainSpecificValueFactory domainSpecificValueFactory);
+
+    /**
+     * @return the current image, that is not affected by later calls of setAll
+     */
+    ValuesStore.ValuesView view();
+
+    /**
+     * @return the key count and the size of every part of the current image
+     */
+    List<ShardStatistics> getStatistics();
+}
@@ -23,47 +23,253 @@ package com.nitrobox.keyvalueresolver;
 
 import static com.nitrobox.keyvalueresolver.KeyValueResolverImpl.resolverFor;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * The internal in memory storage for KeyValueResolver KeyValues
+ * <p>
+ * The keys are partitioned by their hash into shards. Each shard keeps its KeyValues in a persistent map, which is replaced on every
+ * change, and has its own lock and epoch. Readers access the current version without locking and a {@link #snapshot()} just keeps the
+ * current versions of all shards. Writers of the same shard are serialized by its write lock, writers of different shards run in parallel.
+ * KeyValues, that might be referenced by a snapshot, are copied before they are modified, all others are modified in place.
+ * <p>
+ * Operations, whose changes must become visible at once, like imports and WriteBatches, hold the write locks of all affected shards.
+ * Locks of several shards are always taken in the order of the shards. Store wide operations like {@link #removeChangeSet(String)}
+ * proceed shard by shard, in parallel, when there are several shards. So with more than one shard the Persistence must support
+ * concurrent writes.
+ * <p>
+ * A ValuesStore created with a {@link ValuesStorage} reads all values from the image of the storage. It is read only: its values are
+ * only replaced as a whole by {@link #setAllValues(Collection)} and {@link #reload()}, all other changes throw an
+ * UnsupportedOperationException.
  */
 public class ValuesStore {
 
-    private final Map<String, KeyValues> keyValuesMap = new HashMap<>();
-    private final ReadWriteLockTool lock = new ReadWriteLockTool();
+    public static final int DEFAULT_SHARD_COUNT = 1;
+
+    private final Shard[] shards;
+    private final ValuesStorage storage;
     private DomainSpecificValueFactory domainSpecificValueFactory;
     private Persistence persistence;
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+    private final KeyValueResolverMetrics metrics;
+
+    public ValuesStore() {
+        this(DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * @param shardCount number of shards the keys are partitioned into
+     */
+    public ValuesStore(int shardCount) {
+        this(shardCount, null);
+    }
+
+    /**
+     * Creates a read only ValuesStore, that keeps its values in the storage.
+     */
+    public ValuesStore(ValuesStorage storage) {
+        this(1, Objects.requireNonNull(storage, "\"storage\" must not be null"));
+    }
+
+    private ValuesStore(int shardCount, ValuesStorage storage) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("\"shardCount\" must be positive, but was: " + shardCount);
+        }
+        this.storage = storage;
+        shards = new Shard[shardCount];
+        final ReadWriteLockTool[] locks = new ReadWriteLockTool[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, storage != null);
+            locks[i] = shards[i].lock;
+        }
+        metrics = new KeyValueResolverMetrics(locks, this::getShardStatistics);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the current key count and the write count of every shard, or the statistics of the ValuesStorage
+     */
+    public List<ShardStatistics> getShardStatistics() {
+        if (storage != null) {
+            return storage.getStatistics();
+        }
+        final List<ShardStatistics> result = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            result.add(new ShardStatistics(shard.index, shard.map.size(), shard.writes.sum(), shard.writeNanos.sum()));
+        }
+        return result;
+    }
+
+    private Shard shardFor(String key) {
+        if (shards.length == 1) {
+            return shards[0];
+        }
+        // the persistent maps use the low bits of the hash, so the shard is chosen by the high bits of a scrambled hash: the scrambled
+        // hash as a fraction of 2^32 is scaled to the number of shards
+        return shards[(int) (((key.hashCode() * 0x9E3779B9) & 0xffffffffL) * shards.length >>> 32)];
+    }
 
     public Collection<KeyValues> getAllValues() {
-        return lock.readLocked(() -> Collections.unmodifiableCollection(keyValuesMap.values()));
+        return currentView().getAllValues();
     }
 
     public Collection<KeyValues> getAllValues(List<String> domains, DomainResolver... resolver) {
-        return lock.readLocked(() -> keyValuesMap.values().stream()
-                .map(keyValues -> keyValues.copy(domains, resolver))
-                .filter(keyValues -> !keyValues.isEmpty())
-                .collect(Collectors.toUnmodifiableList()));
+        return copies(currentView().getAllValues().iterator(), domains, resolver);
+    }
+
+    /**
+     * @return the KeyValues, whose key starts with the prefix, ordered by key. Only visits the matching keys.
+     */
+    public List<KeyValues> getValuesWithPrefix(String keyPrefix) {
+        Objects.requireNonNull(keyPrefix, "\"keyPrefix\" must not be null");
+        final List<KeyValues> result = new ArrayList<>();
+        currentView().valuesWithPrefix(keyPrefix).forEachRemaining(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    public List<KeyValues> getValuesWithPrefix(String keyPrefix, List<String> domains, DomainResolver... resolver) {
+        return copies(getValuesWithPrefix(keyPrefix).iterator(), domains, resolver);
+    }
+
+    /**
+     * Returns a page of the current KeyValues, whose key starts with the prefix, ordered by key. Unlike a snapshot, this does not make
+     * the next write copy the KeyValues, but pages of different calls may see different versions of the values.
+     */
+    public List<KeyValues> getValuesPage(String keyPrefix, int offset, int limit) {
+        return page(currentView(), keyPrefix, offset, limit);
+    }
+
+    /*package*/ static List<KeyValues> page(ValuesView view, String keyPrefix, int offset, int limit) {
+        Objects.requireNonNull(keyPrefix, "\"keyPrefix\" must not be null");
+        if (offset < 0) {
+            throw new IllegalArgumentException("\"offset\" must not be negative, but was: " + offset);
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("\"limit\" must not be negative, but was: " + limit);
+        }
+        final Iterator<KeyValues> matching = view.valuesWithPrefix(keyPrefix);
+        for (int i = 0; i < offset && matching.hasNext(); i++) {
+            matching.next();
+        }
+        final List<KeyValues> page = new ArrayList<>(Math.min(limit, 64));
+        while (page.size() < limit && matching.hasNext()) {
+            page.add(matching.next());
+        }
+        return List.copyOf(page);
+    }
+
+    /*package*/ static List<KeyValues> copies(Iterator<KeyValues> values, List<String> domains, DomainResolver... resolver) {
+        final List<KeyValues> result = new ArrayList<>();
+        values.forEachRemaining(keyValues -> {
+            final KeyValues copy = keyValues.copy(domains, resolver);
+            if (!copy.isEmpty()) {
+                result.add(copy);
+            }
+        });
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return a view of the current maps of all shards, without marking them as taken by a snapshot. With several shards they are read
+     * under the read locks, so changes of several shards made at once are either seen completely or not at all.
+     */
+    private ValuesView currentView() {
+        if (storage != null) {
+            return storage.view();
+        }
+        if (shards.length == 1) {
+            return new MapView(shards);
+        }
+        return readLockedAll("currentView", 0, () -> new MapView(shards));
+    }
+
+    private static Collection<KeyValues> values(List<PersistentHashMap<String, KeyValues>> maps) {
+        if (maps.size() == 1) {
+            return maps.get(0).values();
+        }
+        final List<Collection<KeyValues>> values = new ArrayList<>(maps.size());
+        int size = 0;
+        for (PersistentHashMap<String, KeyValues> map : maps) {
+            values.add(map.values());
+            size += map.size();
+        }
+        final int totalSize = size;
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<KeyValues> iterator() {
+                return values.stream().flatMap(Collection::stream).iterator();
+            }
+
+            @Override
+            public int size() {
+                return totalSize;
+            }
+        };
     }
 
     public void setAllValues(Collection<? extends KeyValues> values) {
-        lock.writeLocked(() -> {
-            keyValuesMap.clear();
-            values.forEach(kv -> keyValuesMap.put(kv.getKey(), kv));
+        if (storage != null) {
+            storage.setAll(values, domainSpecificValueFactory);
+            return;
+        }
+        final List<PersistentHashMap.Builder<String, KeyValues>> builders = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            builders.add(PersistentHashMap.<String, KeyValues>empty().toBuilder());
+        }
+        values.forEach(kv -> builders.get(shardFor(kv.getKey()).index).put(kv.getKey(), kv));
+        final List<PersistentHashMap<String, KeyValues>> maps = new ArrayList<>(shards.length);
+        final List<KeyIndex> indexes = new ArrayList<>(shards.length);
+        for (PersistentHashMap.Builder<String, KeyValues> builder : builders) {
+            final PersistentHashMap<String, KeyValues> map = builder.build();
+            maps.add(map);
+            indexes.add(KeyIndex.of(map.keys()));
+        }
+        writeLockedAll("setAllValues", shards, 0, () -> {
+            for (Shard shard : shards) {
+                shard.map = maps.get(shard.index);
+                shard.keys = indexes.get(shard.index);
+            }
+            return null;
         });
     }
 
     public void setWithChangeSet(String key, String description, String changeSet, final Object value, final String... domainValues) {
-        lock.writeLocked(() -> {
-            KeyValues keyValues = getOrCreateKeyValues(key, description);
+        final Shard shard = shardFor(key);
+        shard.write("set", () -> {
+            KeyValues keyValues = shard.modifiable(getOrCreateKeyValues(key, description));
             final DomainSpecificValue domainSpecificValue = keyValues.putWithChangeSet(changeSet, value, domainValues);
             store(key, keyValues, domainSpecificValue);
+            shard.put(key, keyValues);
+            if (changeNotifier.isActive()) {
+                changeNotifier.publish(ChangeEvent.forValue(key, domainSpecificValue));
+            }
+            return null;
         });
     }
 
@@ -72,28 +278,91 @@ public class ValuesStore {
         if (keyValues != null) {
             return keyValues;
         }
-        return lock.writeLocked(() -> keyValuesMap.computeIfAbsent(key, k -> new KeyValues(key, domainSpecificValueFactory, description)));
+        final Shard shard = shardFor(key);
+        return shard.lock.writeLocked("create", () -> {
+            final KeyValues existing = shard.map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            final KeyValues created = shard.created(key, domainSpecificValueFactory, description);
+            shard.put(key, created);
+            return created;
+        });
+    }
+
+    /**
+     * Runs the supplier while holding the write locks of the given shards, starting at the index. The shards must be ordered.
+     */
+    private static <T> T writeLockedAll(String operation, Shard[] locked, int index, Supplier<T> supplier) {
+        if (index == locked.length) {
+            return supplier.get();
+        }
+        locked[index].checkWritable(operation);
+        return locked[index].lock.writeLocked(operation, () -> writeLockedAll(operation, locked, index + 1, supplier));
+    }
+
+    private <T> T readLockedAll(String operation, int index, Supplier<T> supplier) {
+        if (index == shards.length) {
+            return supplier.get();
+        }
+        return shards[index].lock.readLocked(operation, () -> readLockedAll(operation, index + 1, supplier));
+    }
+
+    /**
+     * @return the shards of the keys, in the order of the shards
+     */
+    private Shard[] shardsFor(Collection<String> keys) {
+        if (shards.length == 1) {
+            return shards;
+        }
+        final boolean[] used = new boolean[shards.length];
+        for (String key : keys) {
+            used[shardFor(key).index] = true;
+        }
+        final List<Shard> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            if (used[shard.index]) {
+                result.add(shard);
+            }
+        }
+        return result.toArray(new Shard[0]);
+    }
+
+    /**
+     * Runs the action for every shard, one after the other on the calling thread, since the actions call the persistence and the
+     * ChangeNotifier under the write lock of the shard.
+     */
+    private void forEachShard(Consumer<Shard> action) {
+        for (Shard shard : shards) {
+            action.accept(shard);
+        }
     }
 
     private void store(final String key, final KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
         if (persistence != null) {
+            final PersistenceEvent event = new PersistenceEvent();
+            event.begin();
             persistence.store(key, keyValues, domainSpecificValue);
+            commit(event, "store", key, 1);
         }
     }
 
     public KeyValues getKeyValuesFromMapOrPersistence(final String key) {
-        final KeyValues keyValues = lock.readLocked(() -> keyValuesMap.get(key));
+        final KeyValues keyValues = getValuesFor(key);
         if (keyValues != null) {
+            metrics.cacheHit();
             return keyValues;
         }
         final KeyValues loadedKeyValues = load(key);
-        if (loadedKeyValues == null) {
-            return null;
+        if (loadedKeyValues == null || storage != null) {
+            // the image of a storage is only replaced as a whole, so loaded KeyValues are not added
+            return loadedKeyValues;
         }
-        return lock.writeLocked(() -> {
-            KeyValues keyValuesSecondTry = keyValuesMap.get(key);
+        final Shard shard = shardFor(key);
+        return shard.lock.writeLocked("load", () -> {
+            KeyValues keyValuesSecondTry = shard.map.get(key);
             if (keyValuesSecondTry == null) {
-                keyValuesMap.put(key, loadedKeyValues);
+                shard.put(key, loadedKeyValues);
                 return loadedKeyValues;
             } else {
                 return keyValuesSecondTry;
@@ -102,44 +371,86 @@ public class ValuesStore {
     }
 
     public String dump() {
-        return lock.readLocked(() -> {
-            StringBuilder builder = new StringBuilder(keyValuesMap.size() * 16);
-            for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
-                builder.append('\n').append("KeyValues for \"").append(entry.getKey()).append("\": ").append(entry.getValue());
-            }
-            return builder.toString();
-        });
+        final Collection<KeyValues> values = getAllValues();
+        StringBuilder builder = new StringBuilder(values.size() * 16);
+        values.forEach(keyValues -> builder.append('\n').append("KeyValues for \"").append(keyValues.getKey()).append("\": ")
+                .append(keyValues));
+        return builder.toString();
     }
 
     public void dump(PrintStream out) {
-        lock.readLocked(() -> {
-            for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
-                out.println();
-                out.print("KeyValues for \"");
-                out.print(entry.getKey());
-                out.print("\": ");
-                out.print(entry.getValue());
-            }
+        getAllValues().forEach(keyValues -> {
+            out.println();
+            out.print("KeyValues for \"");
+            out.print(keyValues.getKey());
+            out.print("\": ");
+            out.print(keyValues);
         });
     }
 
+    /**
+     * Writes the values of a snapshot, so the lock is not held while writing and the output is never built in memory.
+     */
+    public void dump(Writer out) throws IOException {
+        for (KeyValues keyValues : snapshot().getAllValues()) {
+            out.append('\n').append("KeyValues for \"").append(keyValues.getKey()).append("\": ").append(keyValues.toString());
+        }
+    }
+
     public KeyValues getValuesFor(String key) {
-        return lock.readLocked(() -> keyValuesMap.get(key));
+        if (storage != null) {
+            return storage.view().getValuesFor(key);
+        }
+        return shardFor(key).map.get(key);
+    }
+
+    /**
+     * Returns a read only view of the current values, that is not affected by later changes. Taking a snapshot is O(1).
+     */
+    /*package*/ ValuesView snapshot() {
+        if (storage != null) {
+            return storage.view();
+        }
+        return readLockedAll("snapshot", 0, () -> {
+            for (Shard shard : shards) {
+                if (!shard.snapshotTaken) {
+                    shard.snapshotTaken = true;
+                }
+            }
+            return new MapView(shards);
+        });
     }
 
     public KeyValues remove(String key) {
-        return lock.writeLocked(() -> {
-            final KeyValues keyValues = keyValuesMap.remove(key);
+        final Shard shard = shardFor(key);
+        return shard.write("removeKey", () -> {
+            final KeyValues keyValues = shard.map.get(key);
+            shard.remove(key);
             if (persistence != null) {
+                final PersistenceEvent event = new PersistenceEvent();
+                event.begin();
                 persistence.remove(key);
+                commit(event, "removeKey", key, 1);
+            }
+            if (changeNotifier.isActive()) {
+                changeNotifier.publish(ChangeEvent.forKey(key));
             }
             return keyValues;
         });
     }
 
-    private KeyValues load(final String key) {
+    /*package*/ KeyValues load(final String key) {
+        metrics.cacheMiss();
         if (persistence != null) {
-            return persistence.load(key, domainSpecificValueFactory);
+            final long start = metrics.start(KeyValueResolverMetrics.Operation.LOAD);
+            final PersistenceEvent event = new PersistenceEvent();
+            event.begin();
+            try {
+                return persistence.load(key, domainSpecificValueFactory);
+            } finally {
+                metrics.stop(KeyValueResolverMetrics.Operation.LOAD, start);
+                commit(event, "load", key, 1);
+            }
         }
         return null;
     }
@@ -148,68 +459,730 @@ public class ValuesStore {
         this.domainSpecificValueFactory = domainSpecificValueFactory;
     }
 
+    /*package*/ DomainSpecificValueFactory getDomainSpecificValueFactory() {
+        return domainSpecificValueFactory;
+    }
+
     public void setPersistence(Persistence persistence) {
         this.persistence = persistence;
     }
 
+    /**
+     * Adds a listener, that is notified about all changes in this ValuesStore, including changes found by a reload.
+     */
+    public void addChangeListener(ChangeListener listener, Executor executor, Duration coalescingWindow) {
+        changeNotifier.addListener(listener, executor, coalescingWindow);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeNotifier.removeListener(listener);
+    }
+
+    public KeyValueResolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /*package*/ ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
     public void reload() {
         if (persistence != null) {
-            setAllValues(persistence.reload(getAllValues(), domainSpecificValueFactory));
+            final ReloadEvent event = new ReloadEvent();
+            event.begin();
+            final Collection<KeyValues> before = getAllValues();
+            // the diff is only computed, when somebody listens
+            final Map<String, Map<ChangeEvent, Object>> snapshot = changeNotifier.isActive() ? ChangeNotifier.snapshot(before) : null;
+            setAllValues(persistence.reload(before, domainSpecificValueFactory));
+            event.end();
+            if (event.shouldCommit()) {
+                final Collection<KeyValues> after = getAllValues();
+                event.keyCount = after.size();
+                event.valueCount = after.stream().mapToLong(keyValues -> keyValues.getDomainSpecificValues().size()).sum();
+                event.commit();
+            }
+            if (snapshot != null) {
+                changeNotifier.publish(ChangeNotifier.diff(snapshot, ChangeNotifier.snapshot(getAllValues())));
+            }
         }
     }
 
     public void reload(String key) {
+        final Shard shard = shardFor(key);
+        // fails before loading, also without persistence
+        shard.checkWritable("reloadKey");
         if (persistence != null) {
+            final PersistenceEvent event = new PersistenceEvent();
+            event.begin();
             final KeyValues keyValues = persistence.load(key, domainSpecificValueFactory);
-            lock.writeLocked(() -> {
+            commit(event, "load", key, 1);
+            final KeyValues before = shard.write("reloadKey", () -> {
+                final KeyValues previous = shard.map.get(key);
                 if (keyValues != null) {
-                    keyValuesMap.put(key, keyValues);
+                    shard.put(key, keyValues);
                 } else {
-                    keyValuesMap.remove(key);
+                    shard.remove(key);
                 }
+                return previous;
             });
+            if (changeNotifier.isActive() && before != keyValues) {
+                final List<ChangeEvent> events = new ArrayList<>();
+                ChangeNotifier.diff(key, ChangeNotifier.snapshot(before), ChangeNotifier.snapshot(keyValues), events);
+                changeNotifier.publish(events);
+            }
         }
     }
 
     public void removeWithChangeSet(final String key, final String changeSet, final String... domainValues) {
-        lock.writeLocked(() -> {
-            KeyValues keyValues = getKeyValuesFromMapOrPersistence(key);
-            if (keyValues != null) {
-                removeFromPersistence(key, keyValues.remove(changeSet, domainValues));
+        final Shard shard = shardFor(key);
+        shard.write("removeWithChangeSet", () -> {
+            KeyValues existing = getKeyValuesFromMapOrPersistence(key);
+            if (existing != null) {
+                final KeyValues keyValues = shard.modifiable(existing);
+                final DomainSpecificValue removed = keyValues.remove(changeSet, domainValues);
+                removeFromPersistence(key, removed);
+                if (removed != null && changeNotifier.isActive()) {
+                    changeNotifier.publish(ChangeEvent.forValue(key, removed));
+                }
                 if (keyValues.isEmpty()) {
                     remove(key);
+                } else if (removed != null) {
+                    shard.put(key, keyValues);
                 }
             }
+            return null;
         });
     }
 
     public void removeAllMatching(String key, List<String> domains, String... domainValues) {
-        lock.writeLocked(() -> {
-            final KeyValues keyValues = getKeyValuesFromMapOrPersistence(key);
-            if (keyValues != null) {
-                keyValues.removeAll(domains, resolverFor(domains, domainValues))
-                        .forEach(domainSpecificValue -> removeFromPersistence(key, domainSpecificValue));
+        final Shard shard = shardFor(key);
+        shard.write("removeAllMatching", () -> {
+            final KeyValues existing = getKeyValuesFromMapOrPersistence(key);
+            if (existing != null) {
+                final KeyValues keyValues = shard.modifiable(existing);
+                final Collection<DomainSpecificValue> removed = keyValues.removeAll(domains, resolverFor(domains, domainValues));
+                final PersistenceBatch batch = new PersistenceBatch().removeAll(key, removed);
                 if (keyValues.isEmpty()) {
-                    remove(key);
+                    shard.remove(key);
+                    batch.removeKey(key);
+                } else if (!removed.isEmpty()) {
+                    shard.put(key, keyValues);
+                }
+                applyToPersistence(batch);
+                changeNotifier.publishValues(key, removed);
+                if (keyValues.isEmpty() && changeNotifier.isActive()) {
+                    changeNotifier.publish(ChangeEvent.forKey(key));
                 }
             }
+            return null;
         });
     }
 
     private void removeFromPersistence(final String key, final DomainSpecificValue domainSpecificValue) {
         if (persistence != null && domainSpecificValue != null) {
+            final PersistenceEvent event = new PersistenceEvent();
+            event.begin();
             persistence.remove(key, domainSpecificValue);
+            commit(event, "remove", key, 1);
         }
     }
 
+    private void applyToPersistence(final PersistenceBatch batch) {
+        if (persistence != null && !batch.isEmpty()) {
+            final PersistenceEvent event = new PersistenceEvent();
+            event.begin();
+            persistence.apply(batch);
+            commit(event, "apply", null, batch.size());
+        }
+    }
+
+    private static void commit(PersistenceEvent event, String operation, String key, int changes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.key = key;
+            event.changes = changes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Removes the changeSet shard by shard. The affected KeyValues of a shard are copied, so the changes of each shard become visible at
+     * once.
+     */
     public void removeChangeSet(String changeSet) {
-        lock.writeLocked(() -> {
-            for (KeyValues keyValues : keyValuesMap.values()) {
-                final Collection<DomainSpecificValue> domainSpecificValues = keyValues.removeChangeSet(changeSet);
-                for (DomainSpecificValue value : domainSpecificValues) {
-                    removeFromPersistence(keyValues.getKey(), value);
+        final ChangeSetRemovalEvent event = new ChangeSetRemovalEvent();
+        event.begin();
+        final AtomicInteger keyCount = new AtomicInteger();
+        final AtomicInteger valueCount = new AtomicInteger();
+        forEachShard(shard -> shard.write("removeChangeSet", () -> {
+            final PersistenceBatch batch = new PersistenceBatch();
+            final PersistentHashMap.Builder<String, KeyValues> builder = shard.map.toBuilder();
+            final List<ChangeEvent> events = changeNotifier.isActive() ? new ArrayList<>() : null;
+            for (KeyValues existing : shard.map.values()) {
+                if (existing.getDomainSpecificValues().stream().noneMatch(value -> value.changeSetIs(changeSet))) {
+                    continue;
+                }
+                final KeyValues keyValues = shard.detached(existing);
+                final Collection<DomainSpecificValue> removed = keyValues.removeChangeSet(changeSet);
+                builder.put(keyValues.getKey(), keyValues);
+                batch.removeAll(keyValues.getKey(), removed);
+                removed.forEach(domainSpecificValue -> addEvent(events, ChangeEvent.forValue(keyValues.getKey(), domainSpecificValue)));
+                keyCount.incrementAndGet();
+                valueCount.addAndGet(removed.size());
+            }
+            applyToPersistence(batch);
+            shard.map = builder.build();
+            if (events != null) {
+                changeNotifier.publish(events);
+            }
+            return null;
+        }));
+        event.end();
+        if (event.shouldCommit()) {
+            event.changeSet = changeSet;
+            event.keyCount = keyCount.get();
+            event.valueCount = valueCount.get();
+            event.commit();
+        }
+    }
+
+    /**
+     * Imports all values of the BulkImport. The DomainSpecificValues are created and keys, that are not in memory, are loaded before the
+     * write lock is taken. Under the lock, the values are merged into copies of the KeyValues, written to the persistence in batches and
+     * then published at once, so readers see either none or all of the imported values. If writing a batch fails, nothing is published,
+     * but the batches written before stay in the persistence and are visible after the next reload.
+     *
+     * @return number of imported values
+     */
+    public int importValues(BulkImport bulkImport) {
+        final Map<String, List<BulkImport.Entry>> entriesByKey = bulkImport.getEntriesByKey();
+        final Map<String, List<DomainSpecificValue>> valuesByKey = new HashMap<>();
+        for (Map.Entry<String, List<BulkImport.Entry>> entry : entriesByKey.entrySet()) {
+            final List<DomainSpecificValue> values = new ArrayList<>(entry.getValue().size());
+            for (BulkImport.Entry importEntry : entry.getValue()) {
+                values.add(domainSpecificValueFactory.create(importEntry.getValue(), importEntry.getChangeSet(),
+                        KeyValues.wildcardEmpty(importEntry.getDomainValues().clone())));
+            }
+            valuesByKey.put(entry.getKey(), values);
+        }
+        final Map<String, KeyValues> loaded = loadMissing(entriesByKey.keySet());
+        final Shard[] locked = shardsFor(entriesByKey.keySet());
+        writeLockedAll("import", locked, 0, () -> {
+            final Builders builders = new Builders();
+            final List<ChangeEvent> events = changeNotifier.isActive() ? new ArrayList<>() : null;
+            PersistenceBatch batch = new PersistenceBatch();
+            for (Map.Entry<String, List<BulkImport.Entry>> entry : entriesByKey.entrySet()) {
+                final String key = entry.getKey();
+                final KeyValues keyValues = detachedOrCreate(key, loaded, entry.getValue());
+                // a later entry with the same pattern and changeSet replaces the earlier one, the batch gets only the last
+                final Set<DomainSpecificValue> storedValues = new TreeSet<>();
+                for (DomainSpecificValue domainSpecificValue : valuesByKey.get(key)) {
+                    final DomainSpecificValue stored = keyValues.put(domainSpecificValue);
+                    storedValues.remove(stored);
+                    storedValues.add(stored);
+                }
+                for (DomainSpecificValue stored : storedValues) {
+                    batch.store(key, keyValues, stored);
+                    if (events != null) {
+                        events.add(ChangeEvent.forValue(key, stored));
+                    }
+                }
+                builders.put(key, keyValues);
+                if (batch.size() >= BulkImport.PERSISTENCE_BATCH_SIZE) {
+                    applyToPersistence(batch);
+                    batch = new PersistenceBatch();
+                }
+            }
+            applyToPersistence(batch);
+            builders.build();
+            if (events != null) {
+                changeNotifier.publish(events);
+            }
+            return null;
+        });
+        return bulkImport.size();
+    }
+
+    private KeyValues detachedOrCreate(String key, Map<String, KeyValues> loaded, List<BulkImport.Entry> entries) {
+        final KeyValues existing = detachedOrNull(key, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        final String description = entries.stream().map(BulkImport.Entry::getDescription).filter(Objects::nonNull).findFirst()
+                .orElse(null);
+        return created(key, description);
+    }
+
+    /**
+     * Loads the keys, that are not in memory, from the persistence. Is called before taking the write lock, so the persistence is not
+     * called while holding it.
+     */
+    private Map<String, KeyValues> loadMissing(Collection<String> keys) {
+        final Map<String, KeyValues> loaded = new HashMap<>();
+        for (String key : keys) {
+            if (!shardFor(key).map.containsKey(key)) {
+                final KeyValues keyValues = load(key);
+                if (keyValues != null) {
+                    loaded.put(key, keyValues);
                 }
             }
+        }
+        return loaded;
+    }
+
+    private KeyValues detachedOrNull(String key, Map<String, KeyValues> loaded) {
+        final Shard shard = shardFor(key);
+        KeyValues existing = shard.map.get(key);
+        if (existing == null) {
+            existing = loaded.get(key);
+        }
+        return existing == null ? null : shard.detached(existing);
+    }
+
+    private KeyValues created(String key, String description) {
+        return shardFor(key).created(key, domainSpecificValueFactory, description);
+    }
+
+    /**
+     * Applies all writes of the batch on copies of the affected KeyValues under one write lock. The persistence gets one
+     * PersistenceBatch with the net changes, afterwards the copies are published at once.
+     */
+    public void apply(WriteBatch writeBatch) {
+        final Map<String, KeyValues> loaded = loadMissing(writeBatch.getKeys());
+        writeLockedAll("writeBatch", shardsFor(writeBatch.getKeys()), 0, () -> {
+            final Map<String, KeyValues> changed = new LinkedHashMap<>();
+            final Map<String, PendingChanges> pending = new HashMap<>();
+            final List<ChangeEvent> events = changeNotifier.isActive() ? new ArrayList<>() : null;
+            for (WriteBatch.Write write : writeBatch.getWrites()) {
+                final String key = write.key;
+                final PendingChanges changes = pending.computeIfAbsent(key, k -> new PendingChanges());
+                KeyValues keyValues = changed.containsKey(key) ? changed.get(key) : detachedOrNull(key, loaded);
+                switch (write.type) {
+                    case SET:
+                        if (keyValues == null) {
+                            keyValues = created(key, write.description);
+                        }
+                        final DomainSpecificValue stored = keyValues.put(domainSpecificValueFactory.create(write.value, write.changeSet,
+                                KeyValues.wildcardEmpty(write.domainValues.clone())));
+                        changes.store(stored);
+                        changed.put(key, keyValues);
+                        addEvent(events, ChangeEvent.forValue(key, stored));
+                        break;
+                    case REMOVE:
+                        final DomainSpecificValue removed = keyValues == null ? null : keyValues.remove(write.changeSet, write.domainValues);
+                        if (removed != null) {
+                            changes.remove(removed);
+                            changed.put(key, keyValues);
+                            addEvent(events, ChangeEvent.forValue(key, removed));
+                        }
+                        break;
+                    case REMOVE_KEY:
+                        changes.removeKey();
+                        changed.put(key, null);
+                        addEvent(events, ChangeEvent.forKey(key));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown write: " + write.type);
+                }
+            }
+            final Builders builders = new Builders();
+            final PersistenceBatch batch = new PersistenceBatch();
+            changed.forEach((key, keyValues) -> {
+                final PendingChanges changes = pending.get(key);
+                if (keyValues == null || keyValues.isEmpty()) {
+                    builders.remove(key);
+                    batch.removeKey(key);
+                    if (keyValues != null) {
+                        addEvent(events, ChangeEvent.forKey(key));
+                    }
+                    return;
+                }
+                builders.put(key, keyValues);
+                if (changes.keyRemoved) {
+                    batch.removeKey(key);
+                }
+                batch.removeAll(key, changes.removed);
+                changes.stored.forEach(domainSpecificValue -> batch.store(key, keyValues, domainSpecificValue));
+            });
+            applyToPersistence(batch);
+            builders.build();
+            if (events != null) {
+                changeNotifier.publish(events);
+            }
+            return null;
         });
     }
+
+    private static void addEvent(List<ChangeEvent> events, ChangeEvent event) {
+        if (events != null) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * The net changes of a WriteBatch for one key. Later writes of the same value replace earlier ones, so the PersistenceBatch
+     * contains at most one change per value.
+     */
+    private static final class PendingChanges {
+
+        private final Set<DomainSpecificValue> stored = new TreeSet<>();
+        private final Set<DomainSpecificValue> removed = new TreeSet<>();
+        private boolean keyRemoved;
+
+        private void store(DomainSpecificValue domainSpecificValue) {
+            removed.remove(domainSpecificValue);
+            stored.remove(domainSpecificValue);
+            stored.add(domainSpecificValue);
+        }
+
+        private void remove(DomainSpecificValue domainSpecificValue) {
+            stored.remove(domainSpecificValue);
+            if (!keyRemoved) {
+                removed.add(domainSpecificValue);
+            }
+        }
+
+        private void removeKey() {
+            keyRemoved = true;
+            stored.clear();
+            removed.clear();
+        }
+    }
+
+    /**
+     * Moves all values of the changeSet into the base values without changeSet, replacing base values with the same pattern. Takes the
+     * write locks of all shards and works on copies of the affected KeyValues, which are published at once, so views of all shards never
+     * see a value twice or missing, not even across keys.
+     *
+     * @return number of promoted values
+     */
+    public int promoteChangeSet(String changeSet) {
+        return writeLockedAll("promoteChangeSet", shards, 0, () -> {
+            final Builders builders = new Builders();
+            final PersistenceBatch batch = new PersistenceBatch();
+            final List<ChangeEvent> events = changeNotifier.isActive() ? new ArrayList<>() : null;
+            int promoted = 0;
+            for (Shard shard : shards) {
+                for (KeyValues existing : shard.map.values()) {
+                    if (existing.getDomainSpecificValues().stream().noneMatch(value -> value.changeSetIs(changeSet))) {
+                        continue;
+                    }
+                    final String key = existing.getKey();
+                    final KeyValues keyValues = shard.detached(existing);
+                    final Collection<DomainSpecificValue> removed = keyValues.removeChangeSet(changeSet);
+                    batch.removeAll(key, removed);
+                    for (DomainSpecificValue domainSpecificValue : removed) {
+                        final DomainSpecificValue stored = keyValues.put(domainSpecificValueFactory.createFromPattern(
+                                domainSpecificValue.getValue(), null, domainSpecificValue.getPattern()));
+                        batch.store(key, keyValues, stored);
+                        addEvent(events, ChangeEvent.forValue(key, domainSpecificValue));
+                        addEvent(events, ChangeEvent.forValue(key, stored));
+                    }
+                    builders.put(key, keyValues);
+                    promoted += removed.size();
+                }
+            }
+            applyToPersistence(batch);
+            builders.build();
+            if (events != null) {
+                changeNotifier.publish(events);
+            }
+            return promoted;
+        });
+    }
+
+    /**
+     * Read access to one version of the values.
+     */
+    public interface ValuesView {
+
+        KeyValues getValuesFor(String key);
+
+        Collection<KeyValues> getAllValues();
+
+        /**
+         * @return the KeyValues, whose key starts with the prefix, ordered by key. Scans all values, unless there is an index of the keys.
+         */
+        default Iterator<KeyValues> valuesWithPrefix(String keyPrefix) {
+            final List<KeyValues> matching = new ArrayList<>();
+            for (KeyValues keyValues : getAllValues()) {
+                if (keyValues.getKey().startsWith(keyPrefix)) {
+                    matching.add(keyValues);
+                }
+            }
+            matching.sort(BY_KEY);
+            return matching.iterator();
+        }
+    }
+
+    private static final Comparator<KeyValues> BY_KEY = Comparator.comparing(KeyValues::getKey);
+
+    /**
+     * The maps and key indexes of all shards at one point in time.
+     */
+    private final class MapView implements ValuesView {
+
+        private final List<PersistentHashMap<String, KeyValues>> maps;
+        private final KeyIndex[] indexes;
+
+        private MapView(Shard[] shards) {
+            maps = new ArrayList<>(shards.length);
+            indexes = new KeyIndex[shards.length];
+            for (Shard shard : shards) {
+                // the index is read before the map, so removed keys may still be in the index, but added keys are never missing in the map
+                indexes[shard.index] = shard.keys;
+                maps.add(shard.map);
+            }
+        }
+
+        @Override
+        public KeyValues getValuesFor(String key) {
+            return maps.get(shardFor(key).index).get(key);
+        }
+
+        @Override
+        public Collection<KeyValues> getAllValues() {
+            return Collections.unmodifiableCollection(values(maps));
+        }
+
+        @Override
+        public Iterator<KeyValues> valuesWithPrefix(String keyPrefix) {
+            if (maps.size() == 1) {
+                return new IndexedValues(indexes[0].keysWithPrefix(keyPrefix), maps.get(0));
+            }
+            final List<Iterator<KeyValues>> iterators = new ArrayList<>(maps.size());
+            for (int i = 0; i < maps.size(); i++) {
+                iterators.add(new IndexedValues(indexes[i].keysWithPrefix(keyPrefix), maps.get(i)));
+            }
+            return new MergingIterator(iterators);
+        }
+    }
+
+    /**
+     * Looks up the keys of an index in a map. Keys, that are missing in the map, are skipped, since the index and the map of a shard are
+     * read without lock, when there is only one shard.
+     */
+    private static final class IndexedValues implements Iterator<KeyValues> {
+
+        private final Iterator<String> keys;
+        private final PersistentHashMap<String, KeyValues> map;
+        private KeyValues next;
+
+        private IndexedValues(Iterator<String> keys, PersistentHashMap<String, KeyValues> map) {
+            this.keys = keys;
+            this.map = map;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && keys.hasNext()) {
+                next = map.get(keys.next());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public KeyValues next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final KeyValues result = next;
+            advance();
+            return result;
+        }
+    }
+
+    /**
+     * Merges the iterators of several shards, which are ordered by key, into one ordered iterator.
+     */
+    private static final class MergingIterator implements Iterator<KeyValues> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        private MergingIterator(List<Iterator<KeyValues>> iterators) {
+            for (Iterator<KeyValues> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public KeyValues next() {
+            final Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+            return head.keyValues;
+        }
+
+        private static final class Head implements Comparable<Head> {
+
+            private final KeyValues keyValues;
+            private final Iterator<KeyValues> rest;
+
+            private Head(KeyValues keyValues, Iterator<KeyValues> rest) {
+                this.keyValues = keyValues;
+                this.rest = rest;
+            }
+
+            @Override
+            public int compareTo(Head other) {
+                return keyValues.getKey().compareTo(other.keyValues.getKey());
+            }
+        }
+    }
+
+    /**
+     * Collects the changes of an operation for the maps of all affected shards. Must be used while holding their write locks.
+     */
+    private final class Builders {
+
+        private final Map<Shard, PersistentHashMap.Builder<String, KeyValues>> builders = new HashMap<>();
+        private final Map<Shard, KeyIndex> indexes = new HashMap<>();
+
+        private void put(String key, KeyValues keyValues) {
+            final Shard shard = shardFor(key);
+            builder(shard).put(key, keyValues);
+            indexes.put(shard, indexes.getOrDefault(shard, shard.keys).plus(key));
+        }
+
+        private void remove(String key) {
+            final Shard shard = shardFor(key);
+            builder(shard).remove(key);
+            indexes.put(shard, indexes.getOrDefault(shard, shard.keys).minus(key));
+        }
+
+        private PersistentHashMap.Builder<String, KeyValues> builder(Shard shard) {
+            return builders.computeIfAbsent(shard, changed -> changed.map.toBuilder());
+        }
+
+        /**
+         * Publishes the changed maps.
+         */
+        private void build() {
+            builders.forEach((shard, builder) -> {
+                shard.map = builder.build();
+                shard.keys = indexes.get(shard);
+                shard.writes.increment();
+            });
+        }
+    }
+
+    /**
+     * A partition of the keys with its own map, lock and epoch.
+     */
+    private static final class Shard {
+
+        private final int index;
+        private volatile PersistentHashMap<String, KeyValues> map = PersistentHashMap.empty();
+        /**
+         * The keys of the map, for prefix queries. Only modified together with the map.
+         */
+        private volatile KeyIndex keys = KeyIndex.empty();
+        private final ReadWriteLockTool lock = new ReadWriteLockTool();
+        /**
+         * KeyValues of older epochs may be referenced by snapshots. Only modified under the write lock.
+         */
+        private int epoch;
+        /**
+         * Set, when a snapshot of the current epoch was taken.
+         */
+        private volatile boolean snapshotTaken;
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder writeNanos = new LongAdder();
+        /**
+         * Set for the shard of a ValuesStore with a ValuesStorage, which must never be written.
+         */
+        private final boolean readOnly;
+
+        private Shard(int index, boolean readOnly) {
+            this.index = index;
+            this.readOnly = readOnly;
+        }
+
+        private void checkWritable(String operation) {
+            if (readOnly) {
+                throw new UnsupportedOperationException(
+                        "\"" + operation + "\" is not supported, the values of a ValuesStorage are read only");
+            }
+        }
+
+        /**
+         * Must be called with the write lock held.
+         */
+        private void put(String key, KeyValues keyValues) {
+            keys = keys.plus(key);
+            map = map.plus(key, keyValues);
+        }
+
+        /**
+         * Must be called with the write lock held.
+         */
+        private void remove(String key) {
+            map = map.minus(key);
+            keys = keys.minus(key);
+        }
+
+        /**
+         * Runs a write operation under the write lock and counts it with the time spent waiting for and holding the lock.
+         */
+        private <T> T write(String operation, Supplier<T> supplier) {
+            checkWritable(operation);
+            final long start = System.nanoTime();
+            try {
+                return lock.writeLocked(operation, supplier);
+            } finally {
+                writes.increment();
+                writeNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Returns KeyValues, that may be modified in place. Must be called with the write lock held. KeyValues from an older epoch might be
+         * part of a snapshot and are copied. The caller has to put the result into the map.
+         */
+        private KeyValues modifiable(KeyValues keyValues) {
+            if (snapshotTaken) {
+                epoch++;
+                snapshotTaken = false;
+            }
+            if (keyValues.epoch == epoch) {
+                return keyValues;
+            }
+            final KeyValues copy = keyValues.copy();
+            copy.epoch = epoch;
+            return copy;
+        }
+
+        /**
+         * Returns a copy of the KeyValues, so changes are not seen by readers, before the copy is put into the map. Used by operations,
+         * that change many KeyValues, which must become visible at once. Must be called with the write lock held.
+         */
+        private KeyValues detached(KeyValues keyValues) {
+            final KeyValues copy = keyValues.copy();
+            copy.epoch = epoch;
+            return copy;
+        }
+
+        private KeyValues created(String key, DomainSpecificValueFactory domainSpecificValueFactory, String description) {
+            final KeyValues created = new KeyValues(key, domainSpecificValueFactory, description);
+            created.epoch = epoch;
+            return created;
+        }
+    }
 }
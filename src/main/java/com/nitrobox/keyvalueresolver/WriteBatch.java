@@ -0,0 +1,109 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Collects set and remove operations, that {@link KeyValueResolver#apply(WriteBatch)} applies together. The operations are applied in the
+ * order they were added, under a single lock acquisition and with a single call to {@link Persistence#apply(PersistenceBatch)}. Readers
+ * see either none or all of the changes. A WriteBatch is not thread safe.
+ */
+public final class WriteBatch {
+
+    private final List<Write> writes = new ArrayList<>();
+    private final Set<String> keys = new LinkedHashSet<>();
+
+    public WriteBatch set(String key, Object value, String description, String... domainValues) {
+        return setWithChangeSet(key, value, description, null, domainValues);
+    }
+
+    public WriteBatch setWithChangeSet(String key, Object value, String description, String changeSet, String... domainValues) {
+        Objects.requireNonNull(domainValues, "\"domainValues\" must not be null");
+        return add(new Write(Write.Type.SET, key, value, description, changeSet, domainValues.clone()));
+    }
+
+    public WriteBatch remove(String key, String... domainValues) {
+        return removeWithChangeSet(key, null, domainValues);
+    }
+
+    public WriteBatch removeWithChangeSet(String key, String changeSet, String... domainValues) {
+        Objects.requireNonNull(domainValues, "\"domainValues\" must not be null");
+        return add(new Write(Write.Type.REMOVE, key, null, null, changeSet, domainValues.clone()));
+    }
+
+    public WriteBatch removeKey(String key) {
+        return add(new Write(Write.Type.REMOVE_KEY, key, null, null, null, null));
+    }
+
+    private WriteBatch add(Write write) {
+        writes.add(write);
+        keys.add(write.key);
+        return this;
+    }
+
+    public int size() {
+        return writes.size();
+    }
+
+    public boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    /*package*/ List<Write> getWrites() {
+        return Collections.unmodifiableList(writes);
+    }
+
+    /*package*/ Set<String> getKeys() {
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBatch{writes=" + writes.size() + ", keys=" + keys.size() + '}';
+    }
+
+    /*package*/ static final class Write {
+
+        /*package*/ enum Type {
+            SET, REMOVE, REMOVE_KEY
+        }
+
+        /*package*/ final Type type;
+        /*package*/ final String key;
+        /*package*/ final Object value;
+        /*package*/ final String description;
+        /*package*/ final String changeSet;
+        /*package*/ final String[] domainValues;
+
+        private Write(Type type, String key, Object value, String description, String changeSet, String[] domainValues) {
+            Ensure.notEmpty(key, "key");
+            this.type = type;
+            this.key = key.trim();
+            this.value = value;
+            this.description = description;
+            this.changeSet = changeSet;
+            this.domainValues = domainValues;
+        }
+    }
+}
@@ -21,37 +21,61 @@
 
 package com.nitrobox.keyvalueresolver.jmx;
 
-import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.InstrumentedPersistence;
 import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Keeps track of all KeyValueResolvers without keeping them from being garbage collected. Each KeyValueResolver gets a
+ * {@link KeyValueResolverStatisticsMBean}, which is unregistered, when the KeyValueResolver is removed or collected.
+ *
  * @author finsterwalder
  * @since 2013-05-28 12:08
  */
 public class KeyValueResolverManager implements KeyValueResolverManagerMBean {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(KeyValueResolverManager.class);
     private static final KeyValueResolverManager instance = new KeyValueResolverManager();
 
-    private final Map<KeyValueResolver, KeyValueResolver> roperties = new WeakHashMap<>();
+    private static final String DOMAIN = "com.nitrobox.keyvalueresolver";
+
+    private final Map<KeyValueResolver, KeyValueResolver> roperties = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<ObjectName, KeyValueResolverStatistics> statistics = new ConcurrentHashMap<>();
+    private final Map<ObjectName, PersistenceStatistics> persistenceStatistics = new ConcurrentHashMap<>();
+    private final AtomicLong statisticsIds = new AtomicLong();
+    private final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
 
     public static KeyValueResolverManager getInstance() {
         return instance;
     }
 
     public KeyValueResolverManager() {
-        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         try {
-            mbs.registerMBean(this, new ObjectName("com.nitrobox.keyvalueresolver", "type", KeyValueResolverManagerMBean.class.getSimpleName()));
+            mbs.registerMBean(this, new ObjectName(DOMAIN, "type", KeyValueResolverManagerMBean.class.getSimpleName()));
         } catch (InstanceAlreadyExistsException e) {
             // nothing to do
         } catch (Exception e) {
@@ -61,13 +85,85 @@ public class KeyValueResolverManager implements KeyValueResolverManagerMBean {
 
     public void add(KeyValueResolver keyValueResolver) {
         Objects.requireNonNull(keyValueResolver, "\"keyValueResolver\" must not be null");
-        roperties.put(keyValueResolver, null);
+        unregisterStatistics(KeyValueResolverStatistics::isCollected);
+        final boolean added;
+        synchronized (roperties) {
+            added = !roperties.containsKey(keyValueResolver);
+            roperties.put(keyValueResolver, null);
+        }
+        if (added) {
+            registerStatistics(keyValueResolver);
+        }
+    }
+
+    private void registerStatistics(KeyValueResolver keyValueResolver) {
+        try {
+            final ObjectName name = new ObjectName(DOMAIN + ":type=" + KeyValueResolverStatisticsMBean.class.getSimpleName() + ",id="
+                    + statisticsIds.incrementAndGet());
+            final KeyValueResolverStatistics bean = new KeyValueResolverStatistics(keyValueResolver);
+            mbs.registerMBean(bean, name);
+            statistics.put(name, bean);
+        } catch (Exception e) {
+            LOGGER.warn("Could not register statistics MBean for {}", keyValueResolver, e);
+        }
+    }
+
+    /**
+     * Registers a {@link PersistenceStatisticsMBean} for the persistence. Unlike KeyValueResolvers, the persistence is referenced until it
+     * is removed with {@link #remove(InstrumentedPersistence)}.
+     */
+    public void add(InstrumentedPersistence persistence) {
+        Objects.requireNonNull(persistence, "\"persistence\" must not be null");
+        if (persistenceStatistics.values().stream().anyMatch(bean -> bean.isFor(persistence))) {
+            return;
+        }
+        try {
+            final ObjectName name = new ObjectName(DOMAIN + ":type=" + PersistenceStatisticsMBean.class.getSimpleName() + ",id="
+                    + statisticsIds.incrementAndGet());
+            final PersistenceStatistics bean = new PersistenceStatistics(persistence);
+            mbs.registerMBean(bean, name);
+            persistenceStatistics.put(name, bean);
+        } catch (Exception e) {
+            LOGGER.warn("Could not register statistics MBean for {}", persistence, e);
+        }
+    }
+
+    public void remove(InstrumentedPersistence persistence) {
+        unregister(persistenceStatistics, bean -> bean.isFor(persistence));
+    }
+
+    private void unregisterStatistics(Predicate<KeyValueResolverStatistics> filter) {
+        unregister(statistics, filter);
+    }
+
+    private <T> void unregister(Map<ObjectName, T> beans, Predicate<T> filter) {
+        beans.forEach((name, bean) -> {
+            if (filter.test(bean) && beans.remove(name, bean)) {
+                try {
+                    mbs.unregisterMBean(name);
+                } catch (InstanceNotFoundException e) {
+                    // nothing to do
+                } catch (Exception e) {
+                    LOGGER.warn("Could not unregister statistics MBean {}", name, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the currently registered KeyValueResolvers, copied, so they can be iterated while others register
+     */
+    private List<KeyValueResolver> keyValueResolvers() {
+        synchronized (roperties) {
+            return new ArrayList<>(roperties.keySet());
+        }
     }
 
     @Override
     public String dump(String key) {
-        StringBuilder builder = new StringBuilder(roperties.keySet().size() * 8);
-        for (KeyValueResolver keyValueResolver : roperties.keySet()) {
+        final List<KeyValueResolver> keyValueResolvers = keyValueResolvers();
+        StringBuilder builder = new StringBuilder(keyValueResolvers.size() * 8);
+        for (KeyValueResolver keyValueResolver : keyValueResolvers) {
             KeyValues keyValues = keyValueResolver.getKeyValues(key);
             if (keyValues != null) {
                 builder.append(keyValues);
@@ -77,19 +173,59 @@ public class KeyValueResolverManager implements KeyValueResolverManagerMBean {
         return builder.toString();
     }
 
+    /**
+     * Dumps at most {@link #MAX_PAGE_SIZE} KeyValues per KeyValueResolver, like {@link KeyValueResolver#dump()} for smaller
+     * KeyValueResolvers.
+     */
     @Override
     public String dump() {
-        StringBuilder builder = new StringBuilder(roperties.keySet().size() * 8);
-        for (KeyValueResolver keyValueResolver : roperties.keySet()) {
-            builder.append(keyValueResolver.dump());
+        final List<KeyValueResolver> keyValueResolvers = keyValueResolvers();
+        StringBuilder builder = new StringBuilder(keyValueResolvers.size() * 8);
+        for (KeyValueResolver keyValueResolver : keyValueResolvers) {
+            builder.append(KeyValueResolverImpl.KEY_VALUE_RESOLVER_DOMAINS_TEXT).append(keyValueResolver.getDomains());
+            final List<KeyValues> page = keyValueResolver.getKeyValuesPage("", 0, MAX_PAGE_SIZE + 1);
+            appendKeyValues(builder, page.subList(0, Math.min(page.size(), MAX_PAGE_SIZE)));
+            if (page.size() > MAX_PAGE_SIZE) {
+                builder.append("\n... more than ").append(MAX_PAGE_SIZE).append(" KeyValues, use dumpPage or dumpToFile");
+            }
+            builder.append("\n}\n\n");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String dumpPage(String keyPrefix, int offset, int limit) {
+        if (limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("\"limit\" must not be greater than " + MAX_PAGE_SIZE + ", but was: " + limit);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (KeyValueResolver keyValueResolver : keyValueResolvers()) {
+            builder.append(keyValueResolver).append(":");
+            appendKeyValues(builder, keyValueResolver.getKeyValuesPage(keyPrefix, offset, limit));
             builder.append("\n\n");
         }
         return builder.toString();
     }
 
+    private static void appendKeyValues(StringBuilder builder, List<KeyValues> page) {
+        for (KeyValues keyValues : page) {
+            builder.append("\nKeyValues for \"").append(keyValues.getKey()).append("\": ").append(keyValues);
+        }
+    }
+
+    @Override
+    public void dumpToFile(String fileName) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Path.of(fileName), StandardCharsets.UTF_8)) {
+            for (KeyValueResolver keyValueResolver : keyValueResolvers()) {
+                keyValueResolver.dump(out);
+                out.append('\n');
+            }
+        }
+    }
+
     @Override
     public void dumpToSystemOut() {
-        for (KeyValueResolver keyValueResolver : roperties.keySet()) {
+        for (KeyValueResolver keyValueResolver : keyValueResolvers()) {
             keyValueResolver.dump(System.out);
             System.out.println();
         }
@@ -97,21 +233,24 @@ public class KeyValueResolverManager implements KeyValueResolverManagerMBean {
 
     @Override
     public void reload() {
-        for (KeyValueResolver keyValueResolver : roperties.keySet()) {
+        for (KeyValueResolver keyValueResolver : keyValueResolvers()) {
             keyValueResolver.reload();
         }
     }
 
     @Override
     public String listRoperties() {
-        return roperties.keySet().toString();
+        return keyValueResolvers().toString();
     }
 
     public void reset() {
         roperties.clear();
+        unregisterStatistics(bean -> true);
+        unregister(persistenceStatistics, bean -> true);
     }
 
     public void remove(final KeyValueResolver keyValueResolver) {
         roperties.remove(keyValueResolver);
+        unregisterStatistics(bean -> bean.isCollected() || bean.isFor(keyValueResolver));
     }
 }
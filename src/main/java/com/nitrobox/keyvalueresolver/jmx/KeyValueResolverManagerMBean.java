@@ -21,18 +21,38 @@
 
 package com.nitrobox.keyvalueresolver.jmx;
 
+import java.io.IOException;
+
 /**
  * @author finsterwalder
  * @since 2013-05-28 12:08
  */
 public interface KeyValueResolverManagerMBean {
 
+    /**
+     * Dumps at most {@link KeyValueResolverManager#MAX_PAGE_SIZE} KeyValues per KeyValueResolver, use {@link #dumpPage} or
+     * {@link #dumpToFile} for all KeyValues.
+     */
     String dump();
 
     void dumpToSystemOut();
 
     String dump(String key);
 
+    /**
+     * Dumps at most {@link KeyValueResolverManager#MAX_PAGE_SIZE} KeyValues per KeyValueResolver, ordered by key.
+     *
+     * @param keyPrefix prefix of the keys to dump, empty for all keys
+     * @param offset    number of matching keys to skip in each KeyValueResolver
+     * @param limit     number of KeyValues to dump per KeyValueResolver
+     */
+    String dumpPage(String keyPrefix, int offset, int limit);
+
+    /**
+     * Streams all KeyValueResolvers into the file, without building the dump in memory.
+     */
+    void dumpToFile(String fileName) throws IOException;
+
     void reload();
 
     String listRoperties();
@@ -0,0 +1,268 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.jmx;
+
+import com.nitrobox.keyvalueresolver.KeyProfiler;
+import com.nitrobox.keyvalueresolver.LatencyHistogram;
+import com.nitrobox.keyvalueresolver.LockStatistics;
+import com.nitrobox.keyvalueresolver.ShardStatistics;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverMetrics;
+import com.nitrobox.keyvalueresolver.KeyValueResolverMetrics.Operation;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the {@link KeyValueResolverMetrics} of a KeyValueResolver. Only holds a weak reference to the KeyValueResolver, so registering
+ * the MBean does not keep it from being garbage collected.
+ */
+public final class KeyValueResolverStatistics implements KeyValueResolverStatisticsMBean {
+
+    private final WeakReference<KeyValueResolver> keyValueResolver;
+    private final KeyValueResolverMetrics metrics;
+
+    /*package*/ KeyValueResolverStatistics(KeyValueResolver keyValueResolver) {
+        this.keyValueResolver = new WeakReference<>(keyValueResolver);
+        this.metrics = keyValueResolver.getMetrics();
+    }
+
+    /*package*/ boolean isCollected() {
+        return keyValueResolver.get() == null;
+    }
+
+    /*package*/ boolean isFor(KeyValueResolver keyValueResolver) {
+        return this.keyValueResolver.get() == keyValueResolver;
+    }
+
+    @Override
+    public String getKeyValueResolver() {
+        return String.valueOf(keyValueResolver.get());
+    }
+
+    @Override
+    public long getGetCount() {
+        return metrics.getCount(Operation.GET);
+    }
+
+    @Override
+    public double getGetMeanNanos() {
+        return metrics.getLatency(Operation.GET).getMeanNanos();
+    }
+
+    @Override
+    public long getGetP99Nanos() {
+        return metrics.getLatency(Operation.GET).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getDefineCount() {
+        return metrics.getCount(Operation.DEFINE);
+    }
+
+    @Override
+    public double getDefineMeanNanos() {
+        return metrics.getLatency(Operation.DEFINE).getMeanNanos();
+    }
+
+    @Override
+    public long getDefineP99Nanos() {
+        return metrics.getLatency(Operation.DEFINE).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getSetCount() {
+        return metrics.getCount(Operation.SET);
+    }
+
+    @Override
+    public double getSetMeanNanos() {
+        return metrics.getLatency(Operation.SET).getMeanNanos();
+    }
+
+    @Override
+    public long getSetP99Nanos() {
+        return metrics.getLatency(Operation.SET).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getRemoveCount() {
+        return metrics.getCount(Operation.REMOVE);
+    }
+
+    @Override
+    public double getRemoveMeanNanos() {
+        return metrics.getLatency(Operation.REMOVE).getMeanNanos();
+    }
+
+    @Override
+    public long getRemoveP99Nanos() {
+        return metrics.getLatency(Operation.REMOVE).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getReloadCount() {
+        return metrics.getCount(Operation.RELOAD);
+    }
+
+    @Override
+    public double getReloadMeanNanos() {
+        return metrics.getLatency(Operation.RELOAD).getMeanNanos();
+    }
+
+    @Override
+    public long getReloadP99Nanos() {
+        return metrics.getLatency(Operation.RELOAD).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getLoadCount() {
+        return metrics.getCount(Operation.LOAD);
+    }
+
+    @Override
+    public double getLoadMeanNanos() {
+        return metrics.getLatency(Operation.LOAD).getMeanNanos();
+    }
+
+    @Override
+    public long getLoadP99Nanos() {
+        return metrics.getLatency(Operation.LOAD).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getBatchCount() {
+        return metrics.getCount(Operation.BATCH);
+    }
+
+    @Override
+    public double getBatchMeanNanos() {
+        return metrics.getLatency(Operation.BATCH).getMeanNanos();
+    }
+
+    @Override
+    public long getBatchP99Nanos() {
+        return metrics.getLatency(Operation.BATCH).getPercentileNanos(99);
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return metrics.getCacheHitRate();
+    }
+
+    @Override
+    public double getDefaultRate() {
+        return metrics.getDefaultRate();
+    }
+
+    @Override
+    public int getKeyCount() {
+        final KeyValueResolver resolver = keyValueResolver.get();
+        return resolver == null ? 0 : resolver.getAllKeyValues().size();
+    }
+
+    @Override
+    public long getValueCount() {
+        final KeyValueResolver resolver = keyValueResolver.get();
+        if (resolver == null) {
+            return 0;
+        }
+        final Collection<KeyValues> allKeyValues = resolver.getAllKeyValues();
+        long count = 0;
+        for (KeyValues keyValues : allKeyValues) {
+            count += keyValues.getDomainSpecificValues().size();
+        }
+        return count;
+    }
+
+    @Override
+    public String[] getTopKeysByCalls() {
+        final KeyProfiler profiler = metrics.getProfiler();
+        return profiler == null ? new String[0] : toStrings(profiler.getTopKeysByCalls());
+    }
+
+    @Override
+    public String[] getTopKeysByCost() {
+        final KeyProfiler profiler = metrics.getProfiler();
+        return profiler == null ? new String[0] : toStrings(profiler.getTopKeysByCost());
+    }
+
+    private static String[] toStrings(List<KeyProfiler.Entry> entries) {
+        return entries.stream().map(KeyProfiler.Entry::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public void enableProfiling(int capacity, int sampleRate) {
+        metrics.enableProfiling(capacity, sampleRate);
+    }
+
+    @Override
+    public void disableProfiling() {
+        metrics.disableProfiling();
+    }
+
+    @Override
+    public String[] getLockWaitTimes() {
+        final LockStatistics statistics = metrics.getLockStatistics();
+        return statistics == null ? new String[0] : toStrings(statistics.getWaitTimes());
+    }
+
+    @Override
+    public String[] getLockHoldTimes() {
+        final LockStatistics statistics = metrics.getLockStatistics();
+        return statistics == null ? new String[0] : toStrings(statistics.getHoldTimes());
+    }
+
+    private static String[] toStrings(Map<String, LatencyHistogram> histograms) {
+        return histograms.entrySet().stream().map(entry -> entry.getKey() + ": " + entry.getValue()).toArray(String[]::new);
+    }
+
+    @Override
+    public double getAverageLockQueueLength() {
+        final LockStatistics statistics = metrics.getLockStatistics();
+        return statistics == null ? 0 : statistics.getAverageQueueLength();
+    }
+
+    @Override
+    public long getMaxLockQueueLength() {
+        final LockStatistics statistics = metrics.getLockStatistics();
+        return statistics == null ? 0 : statistics.getMaxQueueLength();
+    }
+
+    @Override
+    public void enableLockStatistics() {
+        metrics.enableLockStatistics();
+    }
+
+    @Override
+    public void disableLockStatistics() {
+        metrics.disableLockStatistics();
+    }
+
+    @Override
+    public String[] getShards() {
+        return metrics.getShardStatistics().stream().map(ShardStatistics::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.jmx;
+
+/**
+ * Counters and latencies of a single KeyValueResolver. Latencies are in nanoseconds, percentiles are the upper bound of a power of two
+ * bucket.
+ */
+public interface KeyValueResolverStatisticsMBean {
+
+    String getKeyValueResolver();
+
+    long getGetCount();
+
+    double getGetMeanNanos();
+
+    long getGetP99Nanos();
+
+    long getDefineCount();
+
+    double getDefineMeanNanos();
+
+    long getDefineP99Nanos();
+
+    long getSetCount();
+
+    double getSetMeanNanos();
+
+    long getSetP99Nanos();
+
+    long getRemoveCount();
+
+    double getRemoveMeanNanos();
+
+    long getRemoveP99Nanos();
+
+    long getReloadCount();
+
+    double getReloadMeanNanos();
+
+    long getReloadP99Nanos();
+
+    long getLoadCount();
+
+    double getLoadMeanNanos();
+
+    long getLoadP99Nanos();
+
+    long getBatchCount();
+
+    double getBatchMeanNanos();
+
+    long getBatchP99Nanos();
+
+    double getCacheHitRate();
+
+    double getDefaultRate();
+
+    int getKeyCount();
+
+    long getValueCount();
+
+    /**
+     * @return the keys with the most lookups, empty when profiling is disabled
+     */
+    String[] getTopKeysByCalls();
+
+    /**
+     * @return the keys, that scan the most values per lookup, empty when profiling is disabled
+     */
+    String[] getTopKeysByCost();
+
+    void enableProfiling(int capacity, int sampleRate);
+
+    void disableProfiling();
+
+    /**
+     * @return wait times per lock mode and operation, empty when lock statistics are disabled
+     */
+    String[] getLockWaitTimes();
+
+    /**
+     * @return hold times per lock mode and operation, empty when lock statistics are disabled
+     */
+    String[] getLockHoldTimes();
+
+    double getAverageLockQueueLength();
+
+    long getMaxLockQueueLength();
+
+    void enableLockStatistics();
+
+    /**
+     * @return key count, write count and write time of every shard of the ValuesStore
+     */
+    String[] getShards();
+
+    void disableLockStatistics();
+
+    void reset();
+}
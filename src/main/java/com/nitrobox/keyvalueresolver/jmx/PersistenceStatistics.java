@@ -0,0 +1,232 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.jmx;
+
+import com.nitrobox.keyvalueresolver.InstrumentedPersistence;
+import com.nitrobox.keyvalueresolver.InstrumentedPersistence.Method;
+
+/**
+ * Exposes the counters of an {@link InstrumentedPersistence}.
+ */
+public final class PersistenceStatistics implements PersistenceStatisticsMBean {
+
+    private final InstrumentedPersistence persistence;
+
+    /*package*/ PersistenceStatistics(InstrumentedPersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    /*package*/ boolean isFor(InstrumentedPersistence persistence) {
+        return this.persistence == persistence;
+    }
+
+    @Override
+    public String getPersistence() {
+        return String.valueOf(persistence.getPersistence());
+    }
+
+    @Override
+    public long getLoadCount() {
+        return persistence.getCount(Method.LOAD);
+    }
+
+    @Override
+    public long getLoadErrorCount() {
+        return persistence.getErrorCount(Method.LOAD);
+    }
+
+    @Override
+    public double getLoadThroughput() {
+        return persistence.getThroughput(Method.LOAD);
+    }
+
+    @Override
+    public double getLoadMeanNanos() {
+        return persistence.getLatency(Method.LOAD).getMeanNanos();
+    }
+
+    @Override
+    public long getLoadP99Nanos() {
+        return persistence.getLatency(Method.LOAD).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getLoadAllCount() {
+        return persistence.getCount(Method.LOAD_ALL);
+    }
+
+    @Override
+    public long getLoadAllErrorCount() {
+        return persistence.getErrorCount(Method.LOAD_ALL);
+    }
+
+    @Override
+    public double getLoadAllThroughput() {
+        return persistence.getThroughput(Method.LOAD_ALL);
+    }
+
+    @Override
+    public double getLoadAllMeanNanos() {
+        return persistence.getLatency(Method.LOAD_ALL).getMeanNanos();
+    }
+
+    @Override
+    public long getLoadAllP99Nanos() {
+        return persistence.getLatency(Method.LOAD_ALL).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getReloadCount() {
+        return persistence.getCount(Method.RELOAD);
+    }
+
+    @Override
+    public long getReloadErrorCount() {
+        return persistence.getErrorCount(Method.RELOAD);
+    }
+
+    @Override
+    public double getReloadThroughput() {
+        return persistence.getThroughput(Method.RELOAD);
+    }
+
+    @Override
+    public double getReloadMeanNanos() {
+        return persistence.getLatency(Method.RELOAD).getMeanNanos();
+    }
+
+    @Override
+    public long getReloadP99Nanos() {
+        return persistence.getLatency(Method.RELOAD).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getStoreCount() {
+        return persistence.getCount(Method.STORE);
+    }
+
+    @Override
+    public long getStoreErrorCount() {
+        return persistence.getErrorCount(Method.STORE);
+    }
+
+    @Override
+    public double getStoreThroughput() {
+        return persistence.getThroughput(Method.STORE);
+    }
+
+    @Override
+    public double getStoreMeanNanos() {
+        return persistence.getLatency(Method.STORE).getMeanNanos();
+    }
+
+    @Override
+    public long getStoreP99Nanos() {
+        return persistence.getLatency(Method.STORE).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getRemoveKeyCount() {
+        return persistence.getCount(Method.REMOVE_KEY);
+    }
+
+    @Override
+    public long getRemoveKeyErrorCount() {
+        return persistence.getErrorCount(Method.REMOVE_KEY);
+    }
+
+    @Override
+    public double getRemoveKeyThroughput() {
+        return persistence.getThroughput(Method.REMOVE_KEY);
+    }
+
+    @Override
+    public double getRemoveKeyMeanNanos() {
+        return persistence.getLatency(Method.REMOVE_KEY).getMeanNanos();
+    }
+
+    @Override
+    public long getRemoveKeyP99Nanos() {
+        return persistence.getLatency(Method.REMOVE_KEY).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getRemoveValueCount() {
+        return persistence.getCount(Method.REMOVE_VALUE);
+    }
+
+    @Override
+    public long getRemoveValueErrorCount() {
+        return persistence.getErrorCount(Method.REMOVE_VALUE);
+    }
+
+    @Override
+    public double getRemoveValueThroughput() {
+        return persistence.getThroughput(Method.REMOVE_VALUE);
+    }
+
+    @Override
+    public double getRemoveValueMeanNanos() {
+        return persistence.getLatency(Method.REMOVE_VALUE).getMeanNanos();
+    }
+
+    @Override
+    public long getRemoveValueP99Nanos() {
+        return persistence.getLatency(Method.REMOVE_VALUE).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getApplyCount() {
+        return persistence.getCount(Method.APPLY);
+    }
+
+    @Override
+    public long getApplyErrorCount() {
+        return persistence.getErrorCount(Method.APPLY);
+    }
+
+    @Override
+    public double getApplyThroughput() {
+        return persistence.getThroughput(Method.APPLY);
+    }
+
+    @Override
+    public double getApplyMeanNanos() {
+        return persistence.getLatency(Method.APPLY).getMeanNanos();
+    }
+
+    @Override
+    public long getApplyP99Nanos() {
+        return persistence.getLatency(Method.APPLY).getPercentileNanos(99);
+    }
+
+    @Override
+    public long getReadValues() {
+        return persistence.getReadValues();
+    }
+
+    @Override
+    public long getReadBytes() {
+        return persistence.getReadBytes();
+    }
+
+    @Override
+    public void reset() {
+        persistence.reset();
+    }
+}
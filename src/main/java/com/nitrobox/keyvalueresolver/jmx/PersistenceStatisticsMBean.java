@@ -0,0 +1,75 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.jmx;
+
+/**
+ * Calls, errors and latencies of an {@link com.nitrobox.keyvalueresolver.InstrumentedPersistence} per Persistence method. Latencies are
+ * in nanoseconds, throughput in calls per second since the last reset.
+ */
+public interface PersistenceStatisticsMBean {
+
+    String getPersistence();
+
+    long getLoadCount();
+    long getLoadErrorCount();
+    double getLoadThroughput();
+    double getLoadMeanNanos();
+    long getLoadP99Nanos();
+
+    long getLoadAllCount();
+    long getLoadAllErrorCount();
+    double getLoadAllThroughput();
+    double getLoadAllMeanNanos();
+    long getLoadAllP99Nanos();
+
+    long getReloadCount();
+    long getReloadErrorCount();
+    double getReloadThroughput();
+    double getReloadMeanNanos();
+    long getReloadP99Nanos();
+
+    long getStoreCount();
+    long getStoreErrorCount();
+    double getStoreThroughput();
+    double getStoreMeanNanos();
+    long getStoreP99Nanos();
+
+    long getRemoveKeyCount();
+    long getRemoveKeyErrorCount();
+    double getRemoveKeyThroughput();
+    double getRemoveKeyMeanNanos();
+    long getRemoveKeyP99Nanos();
+
+    long getRemoveValueCount();
+    long getRemoveValueErrorCount();
+    double getRemoveValueThroughput();
+    double getRemoveValueMeanNanos();
+    long getRemoveValueP99Nanos();
+
+    long getApplyCount();
+    long getApplyErrorCount();
+    double getApplyThroughput();
+    double getApplyMeanNanos();
+    long getApplyP99Nanos();
+
+    long getReadValues();
+
+    long getReadBytes();
+
+    void reset();
+}
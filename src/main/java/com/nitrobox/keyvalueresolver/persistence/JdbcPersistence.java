@@ -0,0 +1,288 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.persistence;
+
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.Persistence;
+import com.nitrobox.keyvalueresolver.PersistenceBatch;
+import com.nitrobox.keyvalueresolver.PersistenceBatch.Change;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.sql.DataSource;
+
+/**
+ * A Persistence storing KeyValues in two tables via plain JDBC. Use {@link #createSchema()} or the statements in {@link #SCHEMA} to
+ * create the tables.
+ * <p>
+ * A key is loaded together with all its values in a single query. loadAll streams the rows using the configured fetch size, instead of
+ * letting the driver buffer the complete result. Changes of several values are written with JDBC batches in one transaction.
+ * <p>
+ * Values without a changeSet are stored with an empty changeSet, since changeSet is part of the primary key. Values must be Strings,
+ * numbers, Booleans or Serializable.
+ */
+public class JdbcPersistence implements Persistence {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * The primary key of kvr_value starts with key_name and also serves as the index for loading a key.
+     */
+    public static final List<String> SCHEMA = List.of(
+            "CREATE TABLE kvr_key ("
+                    + "key_name VARCHAR(512) NOT NULL, "
+                    + "description VARCHAR(4000), "
+                    + "PRIMARY KEY (key_name))",
+            "CREATE TABLE kvr_value ("
+                    + "key_name VARCHAR(512) NOT NULL, "
+                    + "change_set VARCHAR(255) NOT NULL, "
+                    + "pattern VARCHAR(2048) NOT NULL, "
+                    + "value_type CHAR(1) NOT NULL, "
+                    + "value_data CLOB, "
+                    + "PRIMARY KEY (key_name, change_set, pattern))",
+            "CREATE INDEX kvr_value_change_set ON kvr_value (change_set)");
+
+    private static final String NO_CHANGE_SET = "";
+    private static final String SELECT_KEY_WITH_VALUES = "SELECT k.key_name, k.description, v.change_set, v.pattern, v.value_type, "
+            + "v.value_data FROM kvr_key k LEFT JOIN kvr_value v ON v.key_name = k.key_name";
+    private static final String LOAD_KEY = SELECT_KEY_WITH_VALUES + " WHERE k.key_name = ?";
+    private static final String LOAD_ALL = SELECT_KEY_WITH_VALUES + " ORDER BY k.key_name";
+    private static final String UPDATE_KEY = "UPDATE kvr_key SET description = ? WHERE key_name = ?";
+    private static final String INSERT_KEY = "INSERT INTO kvr_key (description, key_name) VALUES (?, ?)";
+    private static final String UPDATE_VALUE = "UPDATE kvr_value SET value_type = ?, value_data = ? "
+            + "WHERE key_name = ? AND change_set = ? AND pattern = ?";
+    private static final String INSERT_VALUE = "INSERT INTO kvr_value (value_type, value_data, key_name, change_set, pattern) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_VALUE = "DELETE FROM kvr_value WHERE key_name = ? AND change_set = ? AND pattern = ?";
+    private static final String DELETE_VALUES_OF_KEY = "DELETE FROM kvr_value WHERE key_name = ?";
+    private static final String DELETE_KEY = "DELETE FROM kvr_key WHERE key_name = ?";
+
+    private final DataSource dataSource;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public JdbcPersistence(DataSource dataSource) {
+        this.dataSource = Objects.requireNonNull(dataSource, "\"dataSource\" must not be null");
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("\"fetchSize\" must be positive, but was: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public void createSchema() {
+        inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public KeyValues load(String key, DomainSpecificValueFactory domainSpecificValueFactory) {
+        return inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(LOAD_KEY)) {
+                statement.setString(1, key);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    final List<KeyValues> result = readKeyValues(resultSet, domainSpecificValueFactory);
+                    return result.isEmpty() ? null : result.get(0);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Collection<KeyValues> loadAll(DomainSpecificValueFactory domainSpecificValueFactory) {
+        return inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(LOAD_ALL)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return readKeyValues(resultSet, domainSpecificValueFactory);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Collection<KeyValues> reload(Collection<KeyValues> keyValues, DomainSpecificValueFactory domainSpecificValueFactory) {
+        return loadAll(domainSpecificValueFactory);
+    }
+
+    @Override
+    public void store(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+        apply(new PersistenceBatch().store(key, keyValues, domainSpecificValue));
+    }
+
+    @Override
+    public void remove(String key) {
+        apply(new PersistenceBatch().removeKey(key));
+    }
+
+    @Override
+    public void remove(String key, DomainSpecificValue domainSpecificValue) {
+        apply(new PersistenceBatch().remove(key, domainSpecificValue));
+    }
+
+    @Override
+    public void apply(PersistenceBatch batch) {
+        inTransaction(connection -> {
+            if (!batch.getRemovedKeys().isEmpty()) {
+                executeBatch(connection, DELETE_VALUES_OF_KEY, batch.getRemovedKeys(), (statement, key) -> statement.setString(1, key));
+                executeBatch(connection, DELETE_KEY, batch.getRemovedKeys(), (statement, key) -> statement.setString(1, key));
+            }
+            if (!batch.getRemovedValues().isEmpty()) {
+                executeBatch(connection, DELETE_VALUE, batch.getRemovedValues(), (statement, change) -> {
+                    statement.setString(1, change.getKey());
+                    setValueId(statement, 2, change.getDomainSpecificValue());
+                });
+            }
+            if (!batch.getStoredValues().isEmpty()) {
+                final Map<String, String> descriptions = new LinkedHashMap<>();
+                batch.getStoredValues().forEach(change -> descriptions.put(change.getKey(), change.getKeyValues().getDescription()));
+                upsert(connection, UPDATE_KEY, INSERT_KEY, new ArrayList<>(descriptions.entrySet()), (statement, entry) -> {
+                    statement.setString(1, entry.getValue());
+                    statement.setString(2, entry.getKey());
+                });
+                upsert(connection, UPDATE_VALUE, INSERT_VALUE, batch.getStoredValues(), JdbcPersistence::setValue);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reads KeyValues from rows ordered by key. Rows without a pattern belong to keys without values.
+     */
+    private static List<KeyValues> readKeyValues(ResultSet resultSet, DomainSpecificValueFactory domainSpecificValueFactory)
+            throws SQLException {
+        final List<KeyValues> result = new ArrayList<>();
+        String currentKey = null;
+        String description = null;
+        List<DomainSpecificValue> values = new ArrayList<>();
+        while (resultSet.next()) {
+            final String key = resultSet.getString(1);
+            if (!key.equals(currentKey)) {
+                if (currentKey != null) {
+                    result.add(new KeyValues(currentKey, domainSpecificValueFactory, description, values));
+                }
+                currentKey = key;
+                description = resultSet.getString(2);
+                values = new ArrayList<>();
+            }
+            final String pattern = resultSet.getString(4);
+            if (pattern != null) {
+                final String changeSet = resultSet.getString(3);
+                final Object value = ValueCodec.fromText(resultSet.getString(5), resultSet.getString(6));
+                values.add(domainSpecificValueFactory.createFromPattern(value, NO_CHANGE_SET.equals(changeSet) ? null : changeSet,
+                        pattern));
+            }
+        }
+        if (currentKey != null) {
+            result.add(new KeyValues(currentKey, domainSpecificValueFactory, description, values));
+        }
+        return result;
+    }
+
+    private static void setValue(PreparedStatement statement, Change change) throws SQLException {
+        final Object value = change.getDomainSpecificValue().getValue();
+        statement.setString(1, ValueCodec.textType(value));
+        statement.setString(2, ValueCodec.toText(value));
+        statement.setString(3, change.getKey());
+        setValueId(statement, 4, change.getDomainSpecificValue());
+    }
+
+    private static void setValueId(PreparedStatement statement, int index, DomainSpecificValue domainSpecificValue)
+            throws SQLException {
+        final String changeSet = domainSpecificValue.getChangeSet();
+        statement.setString(index, changeSet == null ? NO_CHANGE_SET : changeSet);
+        statement.setString(index + 1, domainSpecificValue.getPattern());
+    }
+
+    /**
+     * Updates all rows in one batch and inserts those rows in a second batch, that were not updated. Update and insert statements must
+     * take the same parameters.
+     */
+    private static <T> void upsert(Connection connection, String update, String insert, List<T> rows, Binder<T> binder)
+            throws SQLException {
+        final int[] updateCounts = executeBatch(connection, update, rows, binder);
+        final List<T> missingRows = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                missingRows.add(rows.get(i));
+            }
+        }
+        if (!missingRows.isEmpty()) {
+            executeBatch(connection, insert, missingRows, binder);
+        }
+    }
+
+    private static <T> int[] executeBatch(Connection connection, String sql, List<T> rows, Binder<T> binder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (T row : rows) {
+                binder.bind(statement, row);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    /**
+     * Runs the work in a transaction. Auto commit is disabled, which is also required by some drivers to honour the fetch size.
+     */
+    private <T> T inTransaction(SqlWork<T> work) {
+        try (Connection connection = dataSource.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                final T result = work.execute(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database access failed", e);
+        }
+    }
+
+    private interface SqlWork<T> {
+
+        T execute(Connection connection) throws SQLException;
+    }
+
+    private interface Binder<T> {
+
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+}
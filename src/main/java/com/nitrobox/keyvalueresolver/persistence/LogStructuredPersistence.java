@@ -0,0 +1,737 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.persistence;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.Persistence;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Persistence writing all changes to an append only log of segment files in a directory. Every record carries its length and a CRC32
+ * checksum, so a record torn by a crash is detected and cut off when the log is replayed.
+ * <p>
+ * Writes are appended to the active segment and flushed to disk in batches every syncInterval. A syncInterval of zero syncs every single
+ * write. When the active segment exceeds maxSegmentSize, a new segment is started. When more than compactionThreshold of the sealed
+ * segments consists of overwritten or removed values, a background compaction rewrites all live values of the sealed segments into a
+ * snapshot. On startup, the state is rebuilt from the latest snapshot plus the segments written after it.
+ * <p>
+ * The log is owned by a single process. Values must be Strings, numbers, Booleans or Serializable.
+ */
+public class LogStructuredPersistence implements Persistence, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistence.class);
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(10);
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".log";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int HEADER_SIZE = 8;
+    private static final byte STORE = 1;
+    private static final byte REMOVE_VALUE = 2;
+    private static final byte REMOVE_KEY = 3;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    private final boolean syncEveryWrite;
+    private final double compactionThreshold;
+    private final ScheduledExecutorService executor;
+    /**
+     * Compactions run on their own thread, so a long compaction does not delay the syncs.
+     */
+    private final ExecutorService compactionExecutor;
+    private final Object lock = new Object();
+    private final Object compactionLock = new Object();
+    private final Map<String, KeyEntry> keyDir = new HashMap<>();
+    /**
+     * The snapshot (if present), followed by the sealed segments and the active segment, which is always the last one.
+     */
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean dirty;
+    private boolean compacting;
+
+    public LogStructuredPersistence(Path directory) {
+        this(directory, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_SYNC_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public LogStructuredPersistence(Path directory, long maxSegmentSize, Duration syncInterval, double compactionThreshold) {
+        this.directory = Objects.requireNonNull(directory, "\"directory\" must not be null");
+        Objects.requireNonNull(syncInterval, "\"syncInterval\" must not be null");
+        if (maxSegmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("\"maxSegmentSize\" is too small: " + maxSegmentSize);
+        }
+        this.maxSegmentSize = maxSegmentSize;
+        this.syncEveryWrite = syncInterval.isZero();
+        this.compactionThreshold = compactionThreshold;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open log in " + directory, e);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LogStructuredPersistence " + directory);
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LogStructuredPersistence compaction " + directory);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!syncEveryWrite) {
+            executor.scheduleWithFixedDelay(this::syncQuietly, syncInterval.toNanos(), syncInterval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public KeyValues load(String key, DomainSpecificValueFactory domainSpecificValueFactory) {
+        synchronized (lock) {
+            return loadLocked(key, domainSpecificValueFactory);
+        }
+    }
+
+    @Override
+    public Collection<KeyValues> loadAll(DomainSpecificValueFactory domainSpecificValueFactory) {
+        synchronized (lock) {
+            List<KeyValues> result = new ArrayList<>(keyDir.size());
+            for (String key : keyDir.keySet()) {
+                result.add(loadLocked(key, domainSpecificValueFactory));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The log is owned by this instance, so a reload gives the same result as loadAll.
+     */
+    @Override
+    public Collection<KeyValues> reload(Collection<KeyValues> keyValues, DomainSpecificValueFactory domainSpecificValueFactory) {
+        return loadAll(domainSpecificValueFactory);
+    }
+
+    @Override
+    public void store(String key, KeyValues keyValues, DomainSpecificValue domainSpecificValue) {
+        final String description = keyValues.getDescription();
+        final String changeSet = domainSpecificValue.getChangeSet();
+        final String pattern = domainSpecificValue.getPattern();
+        final byte[] payload = payload(out -> {
+            out.writeByte(STORE);
+            ValueCodec.writeString(out, key);
+            ValueCodec.writeString(out, description);
+            ValueCodec.writeString(out, changeSet);
+            ValueCodec.writeString(out, pattern);
+            ValueCodec.writeValue(out, domainSpecificValue.getValue());
+        });
+        synchronized (lock) {
+            final Segment active = active();
+            final long offset = append(payload);
+            applyStore(active, offset, HEADER_SIZE + payload.length, key, description, new ValueId(changeSet, pattern));
+            afterAppend();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        final byte[] payload = payload(out -> {
+            out.writeByte(REMOVE_KEY);
+            ValueCodec.writeString(out, key);
+        });
+        synchronized (lock) {
+            append(payload);
+            applyRemoveKey(key);
+            afterAppend();
+        }
+    }
+
+    @Override
+    public void remove(String key, DomainSpecificValue domainSpecificValue) {
+        final String changeSet = domainSpecificValue.getChangeSet();
+        final String pattern = domainSpecificValue.getPattern();
+        final byte[] payload = payload(out -> {
+            out.writeByte(REMOVE_VALUE);
+            ValueCodec.writeString(out, key);
+            ValueCodec.writeString(out, changeSet);
+            ValueCodec.writeString(out, pattern);
+        });
+        synchronized (lock) {
+            append(payload);
+            applyRemoveValue(key, new ValueId(changeSet, pattern));
+            afterAppend();
+        }
+    }
+
+    /**
+     * Forces all written records to disk.
+     */
+    public void sync() {
+        final FileChannel channel;
+        synchronized (lock) {
+            dirty = false;
+            channel = active().channel;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // segment was rolled over and forced or the log was closed
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rewrites the live values of the snapshot and all sealed segments into a new snapshot and deletes the old files. Writes continue
+     * to the active segment while the snapshot is written.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            final List<Segment> inputs;
+            synchronized (lock) {
+                inputs = new ArrayList<>(segments.subList(0, segments.size() - 1));
+            }
+            try {
+                if (!inputs.isEmpty() && !inputs.get(inputs.size() - 1).snapshot) {
+                    compact(inputs);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Compaction of log in " + directory + " failed", e);
+            } finally {
+                synchronized (lock) {
+                    compacting = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a running sync and compaction and closes all segments. The background threads are not interrupted, since interrupting a
+     * thread blocked in a FileChannel closes the channel.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        compactionExecutor.shutdown();
+        boolean interrupted = awaitTermination(executor);
+        interrupted |= awaitTermination(compactionExecutor);
+        synchronized (compactionLock) {
+            synchronized (lock) {
+                try {
+                    active().channel.force(false);
+                    for (Segment segment : segments) {
+                        segment.channel.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true, when the current thread was interrupted while waiting
+     */
+    private static boolean awaitTermination(ExecutorService executorService) {
+        boolean interrupted = false;
+        while (!executorService.isTerminated()) {
+            try {
+                executorService.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        final List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.collect(Collectors.toList());
+        }
+        long snapshotId = -1;
+        for (Path file : files) {
+            final String name = file.getFileName().toString();
+            if (name.endsWith(TMP_SUFFIX)) {
+                Files.delete(file);
+            } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SUFFIX)) {
+                snapshotId = Math.max(snapshotId, id(name, SNAPSHOT_PREFIX));
+            }
+        }
+        final List<Long> segmentIds = new ArrayList<>();
+        for (Path file : files) {
+            final String name = file.getFileName().toString();
+            if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SUFFIX) && id(name, SNAPSHOT_PREFIX) < snapshotId) {
+                Files.delete(file);
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SUFFIX)) {
+                final long id = id(name, SEGMENT_PREFIX);
+                if (id <= snapshotId) {
+                    // leftover of an interrupted compaction, its contents are part of the snapshot
+                    Files.delete(file);
+                } else {
+                    segmentIds.add(id);
+                }
+            }
+        }
+        segmentIds.sort(Long::compare);
+        if (snapshotId >= 0) {
+            replay(openSegment(snapshotId, true), false);
+        }
+        for (int i = 0; i < segmentIds.size(); i++) {
+            replay(openSegment(segmentIds.get(i), false), i == segmentIds.size() - 1);
+        }
+        if (segments.isEmpty() || active().snapshot) {
+            segments.add(openSegment(Math.max(snapshotId, 0) + 1, false));
+        }
+    }
+
+    private void replay(Segment segment, boolean last) throws IOException {
+        segments.add(segment);
+        final long validSize = scan(segment, (offset, length, payload) -> {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            final byte op = in.readByte();
+            final String key = ValueCodec.readString(in);
+            if (op == STORE) {
+                final String description = ValueCodec.readString(in);
+                applyStore(segment, offset, length, key, description, readValueId(in));
+            } else if (op == REMOVE_VALUE) {
+                applyRemoveValue(key, readValueId(in));
+            } else if (op == REMOVE_KEY) {
+                applyRemoveKey(key);
+            } else {
+                throw new IOException("Unknown operation " + op + " in " + segment.path + " at " + offset);
+            }
+        });
+        if (validSize < segment.size) {
+            if (last) {
+                LOGGER.warn("Truncating incomplete record at the end of {} from {} to {} bytes", segment.path, segment.size, validSize);
+                segment.channel.truncate(validSize);
+                segment.channel.force(true);
+                segment.size = validSize;
+            } else {
+                LOGGER.warn("Ignoring corrupt records in {} after {} of {} bytes", segment.path, validSize, segment.size);
+            }
+        }
+    }
+
+    /**
+     * Reads all complete and intact records of a segment in order.
+     *
+     * @return the size of the segment up to the first incomplete or corrupt record
+     */
+    private static long scan(Segment segment, RecordConsumer consumer) throws IOException {
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.path), 64 * 1024))) {
+            while (position + HEADER_SIZE <= segment.size) {
+                final int length = in.readInt();
+                final int crc = in.readInt();
+                if (length <= 0 || position + HEADER_SIZE + length > segment.size) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(payload) != crc) {
+                    break;
+                }
+                consumer.accept(position, HEADER_SIZE + length, payload);
+                position += HEADER_SIZE + length;
+            }
+        }
+        return position;
+    }
+
+    private void compact(List<Segment> inputs) throws IOException {
+        final long snapshotId = inputs.get(inputs.size() - 1).id;
+        final Path snapshotPath = path(SNAPSHOT_PREFIX, snapshotId);
+        final Path tmp = directory.resolve(snapshotPath.getFileName() + TMP_SUFFIX);
+        final List<Location> moved = new ArrayList<>();
+        final List<Long> movedTo = new ArrayList<>();
+        long size = 0;
+        Files.deleteIfExists(tmp);
+        try (FileChannel out = FileChannel.open(tmp, CREATE_NEW, WRITE)) {
+            for (Segment segment : inputs) {
+                final long[] position = {size};
+                scan(segment, (offset, length, payload) -> {
+                    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                    if (in.readByte() != STORE) {
+                        return;
+                    }
+                    final String key = ValueCodec.readString(in);
+                    ValueCodec.readString(in);
+                    final ValueId valueId = readValueId(in);
+                    final Location location;
+                    synchronized (lock) {
+                        location = currentLocation(key, valueId);
+                    }
+                    if (location != null && location.segment == segment && location.offset == offset) {
+                        writeFully(out, record(payload), position[0]);
+                        moved.add(location);
+                        movedTo.add(position[0]);
+                        position[0] += length;
+                    }
+                });
+                size = position[0];
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        final Segment snapshot = openSegment(snapshotId, true);
+        synchronized (lock) {
+            for (int i = 0; i < moved.size(); i++) {
+                final Location location = moved.get(i);
+                final KeyEntry entry = keyDir.get(location.key);
+                if (entry != null && entry.values.get(location.valueId) == location) {
+                    entry.values.put(location.valueId, new Location(snapshot, movedTo.get(i), location.length, location.key,
+                            location.valueId));
+                    snapshot.liveBytes += location.length;
+                }
+            }
+            segments.removeAll(inputs);
+            segments.add(0, snapshot);
+            for (Segment segment : inputs) {
+                segment.channel.close();
+                Files.delete(segment.path);
+            }
+        }
+        LOGGER.debug("Compacted {} segments in {} into {} bytes", inputs.size(), directory, size);
+    }
+
+    private KeyValues loadLocked(String key, DomainSpecificValueFactory domainSpecificValueFactory) {
+        final KeyEntry entry = keyDir.get(key);
+        if (entry == null) {
+            return null;
+        }
+        final List<DomainSpecificValue> values = new ArrayList<>(entry.values.size());
+        try {
+            for (Location location : entry.values.values()) {
+                final ByteBuffer buffer = ByteBuffer.allocate(location.length - HEADER_SIZE);
+                readFully(location.segment.channel, buffer, location.offset + HEADER_SIZE);
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+                in.readByte();
+                ValueCodec.readString(in);
+                ValueCodec.readString(in);
+                final ValueId valueId = readValueId(in);
+                values.add(domainSpecificValueFactory.createFromPattern(ValueCodec.readValue(in), valueId.changeSet, valueId.pattern));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load key \"" + key + "\" from " + directory, e);
+        }
+        return new KeyValues(key, domainSpecificValueFactory, entry.description, values);
+    }
+
+    private long append(byte[] payload) {
+        final Segment active = active();
+        final long offset = active.size;
+        try {
+            writeFully(active.channel, record(payload), offset);
+            if (syncEveryWrite) {
+                active.channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to " + active.path, e);
+        }
+        active.size += HEADER_SIZE + payload.length;
+        dirty = !syncEveryWrite;
+        return offset;
+    }
+
+    private void afterAppend() {
+        final Segment active = active();
+        if (active.size < maxSegmentSize) {
+            return;
+        }
+        try {
+            active.channel.force(false);
+            dirty = false;
+            segments.add(openSegment(active.id + 1, false));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new segment in " + directory, e);
+        }
+        if (!compacting && garbageRatio() > compactionThreshold) {
+            compacting = true;
+            compactionExecutor.execute(this::compactQuietly);
+        }
+    }
+
+    private double garbageRatio() {
+        long size = 0;
+        long live = 0;
+        for (Segment segment : segments.subList(0, segments.size() - 1)) {
+            size += segment.size;
+            live += segment.liveBytes;
+        }
+        return size == 0 ? 0 : 1 - (double) live / size;
+    }
+
+    private void applyStore(Segment segment, long offset, int length, String key, String description, ValueId valueId) {
+        final KeyEntry entry = keyDir.computeIfAbsent(key, k -> new KeyEntry());
+        entry.description = description;
+        release(entry.values.put(valueId, new Location(segment, offset, length, key, valueId)));
+        segment.liveBytes += length;
+    }
+
+    private void applyRemoveValue(String key, ValueId valueId) {
+        final KeyEntry entry = keyDir.get(key);
+        if (entry != null) {
+            release(entry.values.remove(valueId));
+            if (entry.values.isEmpty()) {
+                keyDir.remove(key);
+            }
+        }
+    }
+
+    private void applyRemoveKey(String key) {
+        final KeyEntry entry = keyDir.remove(key);
+        if (entry != null) {
+            entry.values.values().forEach(LogStructuredPersistence::release);
+        }
+    }
+
+    private static void release(Location location) {
+        if (location != null) {
+            location.segment.liveBytes -= location.length;
+        }
+    }
+
+    private Location currentLocation(String key, ValueId valueId) {
+        final KeyEntry entry = keyDir.get(key);
+        return entry == null ? null : entry.values.get(valueId);
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private void syncQuietly() {
+        try {
+            if (isDirty()) {
+                sync();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not sync log in {}", directory, e);
+        }
+    }
+
+    private boolean isDirty() {
+        synchronized (lock) {
+            return dirty;
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not compact log in {}", directory, e);
+        }
+    }
+
+    /**
+     * Forces the directory entries to disk, so a rename survives a crash. Some platforms, e.g. Windows, cannot open a directory, but
+     * persist renames without it.
+     */
+    private void syncDirectory() throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, READ);
+        } catch (IOException e) {
+            LOGGER.debug("Could not open {} to sync it", directory, e);
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private Segment openSegment(long id, boolean snapshot) throws IOException {
+        final Path path = path(snapshot ? SNAPSHOT_PREFIX : SEGMENT_PREFIX, id);
+        final FileChannel channel = snapshot ? FileChannel.open(path, READ) : FileChannel.open(path, CREATE, READ, WRITE);
+        return new Segment(id, snapshot, path, channel, channel.size());
+    }
+
+    private Path path(String prefix, long id) {
+        return directory.resolve(String.format("%s%019d%s", prefix, id, SUFFIX));
+    }
+
+    private static long id(String name, String prefix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static ValueId readValueId(DataInputStream in) throws IOException {
+        final String changeSet = ValueCodec.readString(in);
+        return new ValueId(changeSet, ValueCodec.readString(in));
+    }
+
+    private static byte[] payload(PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer record(byte[] payload) {
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        return record;
+    }
+
+    private static int crc(byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at " + current);
+            }
+            current += read;
+        }
+    }
+
+    private interface RecordConsumer {
+
+        void accept(long offset, int length, byte[] payload) throws IOException;
+    }
+
+    private interface PayloadWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final boolean snapshot;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        private Segment(long id, boolean snapshot, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.snapshot = snapshot;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private static final class Location {
+
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final String key;
+        private final ValueId valueId;
+
+        private Location(Segment segment, long offset, int length, String key, ValueId valueId) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.key = key;
+            this.valueId = valueId;
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private String description;
+        private final Map<ValueId, Location> values = new HashMap<>(4);
+    }
+
+    private static final class ValueId {
+
+        private final String changeSet;
+        private final String pattern;
+
+        private ValueId(String changeSet, String pattern) {
+            this.changeSet = changeSet;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ValueId other = (ValueId) o;
+            return Objects.equals(changeSet, other.changeSet) && pattern.equals(other.pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * pattern.hashCode() + Objects.hashCode(changeSet);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.persistence;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+/**
+ * Binary encoding of values and Strings shared by the Persistence implementations. Strings, Integers, Longs, Booleans and Doubles are
+ * written in a compact form, other values must be Serializable and are written with Java serialization. For text based storage, values
+ * are converted to a type code and a String.
+ */
+final class ValueCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte SERIALIZED = 6;
+    private static final String[] TEXT_TYPES = {"N", "S", "I", "L", "B", "D", "J"};
+
+    private ValueCodec() {
+    }
+
+    static void writeValue(DataOutput out, Object value) throws IOException {
+        final byte tag = tag(value);
+        out.writeByte(tag);
+        switch (tag) {
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case INTEGER:
+                out.writeInt((Integer) value);
+                break;
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case SERIALIZED:
+                final byte[] bytes = serialize(value);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+            default:
+                break;
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case SERIALIZED:
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return deserialize(bytes);
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    static String textType(Object value) {
+        return TEXT_TYPES[tag(value)];
+    }
+
+    static String toText(Object value) {
+        switch (tag(value)) {
+            case NULL:
+                return null;
+            case SERIALIZED:
+                return Base64.getEncoder().encodeToString(serialize(value));
+            default:
+                return value.toString();
+        }
+    }
+
+    static Object fromText(String type, String text) {
+        switch (type) {
+            case "N":
+                return null;
+            case "S":
+                return text;
+            case "I":
+                return Integer.valueOf(text);
+            case "L":
+                return Long.valueOf(text);
+            case "B":
+                return Boolean.valueOf(text);
+            case "D":
+                return Double.valueOf(text);
+            case "J":
+                return deserialize(Base64.getDecoder().decode(text));
+            default:
+                throw new IllegalStateException("Unknown value type: " + type);
+        }
+    }
+
+    private static byte tag(Object value) {
+        if (value == null) {
+            return NULL;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        }
+        return SERIALIZED;
+    }
+
+    /**
+     * Writes a nullable String as its byte length (-1 for null) followed by its UTF-8 bytes. Unlike DataOutput.writeUTF this is not
+     * limited to 64k.
+     */
+    static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static byte[] serialize(Object value) {
+        if (!(value instanceof Serializable)) {
+            throw new IllegalArgumentException("Values must be Serializable to be persisted, but was: " + value.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not deserialize value", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ArrayBackedDomainResolverTest {
+
+    private final List<String> domains = new ArrayList<>(List.of("dom1", "dom2", "dom3"));
+    private final ArrayBackedDomainResolver resolver = new ArrayBackedDomainResolver(domains, "val1", null);
+
+    @Test
+    void domainValuesByNameAndPosition() {
+        assertThat(resolver.getDomainValue("dom1")).isEqualTo("val1");
+        assertThat(resolver.getDomainValue("dom2")).isNull();
+        assertThat(resolver.getDomainValue("dom3")).isNull();
+        assertThat(resolver.getDomainValue("unknown")).isNull();
+        assertThat(resolver.getDomainValue(0)).isEqualTo("val1");
+        assertThat(resolver.getDomainValue(2)).isNull();
+    }
+
+    @Test
+    void additionalValuesAreIgnored() {
+        ArrayBackedDomainResolver resolver = new ArrayBackedDomainResolver(List.of("dom1"), "val1", "val2");
+        assertThat(resolver).hasToString("com.nitrobox.keyvalueresolver.ArrayBackedDomainResolver with {dom1=val1}");
+    }
+
+    @Test
+    void resolvedValuesAreOnlyGivenForTheSameDomains() {
+        assertThat(resolver.resolvedValuesFor(domains)).containsExactly("val1", "", "");
+        assertThat(resolver.resolvedValuesFor(List.of("dom1", "dom2", "dom3"))).containsExactly("val1", "", "");
+        assertThat(resolver.resolvedValuesFor(List.of("dom1", "dom3", "dom2"))).isNull();
+
+        domains.add("dom4");
+
+        assertThat(resolver.resolvedValuesFor(domains)).isNull();
+    }
+
+    @Test
+    void resolverIsUsedByKeyValues() {
+        KeyValues keyValues = new KeyValues("key", new DefaultDomainSpecificValueFactory());
+        keyValues.put("default");
+        keyValues.put("value1", "val1");
+        keyValues.put("value3", "*", "*", "val3");
+        keyValues.putWithChangeSet("changeSet", "inChangeSet", "val1");
+
+        assertThat((String) keyValues.get(domains, null, resolver)).isEqualTo("value1");
+        assertThat((String) keyValues.get(domains, null, new ArrayBackedDomainResolver(domains, "val2", "x", "val3")))
+                .isEqualTo("value3");
+        assertThat((String) keyValues.get(domains, null, new ArrayBackedDomainResolver(domains, "val1")
+                .addActiveChangeSets("changeSet"))).isEqualTo("inChangeSet");
+        assertThat((String) keyValues.get(List.of("dom3"), null, resolver)).isEqualTo("default");
+    }
+
+    @Test
+    void valuesContainingTheSeparatorAreRejected() {
+        KeyValues keyValues = new KeyValues("key", new DefaultDomainSpecificValueFactory());
+        ArrayBackedDomainResolver resolver = new ArrayBackedDomainResolver(domains, "a|b");
+
+        assertThrows(IllegalArgumentException.class, () -> keyValues.get(domains, null, resolver));
+    }
+
+    @Test
+    void setAndGetActiveChangeSets() {
+        resolver.addActiveChangeSets("CS1", "CS2");
+        assertThat(resolver.getActiveChangeSets()).containsExactlyInAnyOrder("CS1", "CS2");
+        resolver.addActiveChangeSets("CS3");
+        assertThat(resolver.getActiveChangeSets()).containsExactlyInAnyOrder("CS1", "CS2", "CS3");
+    }
+
+    @Test
+    void resolversWithSameValuesShouldBeEqual() {
+        ArrayBackedDomainResolver anotherResolver = new ArrayBackedDomainResolver(List.of("dom1", "dom2", "dom3"), "val1", null);
+
+        assertThat(resolver).isEqualTo(anotherResolver).hasSameHashCodeAs(anotherResolver.hashCode());
+        assertThat(resolver).isNotEqualTo(new ArrayBackedDomainResolver(domains, "val2"));
+        assertThat(resolver).isNotEqualTo(new MapBackedDomainResolver().set("dom1", "val1"));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ArrayBackedDomainValuesTest {
+
+    private static final List<String> DOMAIN_LIST = List.of("domain1", "domain2", "domain3");
+
+    @Test
+    void valuesAreGivenByPosition() {
+        ArrayBackedDomainValues domainValues = new ArrayBackedDomainValues("domain_value_1", null, "domain_value_3");
+
+        assertThat(domainValues.getDomainValues(DOMAIN_LIST)).containsExactly("domain_value_1", null, "domain_value_3");
+        assertThat(domainValues.getDomainValues(List.of("domain1"))).containsExactly("domain_value_1");
+    }
+
+    @Test
+    void returnedValuesCanBeChanged() {
+        ArrayBackedDomainValues domainValues = new ArrayBackedDomainValues("domain_value_1");
+
+        domainValues.getDomainValues(DOMAIN_LIST)[0] = "*";
+
+        assertThat(domainValues.getDomainValues(DOMAIN_LIST)).containsExactly("domain_value_1");
+    }
+
+    @Test
+    void valuesAreSetByPosition() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("domain1", "domain2");
+
+        keyValueResolver.set("key", "value", "descr", new ArrayBackedDomainValues(null, "domain_value_2"));
+
+        assertThat(keyValueResolver.<String>get("key", "x", "domain_value_2")).isEqualTo("value");
+        assertThat(keyValueResolver.<String>get("key", "x", "other")).isNull();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nitrobox.keyvalueresolver.KeyValueResolverMetrics.Operation;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class BulkImportTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+
+    @Test
+    void valuesAreMergedIntoExistingKeyValues() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("locale");
+        keyValueResolver.set("greeting", "Hello", "descr");
+        keyValueResolver.set("greeting", "Salut", "descr", "fr");
+
+        int imported = keyValueResolver.importValues(new BulkImport()
+                .add("greeting", "Hallo", null, null, "de")
+                .add(" greeting ", "Bonjour", null, null, "fr")
+                .add("farewell", "Tschüss", "new key", null, "de"));
+
+        assertThat(imported).isEqualTo(3);
+        assertThat((String) keyValueResolver.get("greeting")).isEqualTo("Hello");
+        assertThat((String) keyValueResolver.get("greeting", "de")).isEqualTo("Hallo");
+        assertThat((String) keyValueResolver.get("greeting", "fr")).isEqualTo("Bonjour");
+        assertThat((String) keyValueResolver.get("farewell", "de")).isEqualTo("Tschüss");
+        assertThat(keyValueResolver.getKeyValues("farewell").getDescription()).isEqualTo("new key");
+        assertThat(keyValueResolver.getKeyValues("greeting").getDomainSpecificValues()).hasSize(3);
+        assertThat(keyValueResolver.getMetrics().getCount(Operation.BATCH)).isEqualTo(1);
+    }
+
+    @Test
+    void importIsPublishedAtOnce() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("locale");
+        keyValueResolver.set("key1", "old", "descr", "de");
+        KeyValueResolverSnapshot before = keyValueResolver.snapshot();
+
+        keyValueResolver.importValues(new BulkImport().add("key1", "new", null, null, "de").add("key2", "new", null, null, "de"));
+
+        assertThat((String) before.get("key1", "de")).isEqualTo("old");
+        assertThat((String) before.get("key2", "de")).isNull();
+        assertThat((String) keyValueResolver.get("key1", "de")).isEqualTo("new");
+        assertThat((String) keyValueResolver.get("key2", "de")).isEqualTo("new");
+    }
+
+    @Test
+    void readersDoNotSeeAPartialImport() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "locale");
+        keyValueResolver.set("key1", "old", "descr", "de");
+        BulkImport bulkImport = new BulkImport();
+        IntStream.range(0, BulkImport.PERSISTENCE_BATCH_SIZE + 1).forEach(i -> bulkImport.add("key1", "new" + i, null, null, "de"));
+        doAnswer(invocation -> {
+            assertThat((String) keyValueResolver.get("key1", "de")).isEqualTo("old");
+            return null;
+        }).when(persistence).apply(any());
+
+        keyValueResolver.importValues(bulkImport);
+
+        assertThat((String) keyValueResolver.get("key1", "de")).isEqualTo("new" + BulkImport.PERSISTENCE_BATCH_SIZE);
+    }
+
+    @Test
+    void valuesArePersistedInBatches() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues persisted = new KeyValues("key0", factory);
+        persisted.put("persisted");
+        when(persistence.load("key0", factory)).thenReturn(persisted);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "locale");
+        BulkImport bulkImport = new BulkImport();
+        IntStream.range(0, BulkImport.PERSISTENCE_BATCH_SIZE + 1).forEach(i -> bulkImport.add("key" + i, "value", null, null, "de"));
+
+        keyValueResolver.importValues(bulkImport);
+
+        ArgumentCaptor<PersistenceBatch> batches = ArgumentCaptor.forClass(PersistenceBatch.class);
+        verify(persistence, times(2)).apply(batches.capture());
+        assertThat(batches.getAllValues()).extracting(PersistenceBatch::size).containsExactly(BulkImport.PERSISTENCE_BATCH_SIZE, 1);
+        verify(persistence, never()).store(anyString(), any(), any());
+        assertThat((String) keyValueResolver.get("key0")).isEqualTo("persisted");
+        assertThat((String) keyValueResolver.get("key0", "de")).isEqualTo("value");
+    }
+
+    @Test
+    void valuesWithTheSamePatternAreStoredOnce() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "locale");
+
+        int imported = keyValueResolver.importValues(new BulkImport()
+                .add("key", "first", null, null, "de")
+                .add("key", "second", null, null, "de")
+                .add("key", "changeSet", null, "changeSet", "de"));
+
+        ArgumentCaptor<PersistenceBatch> batch = ArgumentCaptor.forClass(PersistenceBatch.class);
+        verify(persistence).apply(batch.capture());
+        assertThat(batch.getValue().getStoredValues()).extracting(PersistenceBatch.Change::getDomainSpecificValue)
+                .containsExactlyInAnyOrder(DomainSpecificValue.withoutChangeSet("second", "de"),
+                        DomainSpecificValue.withChangeSet("changeSet", "changeSet", "de"));
+        assertThat(imported).isEqualTo(3);
+        assertThat((String) keyValueResolver.get("key", "de")).isEqualTo("second");
+    }
+
+    @Test
+    void nothingIsPublishedIfABatchFails() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "locale");
+        keyValueResolver.set("key0", "old", "descr", "de");
+        BulkImport bulkImport = new BulkImport();
+        IntStream.range(0, BulkImport.PERSISTENCE_BATCH_SIZE + 1).forEach(i -> bulkImport.add("key" + i, "new", null, null, "de"));
+        doAnswer(invocation -> null).doThrow(new IllegalStateException("failed")).when(persistence).apply(any());
+
+        assertThrows(IllegalStateException.class, () -> keyValueResolver.importValues(bulkImport));
+
+        assertThat((String) keyValueResolver.get("key0", "de")).isEqualTo("old");
+        assertThat(keyValueResolver.getKeyValues("key1")).isNull();
+        assertThat(keyValueResolver.getKeyValues("key" + BulkImport.PERSISTENCE_BATCH_SIZE)).isNull();
+    }
+
+    @Test
+    void propertiesAreImportedForTheGivenDomainValues() throws IOException {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("locale");
+
+        keyValueResolver.importValues(new BulkImport().addProperties(new StringReader("greeting=Hallo\nfarewell = Tschüss\n"), null, "de"));
+
+        assertThat(keyValueResolver.getAllMappings("de")).containsOnly(entry("greeting", "Hallo"), entry("farewell", "Tschüss"));
+    }
+
+    @Test
+    void csvColumnsAreKeyValueAndDomainValues() throws IOException {
+        BulkImport bulkImport = new BulkImport().addCsv(new StringReader(
+                "plain;value;de;DE\n\nquoted;\"a;b \"\"c\"\"\";de\nmultiline;\"first\nsecond\"\n"), ';', "preview");
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("locale", "country");
+
+        keyValueResolver.importValues(bulkImport);
+
+        assertThat(bulkImport.size()).isEqualTo(3);
+        DomainSpecificValue plain = keyValueResolver.getKeyValues("plain").getDomainSpecificValues().iterator().next();
+        assertThat(plain.getPattern()).isEqualTo("de|DE|");
+        assertThat(plain.getChangeSet()).isEqualTo("preview");
+        assertThat(keyValueResolver.getKeyValues("quoted").getDomainSpecificValues()).extracting(DomainSpecificValue::getValue)
+                .containsExactly("a;b \"c\"");
+        assertThat(keyValueResolver.getKeyValues("multiline").getDomainSpecificValues()).extracting(DomainSpecificValue::getValue)
+                .containsExactly("first\nsecond");
+    }
+
+    @Test
+    void csvLinesWithoutValueAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkImport().addCsv(new StringReader("key\n"), ',', null));
+    }
+}
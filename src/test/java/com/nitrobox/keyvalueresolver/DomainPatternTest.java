@@ -0,0 +1,114 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DomainPatternTest {
+
+    @Test
+    void samePatternIsShared() {
+        DomainPattern pattern = DomainPattern.of("de|*|google|", 11);
+        assertThat(DomainPattern.of(new String("de|*|google|"), 11)).isSameAs(pattern);
+        assertThat(DomainPattern.of("de|*|bing|", 11)).isNotSameAs(pattern);
+    }
+
+    @Test
+    void domainSpecificValuesShareTheirPattern() {
+        DomainSpecificValue fromDomainValues = DomainSpecificValue.withoutChangeSet("value1", "de", "*", "google");
+        DomainSpecificValue fromPattern = DomainSpecificValue.withPattern("value2", "changeSet", "de|*|google|");
+
+        assertThat(fromPattern.getPattern()).isSameAs(fromDomainValues.getPattern());
+        assertThat(fromPattern.patternMatches("de|mobile|google|")).isTrue();
+        assertThat(fromDomainValues.patternMatches("at|mobile|google|")).isFalse();
+    }
+
+    @Test
+    void differentOrderingIsNotShared() {
+        DomainPattern pattern = DomainPattern.of("a||", 3);
+        DomainPattern other = DomainPattern.of("a||", 7);
+        assertThat(other).isNotSameAs(pattern);
+        assertThat(other.ordering).isEqualTo(7);
+    }
+
+    @Test
+    void unusedPatternsAreRemoved() throws InterruptedException {
+        List<DomainSpecificValue> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(DomainSpecificValue.withoutChangeSet("value", "unused" + i));
+        }
+        assertThat(DomainPattern.canonicalCount()).isGreaterThanOrEqualTo(1000);
+
+        values = null;
+        for (int i = 0; i < 50 && DomainPattern.canonicalCount() >= 1000; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(DomainPattern.canonicalCount()).isLessThan(1000);
+    }
+
+    @Test
+    void domainValuesOfUnusedPatternsAreReleased() throws InterruptedException {
+        List<DomainSpecificValue> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(DomainSpecificValue.withoutChangeSet("value", "*", "*", "*", "*", "*", "*", "*", "*", "*", "released" + i));
+        }
+        assertThat(DomainValueDictionary.size(9)).isGreaterThanOrEqualTo(1000);
+
+        values = null;
+        for (int i = 0; i < 50 && DomainValueDictionary.size(9) >= 1000; i++) {
+            System.gc();
+            Thread.sleep(10);
+            DomainPattern.canonicalCount();
+        }
+
+        assertThat(DomainValueDictionary.size(9)).isLessThan(1000);
+    }
+
+    @Test
+    void patternsMatchByDomainValueIds() {
+        DomainPattern pattern = DomainPattern.of("de|*|google|", 11);
+        assertThat(pattern.matches(new EncodedDomain(new String[]{"de", "mobile", "google", "x"}))).isTrue();
+        assertThat(pattern.matches(new EncodedDomain(new String[]{"de", "mobile"}))).isFalse();
+        assertThat(pattern.matches("de||google|")).isTrue();
+        assertThat(pattern.matches("de|mobile|bing|")).isFalse();
+        assertThat(DomainPattern.of("", 1).matches("anything|")).isTrue();
+    }
+
+    @Test
+    void wildcardsWithinDomainValuesAreStillSupported() {
+        DomainPattern pattern = DomainPattern.of("de*|google|", 5);
+
+        assertThat(pattern.matches("deu|google|")).isTrue();
+        assertThat(pattern.matches(new EncodedDomain(new String[]{"de", "google"}))).isTrue();
+        assertThat(pattern.matches("at|google|")).isFalse();
+    }
+
+    @Test
+    void domainStringIsBuiltOncePerLookup() {
+        EncodedDomain domain = new EncodedDomain(new String[]{"de", "google"});
+
+        assertThat(domain.domainStr()).isEqualTo("de|google|").isSameAs(domain.domainStr());
+        assertThat(new EncodedDomain(new String[0]).domainStr()).isEmpty();
+    }
+}
@@ -24,6 +24,9 @@ package com.nitrobox.keyvalueresolver;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -153,6 +156,34 @@ class DomainSpecificValueTest {
         assertThat(dsv1.getPattern()).isEqualTo(dsv2.getPattern());
     }
 
+    @Test
+    void valuesForLaterDomainsTakePrecedenceBeyondThirtyDomains() {
+        DomainSpecificValue domain30 = DomainSpecificValue.withoutChangeSet("val", specifiedAt(30, 64));
+        DomainSpecificValue domain31 = DomainSpecificValue.withoutChangeSet("val", specifiedAt(31, 64));
+        DomainSpecificValue domain63 = DomainSpecificValue.withoutChangeSet("val", specifiedAt(63, 64));
+        DomainSpecificValue domain64 = DomainSpecificValue.withoutChangeSet("val", specifiedAt(64, 64));
+        DomainSpecificValue domain1 = DomainSpecificValue.withoutChangeSet("val", "a");
+
+        assertThat(new TreeSet<>(List.of(domain1, domain63, domain30, domain64, domain31)))
+                .containsExactly(domain64, domain63, domain31, domain30, domain1);
+        assertThat(domain31.compareTo(DomainSpecificValue.withPattern("other", null, domain31.getPattern()))).isZero();
+        assertThat(domain31).isEqualTo(DomainSpecificValue.withPattern("val", null, domain31.getPattern()));
+    }
+
+    @Test
+    void wideOrderingIsShownAsNumber() {
+        DomainSpecificValue dsv = DomainSpecificValue.withoutChangeSet("val", specifiedAt(32, 40));
+        assertThat(dsv.toString()).contains("ordering=4294967297,");
+        assertThat(DomainSpecificValue.withoutChangeSet("val", "a", "b").toString()).contains("ordering=7,");
+    }
+
+    private static String[] specifiedAt(int position, int domainCount) {
+        String[] domainValues = new String[domainCount];
+        Arrays.fill(domainValues, "*");
+        domainValues[position - 1] = "x";
+        return domainValues;
+    }
+
     @Test
     void getDomainValuesForEmptyPatternGivesEmptyArray() {
         final String[] domainValues = DomainSpecificValue.withPattern("val", null, "").getDomainValues();
@@ -0,0 +1,98 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class DomainValueDictionaryTest {
+
+    @Test
+    void domainValuesGetAnIdPerPosition() {
+        int id = DomainValueDictionary.idOf(0, "dictionaryValue");
+
+        assertThat(id).isPositive();
+        assertThat(DomainValueDictionary.idOf(0, "dictionaryValue")).isEqualTo(id);
+        assertThat(DomainValueDictionary.lookup(0, "dictionaryValue")).isEqualTo(id);
+        assertThat(DomainValueDictionary.lookup(1, "dictionaryValue")).isEqualTo(DomainValueDictionary.UNKNOWN);
+        assertThat(DomainValueDictionary.lookup(0, "neverUsedValue")).isEqualTo(DomainValueDictionary.UNKNOWN);
+        assertThat(DomainValueDictionary.lookup(100, "dictionaryValue")).isEqualTo(DomainValueDictionary.UNKNOWN);
+    }
+
+    @Test
+    void wildcardHasAReservedId() {
+        assertThat(DomainValueDictionary.idOf(3, "*")).isEqualTo(DomainValueDictionary.WILDCARD);
+        assertThat(DomainValueDictionary.lookup(7, "*")).isEqualTo(DomainValueDictionary.WILDCARD);
+    }
+
+    @Test
+    void patternsAreEncodedPerPosition() {
+        int[] ids = DomainValueDictionary.encodePattern("encodedA|*|encodedB|");
+
+        assertThat(ids).containsExactly(DomainValueDictionary.lookup(0, "encodedA"), DomainValueDictionary.WILDCARD,
+                DomainValueDictionary.lookup(2, "encodedB"));
+        assertThat(DomainValueDictionary.encodePattern("")).isEmpty();
+        assertThat(DomainValueDictionary.encodePattern("a*|b|")).isNull();
+        assertThat(DomainValueDictionary.encodeDomain("encodedA|x|")).containsExactly(ids[0], DomainValueDictionary.UNKNOWN);
+    }
+
+    @Test
+    void valuesAreRemovedWhenTheLastPatternIsReleased() {
+        int[] ids = DomainValueDictionary.encodePattern("releasedA|*|");
+        DomainValueDictionary.encodePattern("releasedA|releasedB|");
+
+        DomainValueDictionary.releasePattern("releasedA|releasedB|");
+        assertThat(DomainValueDictionary.lookup(0, "releasedA")).isEqualTo(ids[0]);
+        assertThat(DomainValueDictionary.lookup(1, "releasedB")).isEqualTo(DomainValueDictionary.UNKNOWN);
+
+        DomainValueDictionary.releasePattern("releasedA|*|");
+        assertThat(DomainValueDictionary.lookup(0, "releasedA")).isEqualTo(DomainValueDictionary.UNKNOWN);
+        assertThat(DomainValueDictionary.idOf(0, "releasedA")).isNotEqualTo(ids[0]);
+    }
+
+    @Test
+    void concurrentlyAddedValuesGetDistinctIds() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> ids = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final String value = "concurrent" + (i % 500);
+                ids.add(executor.submit(() -> DomainValueDictionary.idOf(5, value)));
+            }
+            Set<Integer> distinct = new HashSet<>();
+            for (Future<Integer> id : ids) {
+                distinct.add(id.get());
+            }
+
+            assertThat(distinct).hasSize(500);
+            assertThat(DomainValueDictionary.size(5)).isGreaterThanOrEqualTo(500);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
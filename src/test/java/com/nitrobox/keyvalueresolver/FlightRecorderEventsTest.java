@@ -0,0 +1,119 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+class FlightRecorderEventsTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+
+    @Test
+    void eventsAreRecordedAboveTheirThreshold() throws IOException {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("key", factory);
+        keyValues.put("value");
+        keyValues.put("german", "DE");
+        when(persistence.loadAll(factory)).thenReturn(List.of(keyValues));
+        KeyValues reloaded = new KeyValues("key", factory);
+        reloaded.put("value");
+        reloaded.put("german", "DE");
+        when(persistence.reload(any(Collection.class), any(DomainSpecificValueFactory.class))).thenReturn(List.of(reloaded));
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.nitrobox.keyvalueresolver.Resolve").withThreshold(Duration.ZERO);
+            recording.enable("com.nitrobox.keyvalueresolver.Persistence").withThreshold(Duration.ZERO);
+            recording.enable("com.nitrobox.keyvalueresolver.Reload");
+            recording.enable("com.nitrobox.keyvalueresolver.ChangeSetRemoval");
+            recording.start();
+
+            keyValueResolver.get("key", "AT");
+            keyValueResolver.get("unknown");
+            keyValueResolver.setWithChangeSet("key", "value", "descr", "changeSet", "CH");
+            keyValueResolver.removeChangeSet("changeSet");
+            keyValueResolver.reload();
+
+            recording.stop();
+            events = read(recording);
+        }
+
+        List<RecordedEvent> resolves = named(events, "Resolve");
+        assertThat(resolves).hasSize(2);
+        assertThat(resolves.get(0).getString("key")).isEqualTo("key");
+        assertThat(resolves.get(0).getInt("scannedValues")).isEqualTo(2);
+        assertThat(resolves.get(0).getBoolean("found")).isTrue();
+        assertThat(resolves.get(1).getBoolean("found")).isFalse();
+        assertThat(named(events, "Persistence")).extracting(event -> event.getString("operation")).contains("load", "store", "apply");
+        RecordedEvent removal = named(events, "ChangeSetRemoval").get(0);
+        assertThat(removal.getString("changeSet")).isEqualTo("changeSet");
+        assertThat(removal.getInt("keyCount")).isEqualTo(1);
+        assertThat(removal.getInt("valueCount")).isEqualTo(1);
+        RecordedEvent reload = named(events, "Reload").get(0);
+        assertThat(reload.getInt("keyCount")).isEqualTo(1);
+        assertThat(reload.getLong("valueCount")).isEqualTo(2);
+    }
+
+    @Test
+    void resolveEventsAreDisabledByDefault() throws IOException {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        keyValueResolver.set("key", "value", "descr");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.start();
+            keyValueResolver.get("key");
+            recording.stop();
+            events = read(recording);
+        }
+
+        assertThat(named(events, "Resolve")).isEmpty();
+    }
+
+    private static List<RecordedEvent> read(Recording recording) throws IOException {
+        Path file = Files.createTempFile("kvr", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.nitrobox.keyvalueresolver." + name))
+                .collect(Collectors.toList());
+    }
+}
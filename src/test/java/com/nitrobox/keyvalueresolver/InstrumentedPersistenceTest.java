@@ -0,0 +1,96 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nitrobox.keyvalueresolver.InstrumentedPersistence.Method;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class InstrumentedPersistenceTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private final Persistence persistence = mock(Persistence.class);
+    private final InstrumentedPersistence instrumented = new InstrumentedPersistence(persistence);
+
+    @Test
+    void callsAreDelegatedAndTimed() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(instrumented, "country");
+
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.get("unknown");
+        keyValueResolver.removeKey("key");
+
+        verify(persistence).store(any(), any(), any());
+        verify(persistence).remove("key");
+        assertThat(instrumented.getCount(Method.LOAD_ALL)).isEqualTo(1);
+        assertThat(instrumented.getCount(Method.STORE)).isEqualTo(1);
+        assertThat(instrumented.getCount(Method.LOAD)).isEqualTo(2);
+        assertThat(instrumented.getCount(Method.REMOVE_KEY)).isEqualTo(1);
+        assertThat(instrumented.getLatency(Method.STORE).getCount()).isEqualTo(1);
+        assertThat(instrumented.getThroughput(Method.LOAD)).isGreaterThan(0);
+    }
+
+    @Test
+    void valuesAndBytesReadAreCounted() {
+        KeyValues keyValues = new KeyValues("key", factory);
+        keyValues.put("value");
+        keyValues.put("german", "DE");
+        when(persistence.loadAll(factory)).thenReturn(List.of(keyValues));
+        when(persistence.reload(any(Collection.class), any(DomainSpecificValueFactory.class))).thenReturn(List.of(keyValues));
+
+        instrumented.loadAll(factory);
+        instrumented.reload(List.of(), factory);
+
+        assertThat(instrumented.getReadValues()).isEqualTo(4);
+        assertThat(instrumented.getReadBytes()).isEqualTo(2 * ("key".length() + "value".length() + "key".length() + "DE|".length()
+                + "german".length()));
+    }
+
+    @Test
+    void errorsAreCountedAndRethrown() {
+        doThrow(new IllegalStateException("down")).when(persistence).remove(anyString());
+
+        assertThrows(IllegalStateException.class, () -> instrumented.remove("key"));
+
+        assertThat(instrumented.getErrorCount(Method.REMOVE_KEY)).isEqualTo(1);
+        assertThat(instrumented.getLatency(Method.REMOVE_KEY).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void resetClearsAllCounters() {
+        instrumented.store("key", null, null);
+        instrumented.loadAll(factory);
+
+        instrumented.reset();
+
+        for (Method method : Method.values()) {
+            assertThat(instrumented.getCount(method)).isZero();
+            assertThat(instrumented.getLatency(method).getCount()).isZero();
+        }
+    }
+}
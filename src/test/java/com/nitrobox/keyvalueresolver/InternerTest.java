@@ -0,0 +1,88 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class InternerTest {
+
+    private final Interner<String> interner = new Interner<>();
+
+    @Test
+    void equalValuesAreReturnedAsTheSameInstance() {
+        final String value1 = new String("value");
+        final String value2 = new String("value");
+
+        assertThat(interner.intern(value1)).isSameAs(value1);
+        assertThat(interner.intern(value2)).isSameAs(value1);
+        assertThat(interner.intern(null)).isNull();
+        assertThat(interner.size()).isEqualTo(1);
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        interner.intern("a");
+        interner.intern(new String("a"));
+        interner.intern(new String("a"));
+        interner.intern("b");
+
+        assertThat(interner.getHitCount()).isEqualTo(2);
+        assertThat(interner.getMissCount()).isEqualTo(2);
+        assertThat(interner.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void fullInternerReturnsNewValuesUnchanged() {
+        Interner<String> bounded = new Interner<>(2);
+        bounded.intern("a");
+        bounded.intern("b");
+        final String c1 = new String("c");
+        final String c2 = new String("c");
+
+        assertThat(bounded.intern(c1)).isSameAs(c1);
+        assertThat(bounded.intern(c2)).isSameAs(c2);
+        assertThat(bounded.size()).isEqualTo(2);
+    }
+
+    @Test
+    void negativeMaxSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Interner<>(-1));
+    }
+
+    @Test
+    void unusedValuesAreRemoved() throws InterruptedException {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(interner.intern("value" + i));
+        }
+        assertThat(interner.size()).isEqualTo(1000);
+
+        values = null;
+        for (int i = 0; i < 50 && interner.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(interner.size()).isLessThan(1000);
+    }
+}
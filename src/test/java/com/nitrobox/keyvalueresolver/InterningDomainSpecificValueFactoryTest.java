@@ -0,0 +1,64 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class InterningDomainSpecificValueFactoryTest {
+
+    private final InterningDomainSpecificValueFactory factory = new InterningDomainSpecificValueFactory();
+
+    @Test
+    void factoryCreatesCorrectDSV() {
+        DomainSpecificValue dsv = factory.create("value", "changeSet", "DE", "de_DE");
+
+        assertThat(dsv).isEqualTo(DomainSpecificValue.withChangeSet("value", "changeSet", "DE", "de_DE"));
+        assertThat(factory.createFromPattern("value", null, "DE|de_DE|"))
+                .isEqualTo(DomainSpecificValue.withoutChangeSet("value", "DE", "de_DE"));
+    }
+
+    @Test
+    void stringValuesAndChangeSetsAreInterned() {
+        DomainSpecificValue dsv1 = factory.create(new String("value"), new String("changeSet"), "DE");
+        DomainSpecificValue dsv2 = factory.createFromPattern(new String("value"), new String("changeSet"), "AT|");
+
+        assertThat(dsv2.getValue()).isSameAs(dsv1.getValue());
+        assertThat(dsv2.getChangeSet()).isSameAs(dsv1.getChangeSet());
+        assertThat(factory.getValueInterner().getHitCount()).isEqualTo(1);
+        assertThat(factory.getChangeSetInterner().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void valuesThatAreNoStringsAreNotInterned() {
+        DomainSpecificValue dsv = factory.create(4711, null);
+
+        assertThat(dsv.getValue()).isEqualTo(4711);
+        assertThat(factory.getValueInterner().size()).isZero();
+    }
+
+    @Test
+    void factoriesDoNotShareTheirTables() {
+        InterningDomainSpecificValueFactory other = new InterningDomainSpecificValueFactory();
+        final String value = new String("value");
+        factory.create(value, null);
+
+        assertThat(other.create(new String("value"), null).getValue()).isNotSameAs(value);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class KeyIndexTest {
+
+    @Test
+    void behavesLikeATreeSet() {
+        Random random = new Random(4711);
+        String[] parts = {"a", "ab", "b", ".", "checkout", "mail", "x"};
+        TreeSet<String> expected = new TreeSet<>();
+        KeyIndex index = KeyIndex.empty();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(4); length > 0; length--) {
+                key.append(parts[random.nextInt(parts.length)]);
+            }
+            if (random.nextInt(3) == 0) {
+                expected.remove(key.toString());
+                index = index.minus(key.toString());
+            } else {
+                expected.add(key.toString());
+                index = index.plus(key.toString());
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(expected.size());
+        assertThat(keys(index, "")).containsExactlyElementsOf(expected);
+        for (String prefix : List.of("a", "ab", "aba", "checkout.", "check", "mailx", "z")) {
+            assertThat(keys(index, prefix)).containsExactlyElementsOf(expected.subSet(prefix, prefix + Character.MAX_VALUE));
+        }
+        assertThat(expected).allMatch(index::contains);
+    }
+
+    @Test
+    void keysArePrefixesOfOtherKeys() {
+        KeyIndex index = KeyIndex.of(List.of("mail.welcome.subject", "mail", "mail.welcome", "mail.welcome.body", "mailer"));
+
+        assertThat(keys(index, "mail")).containsExactly("mail", "mail.welcome", "mail.welcome.body", "mail.welcome.subject", "mailer");
+        assertThat(keys(index, "mail.w")).containsExactly("mail.welcome", "mail.welcome.body", "mail.welcome.subject");
+        assertThat(keys(index, "mail.welcome.subjects")).isEmpty();
+        assertThat(index.contains("mail.wel")).isFalse();
+
+        index = index.minus("mail.welcome").minus("mail");
+
+        assertThat(keys(index, "")).containsExactly("mail.welcome.body", "mail.welcome.subject", "mailer");
+        assertThat(index.contains("mail.welcome")).isFalse();
+    }
+
+    @Test
+    void unchangedIndexIsReturnedForKnownOrUnknownKeys() {
+        KeyIndex index = KeyIndex.of(List.of("a.b", "a.c"));
+
+        assertThat(index.plus("a.b")).isSameAs(index);
+        assertThat(index.minus("a.d")).isSameAs(index);
+        assertThat(index.minus("a.")).isSameAs(index);
+    }
+
+    @Test
+    void previousVersionsAreNotChanged() {
+        KeyIndex before = KeyIndex.of(List.of("a.b", "a.c"));
+
+        KeyIndex after = before.plus("a.bc").minus("a.c");
+
+        assertThat(keys(before, "a")).containsExactly("a.b", "a.c");
+        assertThat(keys(after, "a")).containsExactly("a.b", "a.bc");
+        assertThat(KeyIndex.empty().plus("a").minus("a").size()).isZero();
+    }
+
+    private static List<String> keys(KeyIndex index, String prefix) {
+        List<String> keys = new ArrayList<>();
+        Iterator<String> iterator = index.keysWithPrefix(prefix);
+        iterator.forEachRemaining(keys::add);
+        return keys;
+    }
+}
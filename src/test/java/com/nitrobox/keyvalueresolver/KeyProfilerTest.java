@@ -0,0 +1,135 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class KeyProfilerTest {
+
+    @Test
+    void heavyHittersAreFoundWithLimitedCapacity() {
+        KeyProfiler profiler = new KeyProfiler(50, 1);
+        Random random = new Random(4711);
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 4 == 0) {
+                profiler.record("hot" + random.nextInt(3), 1);
+            } else {
+                profiler.record("cold" + random.nextInt(10_000), 1);
+            }
+        }
+
+        List<KeyProfiler.Entry> top = profiler.getTopKeysByCalls();
+
+        assertThat(top).hasSize(50);
+        assertThat(top.subList(0, 3).stream().map(KeyProfiler.Entry::getKey).collect(Collectors.toList()))
+                .containsExactlyInAnyOrder("hot0", "hot1", "hot2");
+        assertThat(top.get(0).getCalls()).isBetween(8_000L, 8_700L + top.get(0).getError());
+    }
+
+    @Test
+    void keysScanningTheMostValuesAreFound() {
+        KeyProfiler profiler = new KeyProfiler(2, 1);
+        for (int i = 0; i < 100; i++) {
+            profiler.record("frequent", 1);
+        }
+        profiler.record("expensive", 50);
+        profiler.record("medium", 10);
+        profiler.record("cheap", 2);
+        profiler.record("medium", 20);
+
+        List<KeyProfiler.Entry> top = profiler.getTopKeysByCost();
+
+        assertThat(top).extracting(KeyProfiler.Entry::getKey).containsExactly("expensive", "medium");
+        assertThat(top.get(1).getScannedPerCall()).isEqualTo(15.0);
+    }
+
+    @Test
+    void countsAreScaledBySampleRate() {
+        KeyProfiler profiler = new KeyProfiler(10, 8);
+
+        for (int i = 0; i < 80_000; i++) {
+            profiler.sample("key", null, null);
+        }
+
+        assertThat(profiler.getTopKeysByCalls().get(0).getCalls()).isBetween(70_000L, 90_000L);
+    }
+
+    @Test
+    void profilingIsEnabledPerKeyValueResolver() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country", "city");
+        keyValueResolver.set("simple", "value", "descr");
+        for (int i = 0; i < 20; i++) {
+            keyValueResolver.set("overridden", "value" + i, "descr", "DE", "city" + i);
+        }
+        keyValueResolver.set("overridden", "default", "descr");
+        keyValueResolver.get("simple", "DE", "Berlin");
+        assertThat(keyValueResolver.getMetrics().getProfiler()).isNull();
+
+        keyValueResolver.getMetrics().enableProfiling(10, 1);
+        for (int i = 0; i < 5; i++) {
+            keyValueResolver.get("simple", "DE", "Berlin");
+        }
+        keyValueResolver.get("overridden", "DE", "Berlin");
+
+        KeyProfiler profiler = keyValueResolver.getMetrics().getProfiler();
+        assertThat(profiler.getTopKeysByCalls().get(0).getKey()).isEqualTo("simple");
+        assertThat(profiler.getTopKeysByCalls().get(0).getCalls()).isEqualTo(5);
+        assertThat(profiler.getTopKeysByCost().get(0).getKey()).isEqualTo("overridden");
+        assertThat(profiler.getTopKeysByCost().get(0).getScannedPerCall()).isEqualTo(21.0);
+
+        keyValueResolver.getMetrics().disableProfiling();
+        assertThat(keyValueResolver.getMetrics().getProfiler()).isNull();
+    }
+
+    @Test
+    void lookupsOfAllThreadsAreCounted() throws InterruptedException {
+        KeyProfiler profiler = new KeyProfiler(10, 1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_001; i++) {
+                    profiler.record("key" + (i % 5), 2);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<KeyProfiler.Entry> top = profiler.getTopKeysByCalls();
+
+        assertThat(top).hasSize(5);
+        assertThat(top.stream().mapToLong(KeyProfiler.Entry::getCalls).sum()).isEqualTo(40_004);
+        assertThat(top).allSatisfy(entry -> assertThat(entry.getError()).isZero());
+        assertThat(profiler.getTopKeysByCost()).extracting(KeyProfiler.Entry::getScannedPerCall).containsOnly(2.0);
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyProfiler(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new KeyProfiler(1, 0));
+    }
+}
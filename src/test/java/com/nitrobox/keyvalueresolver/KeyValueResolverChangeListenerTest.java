@@ -0,0 +1,172 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class KeyValueResolverChangeListenerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<List<ChangeEvent>> batches = new LinkedBlockingQueue<>();
+    private final KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void changesWithinTheWindowAreDeliveredAsOneBatch() throws InterruptedException {
+        keyValueResolver.addChangeListener(batches::add, executor, WINDOW);
+
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.set("key", "changed", "descr", "DE");
+        keyValueResolver.setWithChangeSet("other", "value", "descr", "changeSet");
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(
+                new ChangeEvent("key", "", null),
+                new ChangeEvent("key", "DE|", null),
+                new ChangeEvent("other", "", "changeSet"));
+        assertThat(batches.poll(2 * WINDOW.toMillis(), TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void removalsAreDelivered() throws InterruptedException {
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.setWithChangeSet("key", "value", "descr", "changeSet", "AT");
+        keyValueResolver.set("other", "value", "descr");
+        keyValueResolver.addChangeListener(batches::add, executor, WINDOW);
+
+        keyValueResolver.remove("key", "DE");
+        keyValueResolver.removeChangeSet("changeSet");
+        keyValueResolver.removeKey("other");
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(
+                new ChangeEvent("key", "DE|", null),
+                new ChangeEvent("key", "AT|", "changeSet"),
+                new ChangeEvent("other", null, null));
+    }
+
+    @Test
+    void reloadDeliversDifferences() throws InterruptedException {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues unchanged = new KeyValues("unchanged", factory);
+        unchanged.put("value");
+        KeyValues changed = new KeyValues("changed", factory);
+        changed.put("old");
+        KeyValues removed = new KeyValues("removed", factory);
+        removed.put("value");
+        when(persistence.loadAll(factory)).thenReturn(List.of(unchanged, changed, removed));
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+        keyValueResolver.addChangeListener(batches::add, executor, WINDOW);
+
+        KeyValues unchangedReloaded = new KeyValues("unchanged", factory);
+        unchangedReloaded.put("value");
+        KeyValues changedReloaded = new KeyValues("changed", factory);
+        changedReloaded.put("new");
+        changedReloaded.put("german", "DE");
+        KeyValues added = new KeyValues("added", factory);
+        added.put("value");
+        when(persistence.reload(any(Collection.class), any(DomainSpecificValueFactory.class)))
+                .thenReturn(List.of(unchangedReloaded, changedReloaded, added));
+        keyValueResolver.reload();
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactlyInAnyOrder(
+                new ChangeEvent("changed", "", null),
+                new ChangeEvent("changed", "DE|", null),
+                new ChangeEvent("added", null, null),
+                new ChangeEvent("removed", null, null));
+    }
+
+    @Test
+    void slowListenerDoesNotBlockWritersOrOtherListeners() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<ChangeEvent>> slowBatches = new LinkedBlockingQueue<>();
+        keyValueResolver.addChangeListener(events -> {
+            slowBatches.add(events);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, Duration.ZERO);
+        keyValueResolver.addChangeListener(batches::add, executor, Duration.ZERO);
+
+        keyValueResolver.set("key1", "value", "descr");
+        assertThat(slowBatches.poll(5, TimeUnit.SECONDS)).containsExactly(new ChangeEvent("key1", "", null));
+        keyValueResolver.set("key2", "value", "descr");
+        keyValueResolver.set("key3", "value", "descr");
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).contains(new ChangeEvent("key1", "", null));
+        release.countDown();
+        assertThat(slowBatches.poll(5, TimeUnit.SECONDS)).containsExactly(
+                new ChangeEvent("key2", "", null), new ChangeEvent("key3", "", null));
+    }
+
+    @Test
+    void removedListenerIsNotNotified() throws InterruptedException {
+        ChangeListener listener = batches::add;
+        keyValueResolver.addChangeListener(listener, executor, Duration.ZERO);
+        keyValueResolver.removeChangeListener(listener);
+
+        keyValueResolver.set("key", "value", "descr");
+
+        assertThat(batches.poll(2 * WINDOW.toMillis(), TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void directExecutorDoesNotRunTheListenerInTheWriter() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+        keyValueResolver.addChangeListener(events -> {
+            threads.add(Thread.currentThread());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Runnable::run, Duration.ZERO);
+        keyValueResolver.addChangeListener(batches::add, executor, Duration.ZERO);
+
+        keyValueResolver.set("key1", "value", "descr");
+        keyValueResolver.set("key2", "value", "descr");
+
+        assertThat(threads.poll(5, TimeUnit.SECONDS)).isNotNull().isNotSameAs(Thread.currentThread());
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).contains(new ChangeEvent("key1", "", null));
+        release.countDown();
+    }
+}
@@ -30,6 +30,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 /**
  * @author finsterwalder
@@ -62,4 +63,45 @@ class KeyValueResolverChangeSetTest {
 
         verify(persistenceMock).store(eq("key"), any(KeyValues.class), any(DomainSpecificValue.class));
     }
+
+    @Test
+    void promotedChangeSetReplacesTheBaseValues() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.setWithChangeSet("key", "preview", "descr", "changeSet");
+        keyValueResolver.setWithChangeSet("key", "austrian", "descr", "changeSet", "AT");
+        keyValueResolver.setWithChangeSet("key", "other", "descr", "otherChangeSet", "DE");
+        KeyValueResolverSnapshot before = keyValueResolver.snapshot();
+
+        assertThat(keyValueResolver.promoteChangeSet("changeSet")).isEqualTo(2);
+
+        assertThat((String) keyValueResolver.get("key")).isEqualTo("preview");
+        assertThat((String) keyValueResolver.get("key", "AT")).isEqualTo("austrian");
+        assertThat((String) keyValueResolver.get("key", "DE")).isEqualTo("german");
+        assertThat(keyValueResolver.getKeyValues("key").getDomainSpecificValues()).extracting(DomainSpecificValue::getChangeSet)
+                .containsOnly(null, "otherChangeSet").hasSize(4);
+        assertThat((String) before.get("key")).isEqualTo("value");
+        assertThat(before.getKeyValues("key").getDomainSpecificValues()).hasSize(5);
+    }
+
+    @Test
+    void promotionIsPersistedInOneBatch() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence);
+        keyValueResolver.set("key1", "value", "descr");
+        keyValueResolver.setWithChangeSet("key1", "preview", "descr", "changeSet");
+        keyValueResolver.setWithChangeSet("key2", "preview", "descr", "changeSet");
+        keyValueResolver.set("untouched", "value", "descr");
+
+        keyValueResolver.promoteChangeSet("changeSet");
+
+        ArgumentCaptor<PersistenceBatch> captor = ArgumentCaptor.forClass(PersistenceBatch.class);
+        verify(persistence).apply(captor.capture());
+        PersistenceBatch batch = captor.getValue();
+        assertThat(batch.getRemovedValues()).extracting(change -> change.getDomainSpecificValue().getChangeSet())
+                .containsExactly("changeSet", "changeSet");
+        assertThat(batch.getStoredValues()).extracting(PersistenceBatch.Change::getKey).containsExactlyInAnyOrder("key1", "key2");
+        assertThat(batch.getStoredValues()).extracting(change -> change.getDomainSpecificValue().getChangeSet()).containsOnlyNulls();
+    }
 }
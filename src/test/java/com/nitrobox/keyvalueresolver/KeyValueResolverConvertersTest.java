@@ -0,0 +1,107 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class KeyValueResolverConvertersTest {
+
+    private final KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+
+    @Test
+    void stringValuesAreConvertedToPrimitives() {
+        keyValueResolver.set("limit", "42", "descr");
+        keyValueResolver.set("limit", "4711", "descr", "DE");
+        keyValueResolver.set("flag", "TRUE", "descr");
+        keyValueResolver.set("big", "12345678901", "descr");
+
+        assertThat(keyValueResolver.getInt("limit", 0)).isEqualTo(42);
+        assertThat(keyValueResolver.getInt("limit", 0, "DE")).isEqualTo(4711);
+        assertThat(keyValueResolver.getLong("big", 0L)).isEqualTo(12345678901L);
+        assertThat(keyValueResolver.getBoolean("flag", false)).isTrue();
+    }
+
+    @Test
+    void valuesOfTheTargetTypeAreReturnedUnchanged() {
+        keyValueResolver.set("limit", 42, "descr");
+        keyValueResolver.set("timeout", Duration.ofSeconds(5), "descr");
+
+        assertThat(keyValueResolver.getInt("limit", 0)).isEqualTo(42);
+        assertThat(keyValueResolver.getLong("limit", 0)).isEqualTo(42L);
+        assertThat(keyValueResolver.getDuration("timeout", null)).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void durationsAreParsed() {
+        keyValueResolver.set("timeout", "PT30S", "descr");
+
+        assertThat(keyValueResolver.getDuration("timeout", Duration.ZERO)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void missingKeysReturnTheDefault() {
+        assertThat(keyValueResolver.getInt("unknown", 7)).isEqualTo(7);
+        assertThat(keyValueResolver.getLong("unknown", 8L, "DE")).isEqualTo(8L);
+        assertThat(keyValueResolver.getBoolean("unknown", true)).isTrue();
+        assertThat(keyValueResolver.getDuration("unknown", Duration.ZERO)).isEqualTo(Duration.ZERO);
+        assertThat(keyValueResolver.get("unknown", Converters.INTEGER)).isNull();
+    }
+
+    @Test
+    void invalidValuesAreRejected() {
+        keyValueResolver.set("flag", "yes", "descr");
+        keyValueResolver.set("limit", "many", "descr");
+
+        assertThrows(IllegalArgumentException.class, () -> keyValueResolver.getBoolean("flag", false));
+        assertThrows(IllegalArgumentException.class, () -> keyValueResolver.getInt("limit", 0));
+    }
+
+    @Test
+    void convertedValueIsCachedUntilTheValueChanges() {
+        AtomicInteger conversions = new AtomicInteger();
+        Converter<String> upperCase = value -> {
+            conversions.incrementAndGet();
+            return ((String) value).toUpperCase();
+        };
+        keyValueResolver.set("key", "value", "descr");
+
+        assertThat(keyValueResolver.get("key", upperCase)).isEqualTo("VALUE");
+        assertThat(keyValueResolver.get("key", upperCase)).isEqualTo("VALUE");
+        assertThat(conversions.get()).isEqualTo(1);
+
+        keyValueResolver.set("key", "changed", "descr");
+
+        assertThat(keyValueResolver.get("key", upperCase)).isEqualTo("CHANGED");
+        assertThat(conversions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void differentConvertersDoNotShareTheCachedValue() {
+        Converter<String> exclaim = value -> value + "!";
+        keyValueResolver.set("key", "42", "descr");
+
+        assertThat(keyValueResolver.getInt("key", 0)).isEqualTo(42);
+        assertThat(keyValueResolver.get("key", exclaim)).isEqualTo("42!");
+        assertThat(keyValueResolver.getLong("key", 0L)).isEqualTo(42L);
+    }
+}
@@ -90,4 +90,21 @@ class KeyValueResolverGetAllMappingsTest {
         assertThat(keyValueResolver.getAllMappings(resolver)).hasSize(1)
                 .containsAllEntriesOf(Map.of("key2", "otherValue"));
     }
+
+    @Test
+    void mappingsWithPrefixAreOrderedByKey() {
+        keyValueResolver.addDomains("domain1");
+        keyValueResolver.set("mail.welcome.subject", "Welcome", "desc");
+        keyValueResolver.set("mail.welcome.body", "Hello", "desc");
+        keyValueResolver.set("mail.welcome.body", "Hallo", "desc", "DE");
+        keyValueResolver.set("mail.reminder", "Reminder", "desc", "AT");
+        keyValueResolver.set("checkout.button.pay", "Pay", "desc");
+
+        assertThat(keyValueResolver.getMappingsWithPrefix("mail.", "DE")).containsExactly(
+                Map.entry("mail.welcome.body", "Hallo"), Map.entry("mail.welcome.subject", "Welcome"));
+        assertThat(keyValueResolver.getKeyValuesWithPrefix("mail.", resolver.set("domain1", "AT")))
+                .extracting(KeyValues::getKey).containsExactly("mail.reminder", "mail.welcome.body", "mail.welcome.subject");
+        assertThat(keyValueResolver.getKeyValuesWithPrefix("checkout")).extracting(KeyValues::getKey).containsExactly("checkout.button.pay");
+        assertThat(keyValueResolver.getMappingsWithPrefix("unknown.", resolver)).isEmpty();
+    }
 }
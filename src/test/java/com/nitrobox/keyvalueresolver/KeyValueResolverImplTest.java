@@ -26,6 +26,7 @@ import static org.assertj.core.api.Assertions.entry;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -35,9 +36,13 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -45,6 +50,7 @@ import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -439,6 +445,23 @@ class KeyValueResolverImplTest {
                 .contains("description=\"descr\"").contains("DomainSpecificValue{pattern=\"\", ordering=1, value=\"value\"}");
     }
 
+    @Test
+    void dumpToWriter() throws IOException {
+        keyValueResolver.addDomains("dom1");
+        keyValueResolver.set("key", "value", "descr");
+        StringWriter out = new StringWriter();
+        keyValueResolver.dump(out);
+        assertThat(out.toString()).isEqualTo(keyValueResolver.dump() + "\n");
+    }
+
+    @Test
+    void dumpToFile(@TempDir Path directory) throws IOException {
+        keyValueResolver.set("key", "value", "descr");
+        Path file = directory.resolve("dump.txt");
+        keyValueResolver.dump(file);
+        assertThat(Files.readString(file)).contains("KeyValues for \"key\": KeyValues{");
+    }
+
     @Test
     void domainResolverToNullIsIgnored() {
         DomainResolver domainResolver = new MapBackedDomainResolver().set("dom", "domVal");
@@ -581,6 +604,8 @@ class KeyValueResolverImplTest {
 
     @Test
     void removeAChangeSet() {
+        // the batch of removed values is applied by the default method, that removes value by value
+        doCallRealMethod().when(persistenceMock).apply(any());
         KeyValueResolverImpl kvrWithPersistence = new KeyValueResolverImpl(persistenceMock);
         kvrWithPersistence.set("key", "value", "descr");
         kvrWithPersistence.setWithChangeSet("key", "valueChangeSet", "descr", "changeSet");
@@ -589,6 +614,7 @@ class KeyValueResolverImplTest {
         assertThat((String) kvrWithPersistence.get("key", resolver)).isEqualTo("valueChangeSet");
         assertThat((String) kvrWithPersistence.get("otherKey", resolver)).isEqualTo("otherValueChangeSet");
         kvrWithPersistence.removeChangeSet("changeSet");
+        verify(persistenceMock).apply(any());
         verify(persistenceMock).remove("key", new DefaultDomainSpecificValueFactory().create("valueChangeSet", "changeSet"));
         assertThat((String) kvrWithPersistence.get("key", resolver)).isEqualTo("value");
         assertThat((String) kvrWithPersistence.get("otherKey", resolver)).isNull();
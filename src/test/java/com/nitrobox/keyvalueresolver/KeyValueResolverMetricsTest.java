@@ -0,0 +1,117 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.nitrobox.keyvalueresolver.KeyValueResolverMetrics.Operation;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KeyValueResolverMetricsTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+
+    @Test
+    void operationsAreCountedAndTimed() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+        KeyValueResolverMetrics metrics = keyValueResolver.getMetrics();
+
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.setWithChangeSet("key", "value", "descr", "changeSet", "DE");
+        keyValueResolver.getOrDefine("defined", "default", "descr");
+        keyValueResolver.remove("key", "DE");
+        keyValueResolver.removeChangeSet("changeSet");
+        keyValueResolver.removeKey("key");
+        keyValueResolver.reload();
+
+        assertThat(metrics.getCount(Operation.SET)).isEqualTo(2);
+        assertThat(metrics.getLatency(Operation.SET).getCount()).isEqualTo(2);
+        assertThat(metrics.getCount(Operation.DEFINE)).isEqualTo(1);
+        assertThat(metrics.getLatency(Operation.DEFINE).getCount()).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.REMOVE)).isEqualTo(3);
+        assertThat(metrics.getCount(Operation.RELOAD)).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.GET)).isEqualTo(1);
+    }
+
+    @Test
+    void getsReturningTheDefaultAreCounted() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+        keyValueResolver.set("key", "german", "descr", "DE");
+
+        keyValueResolver.get("key", "DE");
+        keyValueResolver.get("key", "AT");
+        keyValueResolver.getOrDefault("unknown", "default");
+        keyValueResolver.getInt("unknown", 1);
+
+        KeyValueResolverMetrics metrics = keyValueResolver.getMetrics();
+        assertThat(metrics.getCount(Operation.GET)).isEqualTo(4);
+        assertThat(metrics.getDefaultRate()).isEqualTo(0.75);
+    }
+
+    @Test
+    void onlySampledGetsAreTimed() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        keyValueResolver.set("key", "value", "descr");
+
+        for (int i = 0; i < 100 * KeyValueResolverMetrics.GET_SAMPLE_RATE; i++) {
+            keyValueResolver.get("key");
+        }
+
+        KeyValueResolverMetrics metrics = keyValueResolver.getMetrics();
+        assertThat(metrics.getCount(Operation.GET)).isEqualTo(100L * KeyValueResolverMetrics.GET_SAMPLE_RATE);
+        assertThat(metrics.getLatency(Operation.GET).getCount()).isBetween(20L, 300L);
+    }
+
+    @Test
+    void loadsFromPersistenceAreCacheMisses() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("lazy", factory);
+        keyValues.put("value");
+        when(persistence.loadAll(any())).thenReturn(List.of());
+        when(persistence.load(eq("lazy"), any())).thenReturn(keyValues);
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory);
+
+        assertThat(keyValueResolver.<String>get("lazy")).isEqualTo("value");
+        assertThat(keyValueResolver.<String>get("lazy")).isEqualTo("value");
+        assertThat(keyValueResolver.<String>get("lazy")).isEqualTo("value");
+        assertThat(keyValueResolver.<String>get("unknown")).isNull();
+
+        KeyValueResolverMetrics metrics = keyValueResolver.getMetrics();
+        assertThat(metrics.getCount(Operation.LOAD)).isEqualTo(2);
+        assertThat(metrics.getCacheHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void resetClearsAllCounters() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.get("unknown");
+        KeyValueResolverMetrics metrics = keyValueResolver.getMetrics();
+
+        metrics.reset();
+
+        assertThat(metrics.getCount(Operation.SET)).isZero();
+        assertThat(metrics.getCount(Operation.GET)).isZero();
+        assertThat(metrics.getDefaultRate()).isZero();
+    }
+}
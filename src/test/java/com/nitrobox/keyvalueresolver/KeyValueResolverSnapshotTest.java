@@ -0,0 +1,153 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class KeyValueResolverSnapshotTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private final KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country", "city");
+
+    @Test
+    void snapshotDoesNotSeeLaterChanges() {
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.set("removed", "value", "descr");
+
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+        keyValueResolver.set("key", "changed", "descr");
+        keyValueResolver.remove("key", "DE");
+        keyValueResolver.removeKey("removed");
+        keyValueResolver.set("added", "value", "descr");
+
+        assertThat(snapshot.<String>get("key")).isEqualTo("value");
+        assertThat(snapshot.<String>get("key", "DE")).isEqualTo("german");
+        assertThat(snapshot.<String>get("removed")).isEqualTo("value");
+        assertThat(snapshot.<String>get("added")).isNull();
+        assertThat(snapshot.getAllKeyValues()).hasSize(2);
+        assertThat(keyValueResolver.<String>get("key")).isEqualTo("changed");
+        assertThat(keyValueResolver.<String>get("key", "DE")).isEqualTo("changed");
+        assertThat(keyValueResolver.<String>get("removed")).isNull();
+    }
+
+    @Test
+    void snapshotDoesNotSeeRemovedChangeSets() {
+        keyValueResolver.setWithChangeSet("key", "value", "descr", "changeSet");
+
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+        keyValueResolver.removeChangeSet("changeSet");
+
+        assertThat(snapshot.getKeyValues("key").getDomainSpecificValues()).hasSize(1);
+        assertThat(keyValueResolver.getKeyValues("key").getDomainSpecificValues()).isEmpty();
+    }
+
+    @Test
+    void snapshotDoesNotSeeReloads() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("key", factory);
+        keyValues.put("old");
+        when(persistence.loadAll(factory)).thenReturn(List.of(keyValues));
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+        KeyValues reloaded = new KeyValues("key", factory);
+        reloaded.put("new");
+        when(persistence.reload(any(Collection.class), any(DomainSpecificValueFactory.class))).thenReturn(List.of(reloaded));
+        keyValueResolver.reload();
+
+        assertThat(snapshot.<String>get("key")).isEqualTo("old");
+        assertThat(keyValueResolver.<String>get("key")).isEqualTo("new");
+    }
+
+    @Test
+    void valuesChangedAfterASnapshotStayFrozenForEverySnapshot() {
+        keyValueResolver.set("key", "first", "descr", "DE");
+        KeyValueResolverSnapshot first = keyValueResolver.snapshot();
+        keyValueResolver.set("key", "second", "descr", "DE");
+        keyValueResolver.set("key", "third", "descr", "DE");
+        KeyValueResolverSnapshot second = keyValueResolver.snapshot();
+        keyValueResolver.set("key", "fourth", "descr", "DE");
+
+        assertThat(first.<String>get("key", "DE")).isEqualTo("first");
+        assertThat(second.<String>get("key", "DE")).isEqualTo("third");
+        assertThat(keyValueResolver.<String>get("key", "DE")).isEqualTo("fourth");
+    }
+
+    @Test
+    void snapshotSupportsTypedAccessAndMappings() {
+        keyValueResolver.set("limit", "42", "descr");
+        keyValueResolver.set("limit", "4711", "descr", "DE", "Berlin");
+        keyValueResolver.set("timeout", "PT5S", "descr");
+        keyValueResolver.set("flag", "true", "descr");
+
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+
+        assertThat(snapshot.getInt("limit", 0)).isEqualTo(42);
+        assertThat(snapshot.getLong("limit", 0L, "DE", "Berlin")).isEqualTo(4711L);
+        assertThat(snapshot.getBoolean("flag", false)).isTrue();
+        assertThat(snapshot.getDuration("timeout", Duration.ZERO)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(snapshot.getInt("unknown", 7)).isEqualTo(7);
+        assertThat(snapshot.<String>getAllMappings("DE", "Berlin"))
+                .isEqualTo(Map.of("limit", "4711", "timeout", "PT5S", "flag", "true"));
+        assertThat(snapshot.getDomains()).containsExactly("country", "city");
+    }
+
+    @Test
+    void keyValuesArePagedByKeyAndPrefix() {
+        keyValueResolver.set("b.2", "value", "descr");
+        keyValueResolver.set("a", "value", "descr");
+        keyValueResolver.set("b.1", "value", "descr");
+        keyValueResolver.set("b.3", "value", "descr");
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+
+        assertThat(snapshot.getKeyValuesPage("", 0, 2)).extracting(KeyValues::getKey).containsExactly("a", "b.1");
+        assertThat(snapshot.getKeyValuesPage("b.", 1, 5)).extracting(KeyValues::getKey).containsExactly("b.2", "b.3");
+        assertThat(snapshot.getKeyValuesPage("b.", 3, Integer.MAX_VALUE)).isEmpty();
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getKeyValuesPage("", -1, 1));
+    }
+
+    @Test
+    void keysWithPrefixAreTakenFromTheSnapshot() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(new ValuesStore(4));
+        for (int i = 0; i < 30; i++) {
+            keyValueResolver.set(String.format("ns.key%02d", i), "value" + i, "descr");
+        }
+        KeyValueResolverSnapshot snapshot = keyValueResolver.snapshot();
+
+        keyValueResolver.removeKey("ns.key00");
+        keyValueResolver.set("ns.added", "value", "descr");
+
+        assertThat(snapshot.getKeyValuesWithPrefix("ns.")).extracting(KeyValues::getKey).hasSize(30).isSorted().startsWith("ns.key00");
+        assertThat(snapshot.getKeyValuesPage("ns.key1", 2, 3)).extracting(KeyValues::getKey).containsExactly("ns.key12", "ns.key13",
+                "ns.key14");
+        assertThat(snapshot.<String>getMappingsWithPrefix("ns.key2")).hasSize(10).containsEntry("ns.key25", "value25");
+        assertThat(keyValueResolver.getKeyValuesWithPrefix("ns.")).extracting(KeyValues::getKey).hasSize(30).isSorted()
+                .startsWith("ns.added", "ns.key01");
+    }
+}
@@ -309,4 +309,66 @@ class KeyValuesTest {
                 DomainSpecificValue.withoutChangeSet("value_3", "domain1", "domainX")
         );
     }
+
+    @Test
+    void domainSpecificValuesAreNotAffectedByLaterChanges() {
+        keyValues.put("value1", "dom1");
+        Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+
+        keyValues.put("value2", "dom2");
+        keyValues.remove(null, new String[]{"dom1"});
+
+        assertThat(domainSpecificValues).containsExactly(DomainSpecificValue.withoutChangeSet("value1", "dom1"));
+        assertThat(keyValues.getDomainSpecificValues()).containsExactly(DomainSpecificValue.withoutChangeSet("value2", "dom2"));
+    }
+
+    @Test
+    void domainSpecificValuesCanNotBeModified() {
+        keyValues.put("value1", "dom1");
+        Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+
+        assertThrows(UnsupportedOperationException.class, () -> domainSpecificValues.add(DomainSpecificValue.withoutChangeSet("value2")));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
+            iterator.next();
+            iterator.remove();
+        });
+        assertThat(domainSpecificValues.contains(DomainSpecificValue.withoutChangeSet("other", "dom1"))).isTrue();
+    }
+
+    @Test
+    void keysWithManyValuesAreIndexedAndStayConsistentWithTheOrderedValues() {
+        for (int i = 0; i < KeyValues.INDEX_THRESHOLD; i++) {
+            keyValues.put("value" + i, "dom" + i);
+        }
+        keyValues.putWithChangeSet("changeSet", "inChangeSet", "dom0");
+        assertThat(keyValues.isIndexed()).isTrue();
+
+        keyValues.put("changed", "dom3");
+        keyValues.put("added", "dom1", "sub");
+        assertThat(keyValues.remove(null, new String[]{"dom0"}).getValue()).isEqualTo("value0");
+        assertThat(keyValues.remove(null, new String[]{"dom0"})).isNull();
+
+        assertThat(keyValues.getDomainSpecificValues()).hasSize(KeyValues.INDEX_THRESHOLD + 1)
+                .startsWith(DomainSpecificValue.withoutChangeSet("added", "dom1", "sub"))
+                .contains(DomainSpecificValue.withChangeSet("inChangeSet", "changeSet", "dom0"));
+        assertThat((String) keyValues.get(singletonList("dom1"), null, new MapBackedDomainResolver().set("dom1", "dom3")))
+                .isEqualTo("changed");
+        assertThat((String) keyValues.get(singletonList("dom1"), null, new MapBackedDomainResolver().set("dom1", "dom0"))).isNull();
+    }
+
+    @Test
+    void indexIsDroppedWhenMostValuesAreRemoved() {
+        for (int i = 0; i < KeyValues.INDEX_THRESHOLD; i++) {
+            keyValues.putWithChangeSet(i < 12 ? "changeSet" : null, "value" + i, "dom" + i);
+        }
+        keyValues.put("value", "dom0");
+        assertThat(keyValues.isIndexed()).isTrue();
+
+        assertThat(keyValues.removeChangeSet("changeSet")).hasSize(12);
+
+        assertThat(keyValues.isIndexed()).isFalse();
+        assertThat(keyValues.remove(null, new String[]{"dom13"}).getValue()).isEqualTo("value13");
+        assertThat(keyValues.getDomainSpecificValues()).hasSize(4);
+    }
 }
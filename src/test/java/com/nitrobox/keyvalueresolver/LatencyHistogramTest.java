@@ -0,0 +1,75 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    void emptyHistogramReportsZero() {
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMeanNanos()).isZero();
+        assertThat(histogram.getPercentileNanos(99)).isZero();
+    }
+
+    @Test
+    void percentilesAreTheUpperBoundOfTheirBucket() {
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getMeanNanos()).isEqualTo(149.0);
+        assertThat(histogram.getPercentileNanos(50)).isEqualTo(127);
+        assertThat(histogram.getPercentileNanos(99)).isEqualTo(127);
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(8191);
+    }
+
+    @Test
+    void extremeValuesAreRecorded() {
+        histogram.record(0);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.getCount()).isEqualTo(3);
+        assertThat(histogram.getPercentileNanos(50)).isZero();
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void resetClearsAllBuckets() {
+        histogram.record(100);
+
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMeanNanos()).isZero();
+    }
+
+    @Test
+    void invalidPercentilesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(101));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LockStatisticsTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waitAndHoldTimesAreRecordedPerOperation() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("country");
+        keyValueResolver.getMetrics().enableLockStatistics();
+
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.setWithChangeSet("key", "value", "descr", "changeSet", "DE");
+        keyValueResolver.removeChangeSet("changeSet");
+
+        LockStatistics statistics = keyValueResolver.getMetrics().getLockStatistics();
+        assertThat(statistics.getWaitTimes()).containsKeys("write:set", "write:removeChangeSet");
+        assertThat(statistics.getWaitTimes().get("write:set").getCount()).isEqualTo(2);
+        assertThat(statistics.getHoldTimes().get("write:removeChangeSet").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void contendedLockRecordsWaitTimeAndQueueLength() throws Exception {
+        ReadWriteLockTool lock = new ReadWriteLockTool();
+        LockStatistics statistics = new LockStatistics();
+        lock.setStatistics(statistics);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> lock.writeLocked("hold", () -> {
+            locked.countDown();
+            await(release);
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread first = startWaiting(lock);
+        Thread second = startWaiting(lock);
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        first.join(5000);
+        second.join(5000);
+
+        assertThat(statistics.getWaitTimes().get("read:wait").getPercentileNanos(100)).isGreaterThan(0);
+        assertThat(statistics.getHoldTimes().get("write:hold").getCount()).isEqualTo(1);
+        assertThat(statistics.getMaxQueueLength()).isGreaterThan(0);
+        assertThat(statistics.getAverageQueueLength()).isGreaterThan(0);
+    }
+
+    @Test
+    void nothingIsRecordedWhenDisabled() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        keyValueResolver.getMetrics().enableLockStatistics();
+        LockStatistics statistics = keyValueResolver.getMetrics().getLockStatistics();
+        keyValueResolver.getMetrics().disableLockStatistics();
+
+        keyValueResolver.set("key", "value", "descr");
+
+        assertThat(keyValueResolver.getMetrics().getLockStatistics()).isNull();
+        assertThat(statistics.getWaitTimes()).isEmpty();
+    }
+
+    private static Thread startWaiting(ReadWriteLockTool lock) {
+        Thread thread = new Thread(() -> lock.readLocked("wait", () -> { }));
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
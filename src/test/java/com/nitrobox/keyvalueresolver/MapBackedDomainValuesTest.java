@@ -39,5 +39,14 @@ class MapBackedDomainValuesTest {
         String[] expectedArray = new String[]{"domain_value_1", null, "domain_value_3"};
         assertThat(domainValuesAsStringArray).isEqualTo(expectedArray);
     }
+
+    @Test
+    void valuesOfLaterDomainsAreKeptAtTheirPosition() {
+        MapBackedDomainValues domainValues = new MapBackedDomainValues().set("domain3", "domain_value_3");
+
+        assertThat(domainValues.getDomainValues(DOMAIN_LIST)).containsExactly(null, null, "domain_value_3");
+        assertThat(new MapBackedDomainValues().set("domain1", "domain_value_1").getDomainValues(DOMAIN_LIST))
+                .containsExactly("domain_value_1");
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapValuesStorageTest {
+
+    private final DomainSpecificValueFactory domainSpecificValueFactory = new DefaultDomainSpecificValueFactory();
+    private final OffHeapValuesStorage storage = new OffHeapValuesStorage(128);
+    private final ValuesStore valuesStore = new ValuesStore(storage);
+
+    @BeforeEach
+    void before() {
+        valuesStore.setDomainSpecificValueFactory(domainSpecificValueFactory);
+    }
+
+    @Test
+    void emptyStoreHasNoValues() {
+        assertThat(valuesStore.getAllValues()).isEmpty();
+        assertThat(valuesStore.getValuesFor("key")).isNull();
+    }
+
+    @Test
+    void storedValuesAreDecodedOnAccess() {
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory, "description");
+        keyValues.put("default");
+        keyValues.put("german", "DE");
+        keyValues.putWithChangeSet("changeSet", "wildcard", "*", "de_DE");
+        valuesStore.setAllValues(List.of(keyValues));
+
+        KeyValues result = valuesStore.getValuesFor("key");
+
+        assertThat(result.getKey()).isEqualTo("key");
+        assertThat(result.getDescription()).isEqualTo("description");
+        assertThat(result.getDomainSpecificValues()).containsExactlyElementsOf(keyValues.getDomainSpecificValues());
+        assertThat(storage.getHeapValueCount()).isZero();
+    }
+
+    @Test
+    void valuesAreDecodedWithTheStoredPatternsAndWithoutTheFactory() {
+        DomainSpecificValueFactory factory = mock(DomainSpecificValueFactory.class);
+        ValuesStore store = new ValuesStore(new OffHeapValuesStorage(128));
+        store.setDomainSpecificValueFactory(factory);
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory);
+        keyValues.put("german", "DE");
+        keyValues.putWithChangeSet("changeSet", "wildcard", "*", "de_DE");
+        store.setAllValues(List.of(keyValues));
+
+        KeyValues first = store.getValuesFor("key");
+        KeyValues second = store.getValuesFor("key");
+
+        assertThat(first.getDomainSpecificValues()).containsExactlyElementsOf(keyValues.getDomainSpecificValues());
+        assertThat(first.getDomainSpecificValues()).extracting(DomainSpecificValue::getDomainPattern)
+                .containsExactlyElementsOf(keyValues.getDomainSpecificValues().stream().map(DomainSpecificValue::getDomainPattern)
+                        .collect(Collectors.toList()));
+        assertThat(second.getDomainSpecificValues()).extracting(DomainSpecificValue::getDomainPattern)
+                .containsExactlyElementsOf(first.getDomainSpecificValues().stream().map(DomainSpecificValue::getDomainPattern)
+                        .collect(Collectors.toList()));
+        verifyNoInteractions(factory);
+    }
+
+    @Test
+    void valuesThatAreNoStringsStayOnTheHeap() {
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory);
+        keyValues.put(42);
+        keyValues.put(Boolean.TRUE, "DE");
+        valuesStore.setAllValues(List.of(keyValues));
+
+        assertThat(valuesStore.getValuesFor("key").getDomainSpecificValues()).containsExactlyElementsOf(
+                keyValues.getDomainSpecificValues());
+        assertThat(storage.getHeapValueCount()).isEqualTo(2);
+    }
+
+    @Test
+    void manyKeysAreSpreadOverSegments() {
+        Collection<KeyValues> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            KeyValues keyValues = new KeyValues("key" + i, domainSpecificValueFactory);
+            keyValues.put("value" + i, "dom" + i % 7);
+            values.add(keyValues);
+        }
+        valuesStore.setAllValues(values);
+
+        assertThat(valuesStore.getAllValues()).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(valuesStore.getValuesFor("key" + i).getDomainSpecificValues()).containsExactly(
+                    DomainSpecificValue.withoutChangeSet("value" + i, "dom" + i % 7));
+        }
+        assertThat(valuesStore.getValuesFor("key1000")).isNull();
+        assertThat(storage.getOffHeapBytes()).isPositive();
+    }
+
+    @Test
+    void statisticsReportTheSegments() {
+        Collection<KeyValues> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            KeyValues keyValues = new KeyValues("key" + i, domainSpecificValueFactory);
+            keyValues.put("value" + i);
+            values.add(keyValues);
+        }
+        valuesStore.setAllValues(values);
+
+        List<ShardStatistics> statistics = valuesStore.getMetrics().getShardStatistics();
+
+        assertThat(statistics).hasSizeGreaterThan(1);
+        assertThat(statistics).extracting(ShardStatistics::getIndex).containsExactlyElementsOf(
+                IntStream.range(0, statistics.size()).boxed().collect(Collectors.toList()));
+        assertThat(statistics).allSatisfy(segment -> {
+            assertThat(segment.getKeyCount()).isPositive();
+            assertThat(segment.getOffHeapBytes()).isPositive().isLessThanOrEqualTo(128);
+            assertThat(segment).hasToString("segment " + segment.getIndex() + ": keys=" + segment.getKeyCount() + ", offHeapBytes="
+                    + segment.getOffHeapBytes());
+        });
+        assertThat(statistics.stream().mapToInt(ShardStatistics::getKeyCount).sum()).isEqualTo(100);
+        assertThat(statistics.stream().mapToLong(ShardStatistics::getOffHeapBytes).sum()).isLessThan(storage.getOffHeapBytes());
+    }
+
+    @Test
+    void cannotModifyAllValues() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> valuesStore.getAllValues().add(new KeyValues("key", domainSpecificValueFactory)));
+    }
+
+    @Test
+    void modificationsAreNotSupported() {
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.setWithChangeSet("key", null, null, "value"));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.remove("key"));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.removeWithChangeSet("key", null));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.removeChangeSet("changeSet"));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.reload("key"));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.removeAllMatching("key", List.of("domain"), "value"));
+        assertThrows(UnsupportedOperationException.class, () -> valuesStore.promoteChangeSet("changeSet"));
+        assertThat(valuesStore.getAllValues()).isEmpty();
+    }
+
+    @Test
+    void reloadReplacesAllValues() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory);
+        keyValues.put("reloaded");
+        when(persistence.reload(any(Collection.class), eq(domainSpecificValueFactory))).thenReturn(List.of(keyValues));
+        valuesStore.setPersistence(persistence);
+
+        valuesStore.reload();
+
+        assertThat(valuesStore.getValuesFor("key").getDomainSpecificValues()).containsExactly(
+                DomainSpecificValue.withoutChangeSet("reloaded"));
+    }
+
+    @Test
+    void dumpShouldBeFormatted() {
+        valuesStore.setAllValues(List.of(new KeyValues("key", domainSpecificValueFactory, "description")));
+        assertThat(valuesStore.dump()).isEqualTo("\nKeyValues for \"key\": KeyValues{\n\tdescription=\"description\"\n}");
+    }
+
+    @Test
+    void keyValueResolverResolvesFromOffHeapStore() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory);
+        keyValues.put("default");
+        keyValues.put("german", "DE");
+        when(persistence.loadAll(domainSpecificValueFactory)).thenReturn(List.of(keyValues));
+
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(new ValuesStore(new OffHeapValuesStorage()), persistence,
+                domainSpecificValueFactory, "country");
+
+        assertThat((String) keyValueResolver.get("key", "DE")).isEqualTo("german");
+        assertThat((String) keyValueResolver.get("key", "AT")).isEqualTo("default");
+        assertThat((String) keyValueResolver.get("unknown", "DE")).isNull();
+    }
+
+    @Test
+    void allValuesAreFilteredByResolver() {
+        Persistence persistence = mock(Persistence.class);
+        KeyValues keyValues = new KeyValues("key", domainSpecificValueFactory);
+        keyValues.put("default");
+        keyValues.put("german", "DE");
+        KeyValues austrian = new KeyValues("austrian", domainSpecificValueFactory);
+        austrian.put("austrian", "AT");
+        when(persistence.loadAll(domainSpecificValueFactory)).thenReturn(List.of(keyValues, austrian));
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(new ValuesStore(new OffHeapValuesStorage()), persistence,
+                domainSpecificValueFactory, "country");
+
+        assertThat(keyValueResolver.getAllKeyValues("DE")).singleElement().satisfies(filtered -> {
+            assertThat(filtered.getKey()).isEqualTo("key");
+            assertThat(filtered.getDomainSpecificValues()).containsExactly(DomainSpecificValue.withoutChangeSet("german", "DE"));
+        });
+        assertThat(keyValueResolver.getAllKeyValues(keyValueResolver.resolverFor("AT"))).extracting(KeyValues::getKey)
+                .containsExactlyInAnyOrder("austrian", "key");
+    }
+}
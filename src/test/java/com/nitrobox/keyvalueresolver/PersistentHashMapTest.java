@@ -0,0 +1,120 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PersistentHashMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(4711);
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentHashMap<String, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20_000; i++) {
+            String key = "key" + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+
+        assertContains(map, expected);
+    }
+
+    @Test
+    void collidingKeysAreKept() {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("Aa", "1").plus("BB", "2");
+
+        assertThat(map.get("Aa")).isEqualTo("1");
+        assertThat(map.get("BB")).isEqualTo("2");
+        assertThat(map.size()).isEqualTo(2);
+
+        map = map.minus("Aa");
+
+        assertThat(map.containsKey("Aa")).isFalse();
+        assertThat(map.get("BB")).isEqualTo("2");
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void oldVersionsAreNotChanged() {
+        PersistentHashMap<String, String> first = PersistentHashMap.<String, String>empty().plus("a", "1").plus("b", "2");
+        PersistentHashMap<String, String> second = first.plus("a", "changed").minus("b").plus("c", "3");
+
+        assertThat(first.get("a")).isEqualTo("1");
+        assertThat(first.get("b")).isEqualTo("2");
+        assertThat(first.containsKey("c")).isFalse();
+        assertThat(second.get("a")).isEqualTo("changed");
+        assertThat(second.containsKey("b")).isFalse();
+        assertThat(second.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void builderDoesNotChangeTheMapItStartedFrom() {
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentHashMap.Builder<String, Integer> builder = PersistentHashMap.<String, Integer>empty().toBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            builder.put("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        PersistentHashMap<String, Integer> original = builder.build();
+
+        PersistentHashMap.Builder<String, Integer> modifying = original.toBuilder();
+        for (int i = 0; i < 1_000; i += 2) {
+            modifying.remove("key" + i);
+        }
+        modifying.put("new", -1);
+        PersistentHashMap<String, Integer> modified = modifying.build();
+
+        assertContains(original, expected);
+        assertThat(modified.size()).isEqualTo(501);
+        assertThat(modified.get("key1")).isEqualTo(1);
+        assertThat(modified.containsKey("key2")).isFalse();
+        assertThat(modified.get("new")).isEqualTo(-1);
+        assertThrows(IllegalStateException.class, () -> modifying.put("late", 0));
+    }
+
+    @Test
+    void removingUnknownKeysReturnsTheSameMap() {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("a", "1");
+
+        assertThat(map.minus("b")).isSameAs(map);
+    }
+
+    private static void assertContains(PersistentHashMap<String, Integer> map, Map<String, Integer> expected) {
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+        Map<String, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+    }
+}
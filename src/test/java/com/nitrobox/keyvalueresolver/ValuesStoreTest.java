@@ -37,6 +37,7 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -172,4 +173,108 @@ class ValuesStoreTest {
         valuesStore.reload(key);
         assertThat(valuesStore.getValuesFor(key)).isNull();
     }
+
+    @Test
+    void shardCountMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ValuesStore(0));
+    }
+
+    @Test
+    void keysAreSpreadOverShards() {
+        ValuesStore sharded = shardedStore();
+        for (int i = 0; i < 100; i++) {
+            sharded.setWithChangeSet("key" + i, "desc", null, "value" + i);
+        }
+
+        assertThat(sharded.getAllValues()).hasSize(100);
+        assertThat(sharded.getValuesFor("key42").<String>get(List.of(), null, new MapBackedDomainResolver())).isEqualTo("value42");
+        List<ShardStatistics> statistics = sharded.getMetrics().getShardStatistics();
+        assertThat(statistics).hasSize(4).allSatisfy(shard -> assertThat(shard.getKeyCount()).isPositive());
+        assertThat(statistics.stream().mapToInt(ShardStatistics::getKeyCount).sum()).isEqualTo(100);
+        assertThat(statistics.stream().mapToLong(ShardStatistics::getWrites).sum()).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void snapshotOfShardsIsNotAffectedByLaterChanges() {
+        ValuesStore sharded = shardedStore();
+        for (int i = 0; i < 20; i++) {
+            sharded.setWithChangeSet("key" + i, "desc", null, "old");
+        }
+        ValuesStore.ValuesView snapshot = sharded.snapshot();
+
+        sharded.apply(new WriteBatch().set("key0", "new", "desc").set("key1", "new", "desc").removeKey("key2").set("added", "new", "desc"));
+
+        assertThat(snapshot.getAllValues()).hasSize(20);
+        assertThat(snapshot.getValuesFor("key0").<String>get(List.of(), null, new MapBackedDomainResolver())).isEqualTo("old");
+        assertThat(snapshot.getValuesFor("added")).isNull();
+        assertThat(sharded.getAllValues()).hasSize(20);
+        assertThat(sharded.getValuesFor("key0").<String>get(List.of(), null, new MapBackedDomainResolver())).isEqualTo("new");
+        assertThat(sharded.getValuesFor("key2")).isNull();
+    }
+
+    @Test
+    void changeSetsAreRemovedAndPromotedInAllShards() {
+        ValuesStore sharded = shardedStore();
+        for (int i = 0; i < 20; i++) {
+            sharded.setWithChangeSet("key" + i, "desc", null, "base");
+            sharded.setWithChangeSet("key" + i, "desc", "promoted", "promoted");
+            sharded.setWithChangeSet("key" + i, "desc", "removed", "removed", "dom1");
+        }
+
+        sharded.removeChangeSet("removed");
+
+        assertThat(sharded.promoteChangeSet("promoted")).isEqualTo(20);
+        assertThat(sharded.getAllValues()).hasSize(20).allSatisfy(keyValues ->
+                assertThat(keyValues.getDomainSpecificValues()).containsExactly(DomainSpecificValue.withoutChangeSet("promoted")));
+    }
+
+    @Test
+    void removingAChangeSetDoesNotChangeTheKeyValuesReadersSee() {
+        ValuesStore sharded = shardedStore();
+        sharded.setWithChangeSet("key", "desc", null, "base");
+        sharded.setWithChangeSet("key", "desc", "removed", "removed");
+        KeyValues before = sharded.getValuesFor("key");
+
+        sharded.removeChangeSet("removed");
+
+        assertThat(before.getDomainSpecificValues()).hasSize(2);
+        assertThat(sharded.getValuesFor("key").getDomainSpecificValues()).containsExactly(DomainSpecificValue.withoutChangeSet("base"));
+    }
+
+    @Test
+    void changeSetIsPromotedInAllShardsWithOnePersistenceBatch() {
+        ValuesStore sharded = shardedStore();
+        for (int i = 0; i < 20; i++) {
+            sharded.setWithChangeSet("key" + i, "desc", "promoted", "promoted");
+        }
+        sharded.setPersistence(persistence);
+
+        assertThat(sharded.promoteChangeSet("promoted")).isEqualTo(20);
+
+        ArgumentCaptor<PersistenceBatch> batch = ArgumentCaptor.forClass(PersistenceBatch.class);
+        verify(persistence).apply(batch.capture());
+        assertThat(batch.getValue().getRemovedValues()).hasSize(20);
+        assertThat(batch.getValue().getStoredValues()).hasSize(20);
+    }
+
+    @Test
+    void pagesAreReadWithoutTakingASnapshot() {
+        ValuesStore sharded = shardedStore();
+        for (int i = 0; i < 5; i++) {
+            sharded.setWithChangeSet("key" + i, "desc", null, "value");
+        }
+        KeyValues before = sharded.getValuesFor("key1");
+
+        assertThat(sharded.getValuesPage("key", 1, 2)).extracting(KeyValues::getKey).containsExactly("key1", "key2");
+        sharded.setWithChangeSet("key1", "desc", null, "changed");
+
+        assertThat(sharded.getValuesFor("key1")).isSameAs(before);
+        assertThrows(IllegalArgumentException.class, () -> sharded.getValuesPage("", 0, -1));
+    }
+
+    private ValuesStore shardedStore() {
+        ValuesStore sharded = new ValuesStore(4);
+        sharded.setDomainSpecificValueFactory(domainSpecificValueFactory);
+        return sharded;
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class WriteBatchTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private final Persistence persistence = mock(Persistence.class);
+    private final KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void writesAreAppliedInOrder() {
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.set("removed", "value", "descr");
+
+        keyValueResolver.apply(new WriteBatch()
+                .set("key", "austrian", "descr", "AT")
+                .setWithChangeSet("key", "preview", "descr", "changeSet", "DE")
+                .remove("key", "DE")
+                .removeKey("removed")
+                .set("new", "first", "new key")
+                .set("new", "second", "new key"));
+
+        assertThat((String) keyValueResolver.get("key", "AT")).isEqualTo("austrian");
+        assertThat((String) keyValueResolver.get("key", "DE")).isEqualTo("value");
+        assertThat(keyValueResolver.getKeyValues("key").getDomainSpecificValues()).hasSize(3);
+        assertThat(keyValueResolver.getKeyValues("removed")).isNull();
+        assertThat((String) keyValueResolver.get("new")).isEqualTo("second");
+        assertThat(keyValueResolver.getKeyValues("new").getDescription()).isEqualTo("new key");
+    }
+
+    @Test
+    void persistenceReceivesTheNetChangesInOneBatch() {
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.set("key", "german", "descr", "DE");
+        keyValueResolver.set("recreated", "old", "descr");
+
+        keyValueResolver.apply(new WriteBatch()
+                .set("key", "first", "descr", "AT")
+                .set("key", "second", "descr", "AT")
+                .remove("key", "DE")
+                .set("recreated", "discarded", "descr", "DE")
+                .removeKey("recreated")
+                .set("recreated", "new", "descr")
+                .set("emptied", "value", "descr")
+                .remove("emptied"));
+
+        ArgumentCaptor<PersistenceBatch> captor = ArgumentCaptor.forClass(PersistenceBatch.class);
+        verify(persistence).apply(captor.capture());
+        verify(persistence, never()).remove(anyString());
+        PersistenceBatch batch = captor.getValue();
+        assertThat(batch.getRemovedKeys()).containsExactly("recreated", "emptied");
+        assertThat(batch.getRemovedValues()).extracting(change -> change.getKey() + ":" + change.getDomainSpecificValue().getPattern())
+                .containsExactly("key:DE|");
+        assertThat(batch.getStoredValues()).extracting(change -> change.getKey() + ":" + change.getDomainSpecificValue().getValue())
+                .containsExactly("key:second", "recreated:new");
+        assertThat(keyValueResolver.getKeyValues("emptied")).isNull();
+    }
+
+    @Test
+    void readersSeeTheBatchAtOnce() {
+        keyValueResolver.set("key1", "old", "descr");
+        keyValueResolver.set("key2", "old", "descr");
+        doAnswer(invocation -> {
+            assertThat((String) keyValueResolver.get("key1")).isEqualTo("old");
+            assertThat((String) keyValueResolver.get("key2")).isEqualTo("old");
+            return null;
+        }).when(persistence).apply(any());
+
+        keyValueResolver.apply(new WriteBatch().set("key1", "new", "descr").set("key2", "new", "descr"));
+
+        assertThat((String) keyValueResolver.get("key1")).isEqualTo("new");
+        assertThat((String) keyValueResolver.get("key2")).isEqualTo("new");
+    }
+
+    @Test
+    void listenersAreNotified() throws InterruptedException {
+        BlockingQueue<List<ChangeEvent>> batches = new LinkedBlockingQueue<>();
+        keyValueResolver.set("removed", "value", "descr");
+        keyValueResolver.addChangeListener(batches::add, executor, Duration.ZERO);
+
+        keyValueResolver.apply(new WriteBatch().set("key", "value", "descr", "DE").removeKey("removed"));
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(
+                new ChangeEvent("key", "DE|", null),
+                new ChangeEvent("removed", null, null));
+    }
+}
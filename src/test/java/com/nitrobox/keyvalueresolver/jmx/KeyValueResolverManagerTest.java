@@ -25,12 +25,26 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.nitrobox.keyvalueresolver.InstrumentedPersistence;
 import com.nitrobox.keyvalueresolver.KeyValueResolver;
 import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.Persistence;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 
 /**
@@ -129,6 +143,144 @@ class KeyValueResolverManagerTest {
         verify(out, times(2)).println();
     }
 
+    @Test
+    void statisticsAreRegisteredPerKeyValueResolver() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("dom1");
+        keyValueResolver.set("key", "value", "descr", "a");
+        keyValueResolver.set("key", "value", "descr");
+        keyValueResolver.get("key");
+        keyValueResolver.get("unknown");
+
+        Set<ObjectName> names = statisticsNames();
+        assertThat(names).hasSize(1);
+        ObjectName name = names.iterator().next();
+        assertThat(mbs.getAttribute(name, "KeyValueResolver")).isEqualTo("KeyValueResolver{domains=[dom1]}");
+        assertThat(mbs.getAttribute(name, "SetCount")).isEqualTo(2L);
+        assertThat(mbs.getAttribute(name, "GetCount")).isEqualTo(2L);
+        assertThat(mbs.getAttribute(name, "DefaultRate")).isEqualTo(0.5);
+        assertThat(mbs.getAttribute(name, "KeyCount")).isEqualTo(1);
+        assertThat(mbs.getAttribute(name, "ValueCount")).isEqualTo(2L);
+
+        manager.remove(keyValueResolver);
+
+        assertThat(statisticsNames()).isEmpty();
+    }
+
+    @Test
+    void dumpPageIsLimitedPerKeyValueResolver() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        keyValueResolver.set("a.1", "value", "descr");
+        keyValueResolver.set("a.2", "value", "descr");
+        keyValueResolver.set("b.1", "value", "descr");
+
+        String page = manager.dumpPage("a.", 1, 10);
+
+        assertThat(page).startsWith("KeyValueResolver{domains=[]}:\nKeyValues for \"a.2\": KeyValues{").doesNotContain("\"a.1\"")
+                .doesNotContain("\"b.1\"");
+        assertThrows(IllegalArgumentException.class, () -> manager.dumpPage("", 0, KeyValueResolverManager.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void dumpIsLimitedPerKeyValueResolver() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        for (int i = 0; i <= KeyValueResolverManager.MAX_PAGE_SIZE; i++) {
+            keyValueResolver.set(String.format("key%04d", i), "value", "descr");
+        }
+
+        String dump = manager.dump();
+
+        assertThat(dump).startsWith("KeyValueResolver{domains=[]\nKeyValues for \"key0000\": ")
+                .contains("\"key0999\"").doesNotContain("\"key1000\"")
+                .endsWith("\n... more than 1000 KeyValues, use dumpPage or dumpToFile\n}\n\n");
+    }
+
+    @Test
+    void dumpToFileWritesAllKeyValueResolvers(@TempDir Path directory) throws IOException {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl("dom1");
+        keyValueResolver.set("key", "value", "descr");
+        Path file = directory.resolve("dump.txt");
+
+        manager.dumpToFile(file.toString());
+
+        assertThat(Files.readString(file)).isEqualTo(keyValueResolver.dump() + "\n\n");
+    }
+
+    @Test
+    void persistenceStatisticsAreRegisteredUntilRemoved() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        InstrumentedPersistence persistence = new InstrumentedPersistence(mock(Persistence.class));
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence);
+        keyValueResolver.set("key", "value", "descr");
+        manager.add(persistence);
+        manager.add(persistence);
+
+        Set<ObjectName> names = mbs.queryNames(new ObjectName("com.nitrobox.keyvalueresolver:type=PersistenceStatisticsMBean,*"), null);
+        assertThat(names).hasSize(1);
+        ObjectName name = names.iterator().next();
+        assertThat(mbs.getAttribute(name, "LoadAllCount")).isEqualTo(1L);
+        assertThat(mbs.getAttribute(name, "StoreCount")).isEqualTo(1L);
+        assertThat(mbs.getAttribute(name, "StoreErrorCount")).isEqualTo(0L);
+
+        manager.remove(persistence);
+
+        assertThat(mbs.queryNames(new ObjectName("com.nitrobox.keyvalueresolver:type=PersistenceStatisticsMBean,*"), null)).isEmpty();
+    }
+
+    @Test
+    void statisticsOfCollectedKeyValueResolversAreUnregistered() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+        assertThat(statisticsNames()).hasSize(1);
+        keyValueResolver = null;
+        System.gc();
+
+        KeyValueResolver other = new KeyValueResolverImpl();
+
+        assertThat(statisticsNames()).hasSize(1);
+    }
+
+    @Test
+    void keyValueResolversCanRegisterConcurrently() throws InterruptedException {
+        List<KeyValueResolver> keyValueResolvers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < 50; j++) {
+                    KeyValueResolver keyValueResolver = new KeyValueResolverImpl();
+                    synchronized (keyValueResolvers) {
+                        keyValueResolvers.add(keyValueResolver);
+                    }
+                    manager.listRoperties();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(keyValueResolvers).hasSize(400);
+        assertThat(manager.dump().split("\n\n")).hasSize(400);
+        assertThat(statisticsNames()).hasSize(400);
+    }
+
+    private static Set<ObjectName> statisticsNames() {
+        try {
+            return ManagementFactory.getPlatformMBeanServer()
+                    .queryNames(new ObjectName("com.nitrobox.keyvalueresolver:type=KeyValueResolverStatisticsMBean,*"), null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Test
     void ignoresInstanceAlreadyExistsException() {
         new KeyValueResolverManager();
@@ -0,0 +1,165 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nitrobox.keyvalueresolver.DefaultDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import com.nitrobox.keyvalueresolver.PersistenceBatch;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JdbcPersistenceTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+    private JdbcPersistence persistence;
+
+    @BeforeEach
+    void before() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        persistence = new JdbcPersistence(dataSource);
+        persistence.createSchema();
+    }
+
+    @Test
+    void emptyDatabaseLoadsNothing() {
+        assertThat(persistence.loadAll(factory)).isEmpty();
+        assertThat(persistence.load("key", factory)).isNull();
+    }
+
+    @Test
+    void storedValuesAreLoaded() {
+        KeyValues keyValues = new KeyValues("key", factory, "description");
+        persistence.store("key", keyValues, keyValues.put("default"));
+        persistence.store("key", keyValues, keyValues.putWithChangeSet("changeSet", "german", "DE"));
+
+        KeyValues loaded = persistence.load("key", factory);
+
+        assertThat(loaded.getDescription()).isEqualTo("description");
+        assertThat(loaded.getDomainSpecificValues()).containsExactlyInAnyOrder(DomainSpecificValue.withoutChangeSet("default"),
+                DomainSpecificValue.withChangeSet("german", "changeSet", "DE"));
+    }
+
+    @Test
+    void storingAnExistingValueOverwritesIt() {
+        KeyValues keyValues = new KeyValues("key", factory, "old");
+        persistence.store("key", keyValues, keyValues.put("old", "DE"));
+        keyValues.setDescription("new");
+        persistence.store("key", keyValues, keyValues.put("new", "DE"));
+
+        KeyValues loaded = persistence.load("key", factory);
+
+        assertThat(loaded.getDescription()).isEqualTo("new");
+        assertThat(loaded.getDomainSpecificValues()).containsExactly(DomainSpecificValue.withoutChangeSet("new", "DE"));
+    }
+
+    @Test
+    void valuesThatAreNoStringsAreStored() {
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put(42, "int"));
+        persistence.store("key", keyValues, keyValues.put(42L, "long"));
+        persistence.store("key", keyValues, keyValues.put(true, "boolean"));
+        persistence.store("key", keyValues, keyValues.put(LocalDate.of(2022, 1, 31), "date"));
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactlyInAnyOrder(
+                DomainSpecificValue.withoutChangeSet(42, "int"),
+                DomainSpecificValue.withoutChangeSet(42L, "long"),
+                DomainSpecificValue.withoutChangeSet(true, "boolean"),
+                DomainSpecificValue.withoutChangeSet(LocalDate.of(2022, 1, 31), "date"));
+    }
+
+    @Test
+    void removedValuesAndKeysAreGone() {
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put("default"));
+        final DomainSpecificValue german = keyValues.put("german", "DE");
+        persistence.store("key", keyValues, german);
+        persistence.remove("key", german);
+        KeyValues other = new KeyValues("other", factory);
+        persistence.store("other", other, other.put("value"));
+        persistence.remove("other");
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactly(
+                DomainSpecificValue.withoutChangeSet("default"));
+        assertThat(persistence.load("other", factory)).isNull();
+    }
+
+    @Test
+    void batchIsAppliedInOneGo() {
+        KeyValues keyValues = new KeyValues("key", factory);
+        final DomainSpecificValue german = keyValues.put("german", "DE");
+        persistence.store("key", keyValues, german);
+        KeyValues other = new KeyValues("other", factory);
+        persistence.store("other", other, other.put("value"));
+
+        persistence.apply(new PersistenceBatch()
+                .removeKey("other")
+                .remove("key", german)
+                .store("key", keyValues, keyValues.put("default"))
+                .store("third", new KeyValues("third", factory), DomainSpecificValue.withoutChangeSet("value")));
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactly(
+                DomainSpecificValue.withoutChangeSet("default"));
+        assertThat(persistence.load("other", factory)).isNull();
+        assertThat(persistence.load("third", factory).getDomainSpecificValues()).containsExactly(
+                DomainSpecificValue.withoutChangeSet("value"));
+    }
+
+    @Test
+    void loadAllStreamsAllKeys() {
+        persistence.setFetchSize(7);
+        for (int i = 0; i < 100; i++) {
+            KeyValues keyValues = new KeyValues("key" + i, factory);
+            persistence.store("key" + i, keyValues, keyValues.put("value" + i));
+            persistence.store("key" + i, keyValues, keyValues.put("german" + i, "DE"));
+        }
+        persistence.store("empty", new KeyValues("empty", factory), DomainSpecificValue.withoutChangeSet("value"));
+        persistence.remove("empty", DomainSpecificValue.withoutChangeSet("value"));
+
+        Collection<KeyValues> all = persistence.loadAll(factory);
+
+        assertThat(all).hasSize(101);
+        assertThat(all).filteredOn(keyValues -> keyValues.getKey().equals("key42")).singleElement()
+                .satisfies(keyValues -> assertThat(keyValues.getDomainSpecificValues()).containsExactlyInAnyOrder(
+                        DomainSpecificValue.withoutChangeSet("value42"), DomainSpecificValue.withoutChangeSet("german42", "DE")));
+        assertThat(all).filteredOn(keyValues -> keyValues.getKey().equals("empty")).singleElement()
+                .satisfies(keyValues -> assertThat(keyValues.getDomainSpecificValues()).isEmpty());
+    }
+
+    @Test
+    void keyValueResolverRestoresItsValuesFromTheDatabase() {
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+        keyValueResolver.set("key", "default", "description");
+        keyValueResolver.set("key", "german", "description", "DE");
+
+        keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+
+        assertThat((String) keyValueResolver.get("key", "DE")).isEqualTo("german");
+        assertThat((String) keyValueResolver.get("key", "AT")).isEqualTo("default");
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * KeyValueResolver - An dynamic Key-Value Store
+ * Copyright (C) 2022 Nitrobox GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nitrobox.keyvalueresolver.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nitrobox.keyvalueresolver.DefaultDomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.DomainSpecificValue;
+import com.nitrobox.keyvalueresolver.DomainSpecificValueFactory;
+import com.nitrobox.keyvalueresolver.KeyValueResolver;
+import com.nitrobox.keyvalueresolver.KeyValueResolverImpl;
+import com.nitrobox.keyvalueresolver.KeyValues;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogStructuredPersistenceTest {
+
+    private final DomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+
+    @TempDir
+    Path directory;
+
+    private LogStructuredPersistence persistence;
+
+    @AfterEach
+    void after() {
+        if (persistence != null) {
+            persistence.close();
+        }
+    }
+
+    @Test
+    void emptyLogLoadsNothing() {
+        persistence = open();
+        assertThat(persistence.loadAll(factory)).isEmpty();
+        assertThat(persistence.load("key", factory)).isNull();
+    }
+
+    @Test
+    void storedValuesAreLoadedAfterReopen() {
+        persistence = open();
+        KeyValues keyValues = new KeyValues("key", factory, "description");
+        persistence.store("key", keyValues, keyValues.put("default"));
+        persistence.store("key", keyValues, keyValues.putWithChangeSet("changeSet", "german", "DE"));
+        persistence.close();
+
+        persistence = open();
+
+        KeyValues loaded = persistence.load("key", factory);
+        assertThat(loaded.getDescription()).isEqualTo("description");
+        assertThat(loaded.getDomainSpecificValues()).containsExactlyInAnyOrder(DomainSpecificValue.withoutChangeSet("default"),
+                DomainSpecificValue.withChangeSet("german", "changeSet", "DE"));
+        assertThat(persistence.loadAll(factory)).hasSize(1);
+    }
+
+    @Test
+    void valuesThatAreNoStringsAreStored() {
+        persistence = open();
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put(42, "int"));
+        persistence.store("key", keyValues, keyValues.put(true, "boolean"));
+        persistence.store("key", keyValues, keyValues.put(LocalDate.of(2022, 1, 31), "date"));
+        persistence.close();
+
+        persistence = open();
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactlyInAnyOrder(
+                DomainSpecificValue.withoutChangeSet(42, "int"),
+                DomainSpecificValue.withoutChangeSet(true, "boolean"),
+                DomainSpecificValue.withoutChangeSet(LocalDate.of(2022, 1, 31), "date"));
+    }
+
+    @Test
+    void overwrittenAndRemovedValuesAreGoneAfterReopen() {
+        persistence = open();
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put("old"));
+        persistence.store("key", keyValues, keyValues.put("new"));
+        final DomainSpecificValue german = keyValues.put("german", "DE");
+        persistence.store("key", keyValues, german);
+        persistence.remove("key", german);
+        KeyValues other = new KeyValues("other", factory);
+        persistence.store("other", other, other.put("value"));
+        persistence.remove("other");
+        persistence.close();
+
+        persistence = open();
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactly(
+                DomainSpecificValue.withoutChangeSet("new"));
+        assertThat(persistence.load("other", factory)).isNull();
+    }
+
+    @Test
+    void incompleteRecordAtTheEndIsCutOff() throws IOException {
+        persistence = open();
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put("value"));
+        persistence.close();
+        final Path segment = logFiles().get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        persistence = open();
+        persistence.store("key", keyValues, keyValues.put("german", "DE"));
+        persistence.close();
+        persistence = open();
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactlyInAnyOrder(
+                DomainSpecificValue.withoutChangeSet("value"), DomainSpecificValue.withoutChangeSet("german", "DE"));
+    }
+
+    @Test
+    void compactionDropsOverwrittenValues() throws IOException {
+        persistence = new LogStructuredPersistence(directory, 256, Duration.ofMillis(10), 2);
+        KeyValues keyValues = new KeyValues("key", factory);
+        for (int i = 0; i < 100; i++) {
+            persistence.store("key", keyValues, keyValues.put("value" + i));
+            persistence.store("key", keyValues, keyValues.put("german" + i, "DE"));
+        }
+        final long sizeBefore = logSize();
+
+        persistence.compact();
+
+        assertThat(logSize()).isLessThan(sizeBefore / 4);
+        assertThat(logFiles()).anyMatch(file -> file.getFileName().toString().startsWith("snapshot-"));
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactlyInAnyOrder(
+                DomainSpecificValue.withoutChangeSet("value99"), DomainSpecificValue.withoutChangeSet("german99", "DE"));
+        persistence.store("key", keyValues, keyValues.put("afterCompaction"));
+        persistence.close();
+
+        persistence = open();
+
+        assertThat(persistence.load("key", factory).getDomainSpecificValues()).containsExactlyInAnyOrder(
+                DomainSpecificValue.withoutChangeSet("afterCompaction"), DomainSpecificValue.withoutChangeSet("german99", "DE"));
+    }
+
+    @Test
+    void removedKeysStayRemovedAfterCompaction() {
+        persistence = new LogStructuredPersistence(directory, 128, Duration.ofMillis(10), 2);
+        KeyValues keyValues = new KeyValues("key", factory);
+        persistence.store("key", keyValues, keyValues.put("value"));
+        for (int i = 0; i < 10; i++) {
+            KeyValues other = new KeyValues("other" + i, factory);
+            persistence.store("other" + i, other, other.put("value"));
+        }
+        persistence.remove("key");
+        persistence.compact();
+        persistence.close();
+
+        persistence = open();
+
+        assertThat(persistence.load("key", factory)).isNull();
+        assertThat(persistence.loadAll(factory)).hasSize(10);
+    }
+
+    @Test
+    void keyValueResolverRestoresItsValuesFromTheLog() {
+        persistence = open();
+        KeyValueResolver keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+        keyValueResolver.set("key", "default", "description");
+        keyValueResolver.set("key", "german", "description", "DE");
+        keyValueResolver.removeKey("unknown");
+        persistence.close();
+
+        persistence = open();
+        keyValueResolver = new KeyValueResolverImpl(persistence, factory, "country");
+
+        assertThat((String) keyValueResolver.get("key", "DE")).isEqualTo("german");
+        assertThat((String) keyValueResolver.get("key", "AT")).isEqualTo("default");
+    }
+
+    private LogStructuredPersistence open() {
+        return new LogStructuredPersistence(directory);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private long logSize() throws IOException {
+        long size = 0;
+        for (Path file : logFiles()) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+}